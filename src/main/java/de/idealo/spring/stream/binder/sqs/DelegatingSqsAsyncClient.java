@@ -0,0 +1,203 @@
+package de.idealo.spring.stream.binder.sqs;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.util.Assert;
+
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.SqsServiceClientConfiguration;
+import software.amazon.awssdk.services.sqs.model.AddPermissionRequest;
+import software.amazon.awssdk.services.sqs.model.AddPermissionResponse;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityResponse;
+import software.amazon.awssdk.services.sqs.model.CreateQueueRequest;
+import software.amazon.awssdk.services.sqs.model.CreateQueueResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteQueueRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteQueueResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.ListDeadLetterSourceQueuesRequest;
+import software.amazon.awssdk.services.sqs.model.ListDeadLetterSourceQueuesResponse;
+import software.amazon.awssdk.services.sqs.model.ListQueueTagsRequest;
+import software.amazon.awssdk.services.sqs.model.ListQueueTagsResponse;
+import software.amazon.awssdk.services.sqs.model.ListQueuesRequest;
+import software.amazon.awssdk.services.sqs.model.ListQueuesResponse;
+import software.amazon.awssdk.services.sqs.model.PurgeQueueRequest;
+import software.amazon.awssdk.services.sqs.model.PurgeQueueResponse;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.sqs.model.RemovePermissionRequest;
+import software.amazon.awssdk.services.sqs.model.RemovePermissionResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.SetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.TagQueueRequest;
+import software.amazon.awssdk.services.sqs.model.TagQueueResponse;
+import software.amazon.awssdk.services.sqs.model.UntagQueueRequest;
+import software.amazon.awssdk.services.sqs.model.UntagQueueResponse;
+import software.amazon.awssdk.services.sqs.paginators.ListDeadLetterSourceQueuesPublisher;
+import software.amazon.awssdk.services.sqs.paginators.ListQueuesPublisher;
+
+/**
+ * {@link SqsAsyncClient} which delegates every operation to another client. Subclasses override single operations
+ * to observe or decorate the calls made by the binder and the listener containers.
+ */
+public class DelegatingSqsAsyncClient implements SqsAsyncClient {
+
+    private final SqsAsyncClient delegate;
+
+    public DelegatingSqsAsyncClient(SqsAsyncClient delegate) {
+        Assert.notNull(delegate, "'delegate' must not be null");
+        this.delegate = delegate;
+    }
+
+    public SqsAsyncClient getDelegate() {
+        return this.delegate;
+    }
+
+    @Override
+    public String serviceName() {
+        return this.delegate.serviceName();
+    }
+
+    @Override
+    public SqsServiceClientConfiguration serviceClientConfiguration() {
+        return this.delegate.serviceClientConfiguration();
+    }
+
+    @Override
+    public void close() {
+        // the lifecycle of the delegate is managed by its owner
+    }
+
+    @Override
+    public CompletableFuture<AddPermissionResponse> addPermission(AddPermissionRequest request) {
+        return this.delegate.addPermission(request);
+    }
+
+    @Override
+    public CompletableFuture<ChangeMessageVisibilityResponse> changeMessageVisibility(ChangeMessageVisibilityRequest request) {
+        return this.delegate.changeMessageVisibility(request);
+    }
+
+    @Override
+    public CompletableFuture<ChangeMessageVisibilityBatchResponse> changeMessageVisibilityBatch(ChangeMessageVisibilityBatchRequest request) {
+        return this.delegate.changeMessageVisibilityBatch(request);
+    }
+
+    @Override
+    public CompletableFuture<CreateQueueResponse> createQueue(CreateQueueRequest request) {
+        return this.delegate.createQueue(request);
+    }
+
+    @Override
+    public CompletableFuture<DeleteMessageResponse> deleteMessage(DeleteMessageRequest request) {
+        return this.delegate.deleteMessage(request);
+    }
+
+    @Override
+    public CompletableFuture<DeleteMessageBatchResponse> deleteMessageBatch(DeleteMessageBatchRequest request) {
+        return this.delegate.deleteMessageBatch(request);
+    }
+
+    @Override
+    public CompletableFuture<DeleteQueueResponse> deleteQueue(DeleteQueueRequest request) {
+        return this.delegate.deleteQueue(request);
+    }
+
+    @Override
+    public CompletableFuture<GetQueueAttributesResponse> getQueueAttributes(GetQueueAttributesRequest request) {
+        return this.delegate.getQueueAttributes(request);
+    }
+
+    @Override
+    public CompletableFuture<GetQueueUrlResponse> getQueueUrl(GetQueueUrlRequest request) {
+        return this.delegate.getQueueUrl(request);
+    }
+
+    @Override
+    public CompletableFuture<ListDeadLetterSourceQueuesResponse> listDeadLetterSourceQueues(ListDeadLetterSourceQueuesRequest request) {
+        return this.delegate.listDeadLetterSourceQueues(request);
+    }
+
+    @Override
+    public ListDeadLetterSourceQueuesPublisher listDeadLetterSourceQueuesPaginator(ListDeadLetterSourceQueuesRequest request) {
+        return this.delegate.listDeadLetterSourceQueuesPaginator(request);
+    }
+
+    @Override
+    public CompletableFuture<ListQueueTagsResponse> listQueueTags(ListQueueTagsRequest request) {
+        return this.delegate.listQueueTags(request);
+    }
+
+    @Override
+    public CompletableFuture<ListQueuesResponse> listQueues(ListQueuesRequest request) {
+        return this.delegate.listQueues(request);
+    }
+
+    @Override
+    public CompletableFuture<ListQueuesResponse> listQueues() {
+        return this.delegate.listQueues();
+    }
+
+    @Override
+    public ListQueuesPublisher listQueuesPaginator() {
+        return this.delegate.listQueuesPaginator();
+    }
+
+    @Override
+    public ListQueuesPublisher listQueuesPaginator(ListQueuesRequest request) {
+        return this.delegate.listQueuesPaginator(request);
+    }
+
+    @Override
+    public CompletableFuture<PurgeQueueResponse> purgeQueue(PurgeQueueRequest request) {
+        return this.delegate.purgeQueue(request);
+    }
+
+    @Override
+    public CompletableFuture<ReceiveMessageResponse> receiveMessage(ReceiveMessageRequest request) {
+        return this.delegate.receiveMessage(request);
+    }
+
+    @Override
+    public CompletableFuture<RemovePermissionResponse> removePermission(RemovePermissionRequest request) {
+        return this.delegate.removePermission(request);
+    }
+
+    @Override
+    public CompletableFuture<SendMessageResponse> sendMessage(SendMessageRequest request) {
+        return this.delegate.sendMessage(request);
+    }
+
+    @Override
+    public CompletableFuture<SendMessageBatchResponse> sendMessageBatch(SendMessageBatchRequest request) {
+        return this.delegate.sendMessageBatch(request);
+    }
+
+    @Override
+    public CompletableFuture<SetQueueAttributesResponse> setQueueAttributes(SetQueueAttributesRequest request) {
+        return this.delegate.setQueueAttributes(request);
+    }
+
+    @Override
+    public CompletableFuture<TagQueueResponse> tagQueue(TagQueueRequest request) {
+        return this.delegate.tagQueue(request);
+    }
+
+    @Override
+    public CompletableFuture<UntagQueueResponse> untagQueue(UntagQueueRequest request) {
+        return this.delegate.untagQueue(request);
+    }
+}
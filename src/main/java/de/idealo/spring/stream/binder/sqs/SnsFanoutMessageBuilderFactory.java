@@ -1,49 +1,268 @@
 package de.idealo.spring.stream.binder.sqs;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
 import org.springframework.integration.support.DefaultMessageBuilderFactory;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.util.Assert;
+import org.springframework.util.PatternMatchUtils;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
+/**
+ * Unwraps the {@code Message} of an SNS notification envelope. The envelope is read with a streaming
+ * {@link JsonParser} which stops as soon as the required fields have been found; all other fields
+ * (e.g. {@code Signature} or {@code SigningCertURL}) are skipped without being materialized.
+ * <p>
+ * In the same pass the {@code MessageId}, {@code TopicArn}, {@code Timestamp} and {@code MessageAttributes} of the
+ * envelope are mapped to message headers, limited to the header names matching the configured patterns. Headers of
+ * the SQS message take precedence over headers mapped from the envelope. Without patterns no headers are mapped and
+ * the rest of the envelope is not read once the type and the message have been found.
+ * <p>
+ * By default messages which are not SNS notifications are rejected. With {@link #setAutoDetect(boolean)} they are
+ * passed through unchanged instead, so that one queue can receive both raw and enveloped messages.
+ */
 public class SnsFanoutMessageBuilderFactory extends DefaultMessageBuilderFactory {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int MAX_PAYLOAD_PREVIEW_LENGTH = 256;
+
+    private static final String TYPE_FIELD = "\"Type\"";
+
+    private static final byte[] TYPE_FIELD_BYTES = TYPE_FIELD.getBytes(StandardCharsets.US_ASCII);
+
+    private final String[] headerPatterns;
+
+    private boolean autoDetect;
+
+    public SnsFanoutMessageBuilderFactory() {
+        this(new String[0]);
+    }
+
+    /**
+     * @param headerPatterns simple patterns of the header names to map from the envelope; a pattern starting with
+     *                       {@code !} excludes matching names. The first matching pattern wins.
+     */
+    public SnsFanoutMessageBuilderFactory(String[] headerPatterns) {
+        Assert.notNull(headerPatterns, "'headerPatterns' must not be null");
+        this.headerPatterns = headerPatterns.clone();
+    }
+
+    /**
+     * Whether messages which are not SNS notifications should be passed through unchanged instead of being rejected.
+     * With auto-detection enabled a cheap check on the raw payload decides whether it is parsed at all.
+     */
+    public void setAutoDetect(boolean autoDetect) {
+        this.autoDetect = autoDetect;
+    }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T> MessageBuilder<T> fromMessage(Message<T> message) {
-        JsonNode jsonNode;
-        try {
-            jsonNode = this.objectMapper.readTree((String) message.getPayload());
-        } catch (JsonProcessingException e) {
-            throw new MessagingException(message, e);
+        if (this.autoDetect && !isEnvelopeCandidate(message.getPayload())) {
+            return super.fromMessage(message);
         }
 
-        if (!jsonNode.has("Type")) {
-            throw new MessageConversionException("Payload: '" + message.getPayload()
-                    + "' does not contain a Type attribute", null);
+        String type = null;
+        String messagePayload = null;
+        boolean mapHeaders = this.headerPatterns.length > 0;
+        Map<String, Object> headers = mapHeaders ? new HashMap<>() : Map.of();
+
+        try (JsonParser parser = createParser(message.getPayload())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return reject(message, "Payload: '" + preview(message.getPayload()) + "' is not a JSON object");
+            }
+            while ((mapHeaders || type == null || messagePayload == null) && parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (fieldName) {
+                    case "Type" -> type = value.isScalarValue() ? parser.getValueAsString() : skip(parser);
+                    case "Message" -> messagePayload = value.isScalarValue() ? parser.getValueAsString() : skip(parser);
+                    case "MessageId" -> mapEnvelopeField(parser, SqsHeaders.SNS_MESSAGE_ID, headers, mapHeaders);
+                    case "TopicArn" -> mapEnvelopeField(parser, SqsHeaders.SNS_TOPIC_ARN, headers, mapHeaders);
+                    case "Timestamp" -> mapEnvelopeField(parser, SqsHeaders.SNS_TIMESTAMP, headers, mapHeaders);
+                    case "MessageAttributes" -> mapMessageAttributes(parser, headers, mapHeaders);
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            if (this.autoDetect) {
+                return super.fromMessage(message);
+            }
+            throw new MessagingException(message, "Payload: '" + preview(message.getPayload()) + "' is not valid JSON", e);
         }
 
-        if (!"Notification".equals(jsonNode.get("Type").asText())) {
-            throw new MessageConversionException(
-                    "Payload: '" + message.getPayload() + "' is not a valid notification",
-                    null);
+        if (type == null) {
+            return reject(message, "Payload: '" + preview(message.getPayload()) + "' does not contain a Type attribute");
         }
 
-        if (!jsonNode.has("Message")) {
-            throw new MessageConversionException(
-                    "Payload: '" + message.getPayload() + "' does not contain a message",
-                    null);
+        if (!"Notification".equals(type)) {
+            return reject(message, "Payload: '" + preview(message.getPayload()) + "' is not a valid notification");
         }
 
-        String messagePayload = jsonNode.get("Message").asText();
+        if (messagePayload == null) {
+            return reject(message, "Payload: '" + preview(message.getPayload()) + "' does not contain a message");
+        }
 
         return (MessageBuilder<T>) MessageBuilder.withPayload(messagePayload)
-                .copyHeaders(message.getHeaders());
+                .copyHeaders(message.getHeaders())
+                .copyHeadersIfAbsent(headers);
+    }
+
+    private <T> MessageBuilder<T> reject(Message<T> message, String reason) {
+        if (this.autoDetect) {
+            return super.fromMessage(message);
+        }
+        throw new MessageConversionException(reason, null);
+    }
+
+    /**
+     * Checks without parsing whether the payload may be an SNS envelope: it has to start with a JSON object
+     * and contain a {@code "Type"} field.
+     */
+    static boolean isEnvelopeCandidate(Object payload) {
+        if (payload instanceof String text) {
+            int start = 0;
+            while (start < text.length() && Character.isWhitespace(text.charAt(start))) {
+                start++;
+            }
+            return start < text.length() && text.charAt(start) == '{' && text.indexOf(TYPE_FIELD, start) > 0;
+        }
+        if (payload instanceof byte[] bytes) {
+            int start = 0;
+            while (start < bytes.length && isWhitespace(bytes[start])) {
+                start++;
+            }
+            return start < bytes.length && bytes[start] == '{' && indexOf(bytes, TYPE_FIELD_BYTES, start) > 0;
+        }
+        return false;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern, int fromIndex) {
+        outer:
+        for (int i = fromIndex; i <= bytes.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (bytes[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private void mapEnvelopeField(JsonParser parser, String headerName, Map<String, Object> headers, boolean mapHeaders) throws IOException {
+        if (mapHeaders && parser.currentToken().isScalarValue() && matches(headerName)) {
+            headers.put(headerName, parser.getValueAsString());
+        } else {
+            parser.skipChildren();
+        }
+    }
+
+    /**
+     * Maps the SNS message attributes, which have the form {@code {"name": {"Type": "String", "Value": "value"}}}.
+     * String and String.Array values are mapped as they are, numbers to {@link Long} or {@link Double} and
+     * binary values to {@code byte[]}.
+     */
+    private void mapMessageAttributes(JsonParser parser, Map<String, Object> headers, boolean mapHeaders) throws IOException {
+        if (!mapHeaders || parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String attributeName = parser.currentName();
+            if (parser.nextToken() != JsonToken.START_OBJECT || !matches(attributeName)) {
+                parser.skipChildren();
+                continue;
+            }
+            String attributeType = null;
+            String attributeValue = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("Type".equals(fieldName) && value.isScalarValue()) {
+                    attributeType = parser.getValueAsString();
+                } else if ("Value".equals(fieldName) && value.isScalarValue()) {
+                    attributeValue = parser.getValueAsString();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (attributeValue != null) {
+                headers.put(attributeName, convertAttributeValue(attributeType, attributeValue));
+            }
+        }
+    }
+
+    private static Object convertAttributeValue(String attributeType, String attributeValue) {
+        if (attributeType == null) {
+            return attributeValue;
+        }
+        try {
+            if (attributeType.startsWith("Number")) {
+                if (attributeValue.contains(".") || attributeValue.contains("e") || attributeValue.contains("E")) {
+                    return Double.valueOf(attributeValue);
+                }
+                return Long.valueOf(attributeValue);
+            }
+            if (attributeType.startsWith("Binary")) {
+                return Base64.getDecoder().decode(attributeValue);
+            }
+        } catch (IllegalArgumentException e) {
+            // keep the raw value if it does not match its declared type
+        }
+        return attributeValue;
+    }
+
+    private boolean matches(String headerName) {
+        for (String pattern : this.headerPatterns) {
+            if (pattern.startsWith("!")) {
+                if (PatternMatchUtils.simpleMatch(pattern.substring(1), headerName)) {
+                    return false;
+                }
+            } else if (PatternMatchUtils.simpleMatch(pattern, headerName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static JsonParser createParser(Object payload) throws IOException {
+        if (payload instanceof String text) {
+            return JSON_FACTORY.createParser(text);
+        }
+        if (payload instanceof byte[] bytes) {
+            return JSON_FACTORY.createParser(bytes);
+        }
+        throw new MessageConversionException("Unsupported payload type: " + payload.getClass().getName());
+    }
+
+    private static String skip(JsonParser parser) throws IOException {
+        parser.skipChildren();
+        return "";
+    }
+
+    static String preview(Object payload) {
+        if (payload instanceof byte[] bytes) {
+            return bytes.length <= MAX_PAYLOAD_PREVIEW_LENGTH
+                    ? new String(bytes, StandardCharsets.UTF_8)
+                    : new String(bytes, 0, MAX_PAYLOAD_PREVIEW_LENGTH, StandardCharsets.UTF_8) + "...";
+        }
+        String text = String.valueOf(payload);
+        return text.length() <= MAX_PAYLOAD_PREVIEW_LENGTH ? text : text.substring(0, MAX_PAYLOAD_PREVIEW_LENGTH) + "...";
     }
 }
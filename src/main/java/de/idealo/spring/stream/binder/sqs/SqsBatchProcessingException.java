@@ -0,0 +1,31 @@
+package de.idealo.spring.stream.binder.sqs;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Thrown by a batch consumer to report that only some messages of a batch failed. The messages at the
+ * {@linkplain #getFailedIndices() failed indices} are redelivered, all other messages of the batch are acknowledged.
+ */
+public class SqsBatchProcessingException extends RuntimeException {
+
+    private final Set<Integer> failedIndices;
+
+    public SqsBatchProcessingException(String message, Collection<Integer> failedIndices) {
+        this(message, failedIndices, null);
+    }
+
+    public SqsBatchProcessingException(String message, Collection<Integer> failedIndices, Throwable cause) {
+        super(message, cause);
+        this.failedIndices = Collections.unmodifiableSet(new TreeSet<>(failedIndices));
+    }
+
+    /**
+     * @return the indices of the failed messages within the batch payload
+     */
+    public Set<Integer> getFailedIndices() {
+        return failedIndices;
+    }
+}
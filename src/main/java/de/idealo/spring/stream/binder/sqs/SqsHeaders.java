@@ -10,6 +10,40 @@ public final class SqsHeaders {
 
     public static final String DEDUPLICATION_ID = PREFIX + "deduplicationId";
 
+    /**
+     * The headers of each message of a batch, as a {@code List<Map<String, Object>>} parallel to the list payload.
+     */
+    public static final String BATCH_HEADERS = PREFIX + "batchHeaders";
+
+    /**
+     * Marks a message whose body has been replaced by a reference into a
+     * {@link de.idealo.spring.stream.binder.sqs.payload.PayloadStore}, holding the size of the original body in bytes.
+     */
+    public static final String CLAIM_CHECK = PREFIX + "claimCheck";
+
+    /**
+     * Marks a message whose body is compressed, holding the content encoding of a
+     * {@link de.idealo.spring.stream.binder.sqs.payload.PayloadCompression}.
+     */
+    public static final String CONTENT_ENCODING = PREFIX + "contentEncoding";
+
+    public static final String SNS_PREFIX = "sns_";
+
+    /**
+     * The {@code MessageId} of the SNS notification a message was unwrapped from.
+     */
+    public static final String SNS_MESSAGE_ID = SNS_PREFIX + "messageId";
+
+    /**
+     * The {@code TopicArn} of the SNS notification a message was unwrapped from.
+     */
+    public static final String SNS_TOPIC_ARN = SNS_PREFIX + "topicArn";
+
+    /**
+     * The {@code Timestamp} of the SNS notification a message was unwrapped from, in ISO-8601 format.
+     */
+    public static final String SNS_TIMESTAMP = SNS_PREFIX + "timestamp";
+
     private SqsHeaders() {}
 
 }
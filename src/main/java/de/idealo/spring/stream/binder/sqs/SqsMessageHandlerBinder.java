@@ -3,37 +3,76 @@ package de.idealo.spring.stream.binder.sqs;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import org.springframework.cloud.stream.binder.AbstractMessageChannelBinder;
 import org.springframework.cloud.stream.binder.BinderSpecificPropertiesProvider;
 import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
 import org.springframework.cloud.stream.binder.ExtendedProducerProperties;
 import org.springframework.cloud.stream.binder.ExtendedPropertiesBinder;
+import org.springframework.cloud.stream.binder.PartitionKeyExtractorStrategy;
 import org.springframework.cloud.stream.provisioning.ConsumerDestination;
 import org.springframework.cloud.stream.provisioning.ProducerDestination;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.integration.aws.outbound.SqsMessageHandler;
 import org.springframework.integration.channel.AbstractMessageChannel;
 import org.springframework.integration.core.MessageProducer;
+import org.springframework.integration.expression.FunctionExpression;
+import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
+import org.springframework.util.StringUtils;
 
+import io.awspring.cloud.sqs.listener.ListenerMode;
 import io.awspring.cloud.sqs.listener.QueueNotFoundStrategy;
 import io.awspring.cloud.sqs.listener.SqsContainerOptions;
+import io.awspring.cloud.sqs.listener.SqsContainerOptionsBuilder;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 
 import de.idealo.spring.stream.binder.sqs.inbound.SqsInboundChannelAdapter;
+import de.idealo.spring.stream.binder.sqs.metrics.SqsMetricsFactory;
+import de.idealo.spring.stream.binder.sqs.outbound.AbstractSqsMessageHandler;
+import de.idealo.spring.stream.binder.sqs.outbound.SqsAsyncMessageHandler;
+import de.idealo.spring.stream.binder.sqs.outbound.SqsBatchingMessageHandler;
+import de.idealo.spring.stream.binder.sqs.outbound.SqsBodyEncodingMessageHandler;
+import de.idealo.spring.stream.binder.sqs.outbound.SqsHeaderExpressions;
+import de.idealo.spring.stream.binder.sqs.outbound.SqsPartitionedMessageHandler;
+import de.idealo.spring.stream.binder.sqs.payload.PayloadStore;
 import de.idealo.spring.stream.binder.sqs.properties.SqsConsumerProperties;
 import de.idealo.spring.stream.binder.sqs.properties.SqsExtendedBindingProperties;
 import de.idealo.spring.stream.binder.sqs.properties.SqsProducerProperties;
+import de.idealo.spring.stream.binder.sqs.provisioning.SqsDestination;
+import de.idealo.spring.stream.binder.sqs.provisioning.SqsQueueMetadata;
+import de.idealo.spring.stream.binder.sqs.provisioning.SqsQueueMetadataCache;
 import de.idealo.spring.stream.binder.sqs.provisioning.SqsStreamProvisioner;
 
 public class SqsMessageHandlerBinder
         extends AbstractMessageChannelBinder<ExtendedConsumerProperties<SqsConsumerProperties>, ExtendedProducerProperties<SqsProducerProperties>, SqsStreamProvisioner>
         implements ExtendedPropertiesBinder<MessageChannel, SqsConsumerProperties, SqsProducerProperties> {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqsMessageHandlerBinder.class);
+
+    private static final long RESOLVE_TIMEOUT_SECONDS = 10;
+
+    private static final ExpressionParser EXPRESSION_PARSER = new SpelExpressionParser();
+
     private final SqsAsyncClient sqsAsyncClient;
     private final SqsExtendedBindingProperties extendedBindingProperties;
     private final List<SqsInboundChannelAdapter> adapters = new ArrayList<>();
+    private SqsMetricsFactory metricsFactory = SqsMetricsFactory.NOOP;
 
     public SqsMessageHandlerBinder(SqsAsyncClient amazonSQS, SqsStreamProvisioner provisioningProvider, SqsExtendedBindingProperties extendedBindingProperties) {
         super(new String[0], provisioningProvider);
@@ -41,43 +80,252 @@ public class SqsMessageHandlerBinder
         this.extendedBindingProperties = extendedBindingProperties;
     }
 
+    public void setMetricsFactory(SqsMetricsFactory metricsFactory) {
+        this.metricsFactory = metricsFactory;
+    }
+
     public SqsAsyncClient getSqsAsyncClient() {
         return sqsAsyncClient;
     }
 
+    /**
+     * @return the cache of the queue metadata resolved during provisioning, or {@code null} if queues are not resolved
+     */
+    public SqsQueueMetadataCache getQueueMetadataCache() {
+        return this.provisioningProvider.getMetadataCache();
+    }
+
     public List<SqsInboundChannelAdapter> getAdapters() {
         return new ArrayList<>(adapters);
     }
 
     @Override
     protected MessageHandler createProducerMessageHandler(ProducerDestination destination, ExtendedProducerProperties<SqsProducerProperties> producerProperties, MessageChannel errorChannel) throws Exception {
-        SqsMessageHandler sqsMessageHandler = new SqsMessageHandler(sqsAsyncClient);
-        sqsMessageHandler.setQueue(destination.getName());
+        SqsAsyncClient sqsAsyncClient = this.metricsFactory.producerMetrics(bindingName(producerProperties.getBindingName(), destination.getName()), destination.getName())
+                .instrument(this.sqsAsyncClient);
+        // a partition key alone, e.g. to derive the group id from it, does not spread the destination over queues
+        if (producerProperties.isPartitioned() && producerProperties.getPartitionCount() > 1) {
+            List<MessageHandler> partitionHandlers = new ArrayList<>(producerProperties.getPartitionCount());
+            for (int partition = 0; partition < producerProperties.getPartitionCount(); partition++) {
+                partitionHandlers.add(createQueueMessageHandler(sqsAsyncClient, destination, destination.getNameForPartition(partition), producerProperties, errorChannel));
+            }
+            SqsPartitionedMessageHandler partitionedMessageHandler = new SqsPartitionedMessageHandler(partitionHandlers);
+            partitionedMessageHandler.setBeanFactory(getBeanFactory());
+            return partitionedMessageHandler;
+        }
+        return createQueueMessageHandler(sqsAsyncClient, destination, destination.getName(), producerProperties, errorChannel);
+    }
+
+    private MessageHandler createQueueMessageHandler(SqsAsyncClient sqsAsyncClient, ProducerDestination destination, String queue,
+                                                     ExtendedProducerProperties<SqsProducerProperties> producerProperties, MessageChannel errorChannel) {
+        if (producerProperties.getExtension().isBatchingEnabled()) {
+            return createBatchingMessageHandler(sqsAsyncClient, queue, producerProperties, errorChannel);
+        }
+        if (producerProperties.getExtension().isAsync()) {
+            return createAsyncMessageHandler(sqsAsyncClient, queue, producerProperties, errorChannel);
+        }
+
+        SqsMessageHandler sqsMessageHandler = createSqsMessageHandler(sqsAsyncClient, producerProperties.getExtension());
+        // the handler resolves names itself on every send, so it is given the url resolved during provisioning
+        sqsMessageHandler.setQueue(awaitQueueUrl(destination, queue));
         sqsMessageHandler.setBeanFactory(getBeanFactory());
 
-        sqsMessageHandler.setDelayExpressionString(String.format("headers.get('%s')", SqsHeaders.DELAY));
-        sqsMessageHandler.setMessageGroupIdExpressionString(String.format("headers.get('%s')", SqsHeaders.GROUP_ID));
-        sqsMessageHandler.setMessageDeduplicationIdExpressionString(String.format("headers.get('%s')", SqsHeaders.DEDUPLICATION_ID));
+        sqsMessageHandler.setDelayExpression(delayExpression(producerProperties.getExtension()));
+        sqsMessageHandler.setMessageGroupIdExpression(messageGroupIdExpression(producerProperties));
+        sqsMessageHandler.setMessageDeduplicationIdExpression(messageDeduplicationIdExpression(producerProperties.getExtension()));
 
         return sqsMessageHandler;
     }
 
+    /**
+     * @return the url of the queue, waiting for its resolution for a bounded time, or the queue itself if it cannot be resolved
+     */
+    private String awaitQueueUrl(ProducerDestination destination, String queue) {
+        CompletableFuture<SqsQueueMetadata> metadata = destination instanceof SqsDestination sqsDestination ? sqsDestination.getMetadata(queue) : null;
+        if (metadata == null && getQueueMetadataCache() != null) {
+            metadata = getQueueMetadataCache().resolve(queue);
+        }
+        if (metadata == null) {
+            return queue;
+        }
+        try {
+            return metadata.get(RESOLVE_TIMEOUT_SECONDS, TimeUnit.SECONDS).queueUrl();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.warn("Failed to resolve the url of queue '{}', it is resolved on every send instead", queue, e);
+        }
+        return queue;
+    }
+
+    private SqsMessageHandler createSqsMessageHandler(SqsAsyncClient sqsAsyncClient, SqsProducerProperties producerProperties) {
+        if (producerProperties.getCompression() == null && !StringUtils.hasText(producerProperties.getPayloadStore())) {
+            return new SqsMessageHandler(sqsAsyncClient);
+        }
+        SqsBodyEncodingMessageHandler bodyEncodingMessageHandler = new SqsBodyEncodingMessageHandler(sqsAsyncClient);
+        if (producerProperties.getCompression() != null) {
+            bodyEncodingMessageHandler.setCompression(producerProperties.getCompression(), producerProperties.getCompressionThreshold());
+        }
+        if (StringUtils.hasText(producerProperties.getPayloadStore())) {
+            bodyEncodingMessageHandler.setPayloadStore(payloadStore(producerProperties.getPayloadStore()), producerProperties.getPayloadOffloadThreshold());
+        }
+        return bodyEncodingMessageHandler;
+    }
+
+    private MessageHandler createBatchingMessageHandler(SqsAsyncClient sqsAsyncClient, String queue,
+                                                        ExtendedProducerProperties<SqsProducerProperties> properties, MessageChannel errorChannel) {
+        SqsProducerProperties producerProperties = properties.getExtension();
+        SqsBatchingMessageHandler batchingMessageHandler = new SqsBatchingMessageHandler(sqsAsyncClient, queue);
+        batchingMessageHandler.setBatchSize(producerProperties.getBatchSize());
+        batchingMessageHandler.setBatchMaxBytes(producerProperties.getBatchMaxBytes());
+        batchingMessageHandler.setLingerTime(Duration.ofMillis(producerProperties.getBatchLingerTime()));
+        batchingMessageHandler.setMaxRetries(producerProperties.getBatchMaxRetries());
+        batchingMessageHandler.setMaxInFlight(producerProperties.getMaxInFlight());
+        configureMessageHandler(batchingMessageHandler, properties, errorChannel);
+
+        return batchingMessageHandler;
+    }
+
+    private MessageHandler createAsyncMessageHandler(SqsAsyncClient sqsAsyncClient, String queue,
+                                                     ExtendedProducerProperties<SqsProducerProperties> properties, MessageChannel errorChannel) {
+        SqsProducerProperties producerProperties = properties.getExtension();
+        SqsAsyncMessageHandler asyncMessageHandler = new SqsAsyncMessageHandler(sqsAsyncClient, queue);
+        asyncMessageHandler.setMaxInFlight(producerProperties.getMaxInFlight());
+        asyncMessageHandler.setMaxInFlightBytes(producerProperties.getMaxInFlightBytes());
+        configureMessageHandler(asyncMessageHandler, properties, errorChannel);
+
+        return asyncMessageHandler;
+    }
+
+    private void configureMessageHandler(AbstractSqsMessageHandler messageHandler,
+                                         ExtendedProducerProperties<SqsProducerProperties> properties, MessageChannel errorChannel) {
+        SqsProducerProperties producerProperties = properties.getExtension();
+        messageHandler.setBeanFactory(getBeanFactory());
+        messageHandler.setQueueMetadataCache(getQueueMetadataCache());
+        messageHandler.setSendFailureChannel(errorChannel);
+        messageHandler.setResultChannelName(producerProperties.getResultChannel());
+        if (producerProperties.getCompression() != null) {
+            messageHandler.setCompression(producerProperties.getCompression(), producerProperties.getCompressionThreshold());
+        }
+        if (StringUtils.hasText(producerProperties.getPayloadStore())) {
+            messageHandler.setPayloadStore(payloadStore(producerProperties.getPayloadStore()), producerProperties.getPayloadOffloadThreshold());
+        }
+
+        messageHandler.setDelayExpression(delayExpression(producerProperties));
+        messageHandler.setMessageGroupIdExpression(messageGroupIdExpression(properties));
+        messageHandler.setMessageDeduplicationIdExpression(messageDeduplicationIdExpression(producerProperties));
+    }
+
+    private Expression delayExpression(SqsProducerProperties producerProperties) {
+        return headerExpression(SqsHeaders.DELAY, producerProperties.getDelayExpression());
+    }
+
+    private Expression messageGroupIdExpression(ExtendedProducerProperties<SqsProducerProperties> properties) {
+        SqsProducerProperties producerProperties = properties.getExtension();
+        if (!StringUtils.hasText(producerProperties.getGroupIdExpression()) && producerProperties.isGroupIdFromPartitionKey()) {
+            return SqsHeaderExpressions.headerOrElse(SqsHeaders.GROUP_ID, partitionKeyExpression(properties));
+        }
+        return headerExpression(SqsHeaders.GROUP_ID, producerProperties.getGroupIdExpression());
+    }
+
+    private Expression messageDeduplicationIdExpression(SqsProducerProperties producerProperties) {
+        if (!StringUtils.hasText(producerProperties.getDeduplicationIdExpression()) && producerProperties.isDeduplicationIdFromContent()) {
+            return SqsHeaderExpressions.headerOrElse(SqsHeaders.DEDUPLICATION_ID, SqsHeaderExpressions.contentHash(producerProperties.getDeduplicationHeaders()));
+        }
+        return headerExpression(SqsHeaders.DEDUPLICATION_ID, producerProperties.getDeduplicationIdExpression());
+    }
+
+    /**
+     * @return an expression evaluating the partition key of the binding to a string, as SQS requires for group ids
+     */
+    private Expression partitionKeyExpression(ExtendedProducerProperties<SqsProducerProperties> properties) {
+        if (properties.getPartitionKeyExpression() != null) {
+            Expression partitionKeyExpression = properties.getPartitionKeyExpression();
+            EvaluationContext evaluationContext = getEvaluationContext();
+            return new FunctionExpression<Message<?>>(message -> Objects.toString(partitionKeyExpression.getValue(evaluationContext, message), null));
+        }
+        if (StringUtils.hasText(properties.getPartitionKeyExtractorName())) {
+            PartitionKeyExtractorStrategy extractor = getBeanFactory().getBean(properties.getPartitionKeyExtractorName(), PartitionKeyExtractorStrategy.class);
+            return new FunctionExpression<Message<?>>(message -> Objects.toString(extractor.extractKey(message), null));
+        }
+        throw new IllegalArgumentException("'groupIdFromPartitionKey' requires a 'partitionKeyExpression' or a 'partitionKeyExtractorName'");
+    }
+
+    private Expression headerExpression(String headerName, String fallbackExpression) {
+        if (!StringUtils.hasText(fallbackExpression)) {
+            return SqsHeaderExpressions.header(headerName);
+        }
+        return SqsHeaderExpressions.headerOrElse(headerName, EXPRESSION_PARSER.parseExpression(fallbackExpression), getEvaluationContext());
+    }
+
     @Override
     protected MessageProducer createConsumerEndpoint(ConsumerDestination destination, String group, ExtendedConsumerProperties<SqsConsumerProperties> properties) throws Exception {
-        final SqsContainerOptions sqsContainerOptions =
+        final SqsContainerOptionsBuilder sqsContainerOptionsBuilder =
                 SqsContainerOptions.builder()
                         .maxMessagesPerPoll(properties.getExtension().getMaxMessagesPerPoll())
-                        .messageVisibility(Duration.ofSeconds(properties.getExtension().getVisibilityTimeout()))
                         .pollTimeout(Duration.ofSeconds(properties.getExtension().getPollTimeout()))
                         .listenerShutdownTimeout(Duration.ofSeconds(properties.getExtension().getListenerShutdownTimeout()))
                         .queueNotFoundStrategy(QueueNotFoundStrategy.FAIL)
-                        .build();
-        SqsInboundChannelAdapter adapter = new SqsInboundChannelAdapter(sqsAsyncClient, destination.getName());
+                        .listenerMode(properties.isBatchMode() ? ListenerMode.BATCH : ListenerMode.SINGLE_MESSAGE);
+        if (properties.getExtension().getVisibilityTimeout() != null && !properties.getExtension().isUseQueueVisibilityTimeout()) {
+            sqsContainerOptionsBuilder.messageVisibility(Duration.ofSeconds(properties.getExtension().getVisibilityTimeout()));
+        }
+        configureConcurrency(sqsContainerOptionsBuilder, properties);
+        configureAcknowledgement(sqsContainerOptionsBuilder, properties.getExtension());
+        final SqsContainerOptions sqsContainerOptions = sqsContainerOptionsBuilder.build();
+        String[] queues = destination instanceof SqsDestination sqsDestination
+                ? sqsDestination.getQueues().toArray(String[]::new)
+                : new String[] { destination.getName() };
+        SqsInboundChannelAdapter adapter = new SqsInboundChannelAdapter(sqsAsyncClient, queues);
         adapter.setSqsContainerOptions(sqsContainerOptions);
-        adapter.setConcurrency(properties.getConcurrency());
+        if (getQueueMetadataCache() != null) {
+            adapter.setQueueMetadataCache(getQueueMetadataCache());
+        }
+        adapter.setMetrics(this.metricsFactory.consumerMetrics(bindingName(properties.getBindingName(), destination.getName()), destination.getName()));
+        if (properties.getExtension().isAdaptiveConcurrency()) {
+            adapter.setAdaptiveConcurrency(properties.getExtension().getAdaptiveMinConcurrency(), properties.getExtension().getAdaptiveMaxConcurrency());
+            adapter.setAdaptiveSampleInterval(Duration.ofMillis(properties.getExtension().getAdaptiveSampleInterval()));
+        } else if (properties.getExtension().isLegacyConcurrency()) {
+            adapter.setConcurrency(properties.getConcurrency());
+        }
+        if (properties.isBatchMode()) {
+            adapter.setWindowSize(properties.getExtension().getBatchWindowSize());
+            adapter.setWindowMaxBytes(properties.getExtension().getBatchWindowMaxBytes());
+            adapter.setWindowTimeout(Duration.ofMillis(properties.getExtension().getBatchWindowTimeout()));
+        }
+        if (properties.getExtension().isVisibilityExtension()) {
+            adapter.setMaxVisibilityExtension(Duration.ofSeconds(properties.getExtension().getMaxVisibilityExtension()));
+        }
+        if (properties.getExtension().isFailureBackoff()) {
+            adapter.setFailureBackoff(Duration.ofSeconds(properties.getExtension().getBackoffInitialInterval()), Duration.ofSeconds(properties.getExtension().getBackoffMaxInterval()));
+            adapter.setBackoffMultiplier(properties.getExtension().getBackoffMultiplier());
+            adapter.setBackoffJitter(properties.getExtension().getBackoffJitter());
+        }
+        if (StringUtils.hasText(properties.getExtension().getDeadLetterQueue())) {
+            adapter.setDeadLetterQueue(properties.getExtension().getDeadLetterQueue(), properties.getExtension().getMaxReceiveCount());
+        }
+        if (properties.getExtension().getMessageGroupConcurrency() != null) {
+            if (properties.isBatchMode()) {
+                throw new IllegalArgumentException("'messageGroupConcurrency' is not supported in batch mode");
+            }
+            adapter.setMessageGroupConcurrency(properties.getExtension().getMessageGroupConcurrency());
+        }
+        if (StringUtils.hasText(properties.getExtension().getPayloadStore())) {
+            adapter.setPayloadStore(payloadStore(properties.getExtension().getPayloadStore()));
+            if (properties.getExtension().getMaxRetrievedPayloadSize() != null) {
+                adapter.setMaxRetrievedPayloadSize(properties.getExtension().getMaxRetrievedPayloadSize());
+            }
+        }
+        if (StringUtils.hasText(properties.getExtension().getTaskExecutor())) {
+            adapter.setListenerExecutor(getBeanFactory().getBean(properties.getExtension().getTaskExecutor(), TaskExecutor.class));
+        } else if (properties.getExtension().isVirtualThreads()) {
+            adapter.setOwnedListenerExecutor(createVirtualThreadExecutor());
+        }
 
         if (properties.getExtension().isSnsFanout()) {
-            adapter.setMessageBuilderFactory(new SnsFanoutMessageBuilderFactory());
+            SnsFanoutMessageBuilderFactory messageBuilderFactory = new SnsFanoutMessageBuilderFactory(properties.getExtension().getSnsHeaderPatterns());
+            messageBuilderFactory.setAutoDetect(properties.getExtension().getSnsFanoutMode() == SqsConsumerProperties.SnsFanoutMode.AUTO);
+            adapter.setMessageBuilderFactory(messageBuilderFactory);
         }
 
         this.adapters.add(adapter);
@@ -85,6 +333,69 @@ public class SqsMessageHandlerBinder
         return adapter;
     }
 
+    private static String bindingName(String bindingName, String destination) {
+        return bindingName != null ? bindingName : destination;
+    }
+
+    private PayloadStore payloadStore(String beanName) {
+        return getBeanFactory().getBean(beanName, PayloadStore.class);
+    }
+
+    /**
+     * Looked up reflectively, since the binder itself is compiled for Java 17.
+     */
+    static ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later, but running on Java " + Runtime.version().feature(), e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Maps the binding's concurrency onto the number of messages processed concurrently by a single listener
+     * container, unless the legacy behaviour of one container per concurrency level is requested.
+     */
+    private void configureConcurrency(SqsContainerOptionsBuilder sqsContainerOptionsBuilder, ExtendedConsumerProperties<SqsConsumerProperties> properties) {
+        SqsConsumerProperties consumerProperties = properties.getExtension();
+        if (consumerProperties.isAdaptiveConcurrency()) {
+            // polls are sized by the back pressure of the adapter's limiter, the container only has to allow its upper bound
+            sqsContainerOptionsBuilder.maxConcurrentMessages(Math.max(consumerProperties.getAdaptiveMaxConcurrency(), consumerProperties.getMaxMessagesPerPoll()));
+        } else if (consumerProperties.getMaxConcurrentMessages() != null) {
+            if (consumerProperties.getMaxConcurrentMessages() < consumerProperties.getMaxMessagesPerPoll()) {
+                throw new IllegalArgumentException("'maxConcurrentMessages' (" + consumerProperties.getMaxConcurrentMessages()
+                        + ") must not be less than 'maxMessagesPerPoll' (" + consumerProperties.getMaxMessagesPerPoll() + ")");
+            }
+            sqsContainerOptionsBuilder.maxConcurrentMessages(consumerProperties.getMaxConcurrentMessages());
+        } else if (!consumerProperties.isLegacyConcurrency()) {
+            sqsContainerOptionsBuilder.maxConcurrentMessages(Math.max(1, properties.getConcurrency()) * consumerProperties.getMaxMessagesPerPoll());
+        }
+        if (consumerProperties.getMaxDelayBetweenPolls() != null) {
+            sqsContainerOptionsBuilder.maxDelayBetweenPolls(Duration.ofSeconds(consumerProperties.getMaxDelayBetweenPolls()));
+        }
+        if (consumerProperties.getBackPressureMode() != null) {
+            sqsContainerOptionsBuilder.backPressureMode(consumerProperties.getBackPressureMode());
+        }
+    }
+
+    private void configureAcknowledgement(SqsContainerOptionsBuilder sqsContainerOptionsBuilder, SqsConsumerProperties consumerProperties) {
+        if (consumerProperties.isImmediateAcknowledgement()) {
+            sqsContainerOptionsBuilder.acknowledgementInterval(Duration.ZERO).acknowledgementThreshold(0);
+        } else {
+            if (consumerProperties.getAcknowledgementInterval() != null) {
+                sqsContainerOptionsBuilder.acknowledgementInterval(Duration.ofMillis(consumerProperties.getAcknowledgementInterval()));
+            }
+            if (consumerProperties.getAcknowledgementThreshold() != null) {
+                sqsContainerOptionsBuilder.acknowledgementThreshold(consumerProperties.getAcknowledgementThreshold());
+            }
+        }
+        if (consumerProperties.getAcknowledgementOrdering() != null) {
+            sqsContainerOptionsBuilder.acknowledgementOrdering(consumerProperties.getAcknowledgementOrdering());
+        }
+    }
+
     @Override
     public SqsConsumerProperties getExtendedConsumerProperties(String channelName) {
         return this.extendedBindingProperties.getExtendedConsumerProperties(channelName);
@@ -2,33 +2,72 @@ package de.idealo.spring.stream.binder.sqs.config;
 
 import org.springframework.boot.actuate.autoconfigure.health.ConditionalOnEnabledHealthIndicator;
 import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.stream.binder.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.integration.context.IntegrationContextUtils;
+import org.springframework.scheduling.TaskScheduler;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 
 import de.idealo.spring.stream.binder.sqs.SqsMessageHandlerBinder;
 import de.idealo.spring.stream.binder.sqs.health.SqsBinderHealthIndicator;
+import de.idealo.spring.stream.binder.sqs.metrics.MicrometerSqsMetricsFactory;
+import de.idealo.spring.stream.binder.sqs.metrics.SqsMetricsFactory;
+import de.idealo.spring.stream.binder.sqs.metrics.SqsQueueDepthSampler;
+import de.idealo.spring.stream.binder.sqs.properties.SqsBinderConfigurationProperties;
 import de.idealo.spring.stream.binder.sqs.properties.SqsExtendedBindingProperties;
 import de.idealo.spring.stream.binder.sqs.provisioning.SqsStreamProvisioner;
 
 @Configuration
 @ConditionalOnMissingBean(Binder.class)
-@EnableConfigurationProperties({ SqsExtendedBindingProperties.class })
+@EnableConfigurationProperties({ SqsExtendedBindingProperties.class, SqsBinderConfigurationProperties.class })
 public class SqsBinderConfiguration {
 
     @Bean
-    public SqsStreamProvisioner provisioningProvider() {
-        return new SqsStreamProvisioner();
+    public SqsStreamProvisioner provisioningProvider(SqsAsyncClient amazonSQS) {
+        return new SqsStreamProvisioner(amazonSQS);
     }
 
     @Bean
-    public SqsMessageHandlerBinder sqsMessageHandlerBinder(SqsAsyncClient amazonSQS, SqsStreamProvisioner sqsStreamProvisioner, SqsExtendedBindingProperties extendedBindingProperties) {
-        return new SqsMessageHandlerBinder(amazonSQS, sqsStreamProvisioner, extendedBindingProperties);
+    public SqsMessageHandlerBinder sqsMessageHandlerBinder(SqsAsyncClient amazonSQS, SqsStreamProvisioner sqsStreamProvisioner, SqsExtendedBindingProperties extendedBindingProperties,
+                                                           ObjectProvider<SqsMetricsFactory> metricsFactory) {
+        SqsMessageHandlerBinder binder = new SqsMessageHandlerBinder(amazonSQS, sqsStreamProvisioner, extendedBindingProperties);
+        metricsFactory.ifAvailable(binder::setMetricsFactory);
+        return binder;
+    }
+
+    @Configuration
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnBean(MeterRegistry.class)
+    protected static class SqsBinderMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public SqsMetricsFactory sqsMetricsFactory(MeterRegistry meterRegistry) {
+            return new MicrometerSqsMetricsFactory(meterRegistry);
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "spring.cloud.stream.sqs.binder", name = "queue-depth-enabled", matchIfMissing = true)
+        public SqsQueueDepthSampler sqsQueueDepthSampler(SqsMessageHandlerBinder sqsMessageHandlerBinder, MeterRegistry meterRegistry,
+                                                         @Qualifier(IntegrationContextUtils.TASK_SCHEDULER_BEAN_NAME) TaskScheduler taskScheduler,
+                                                         SqsBinderConfigurationProperties binderProperties) {
+            SqsQueueDepthSampler sampler = new SqsQueueDepthSampler(sqsMessageHandlerBinder, meterRegistry, taskScheduler);
+            sampler.setInterval(binderProperties.getQueueDepthInterval());
+            sampler.setJitter(binderProperties.getQueueDepthJitter());
+            return sampler;
+        }
+
     }
 
     @Configuration
@@ -38,8 +77,11 @@ public class SqsBinderConfiguration {
 
         @Bean
         @ConditionalOnMissingBean(name = "sqsBinderHealthIndicator")
-        public SqsBinderHealthIndicator sqsBinderHealthIndicator(SqsMessageHandlerBinder sqsMessageHandlerBinder) {
-            return new SqsBinderHealthIndicator(sqsMessageHandlerBinder);
+        public SqsBinderHealthIndicator sqsBinderHealthIndicator(SqsMessageHandlerBinder sqsMessageHandlerBinder, SqsBinderConfigurationProperties binderProperties) {
+            SqsBinderHealthIndicator healthIndicator = new SqsBinderHealthIndicator(sqsMessageHandlerBinder);
+            healthIndicator.setTimeout(binderProperties.getHealthCheckTimeout());
+            healthIndicator.setCacheTtl(binderProperties.getHealthCheckCacheTtl());
+            return healthIndicator;
         }
 
     }
@@ -2,7 +2,15 @@ package de.idealo.spring.stream.binder.sqs.health;
 
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.concurrent.ExecutionException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,10 +25,16 @@ import software.amazon.awssdk.services.sqs.model.QueueDoesNotExistException;
 
 import de.idealo.spring.stream.binder.sqs.SqsMessageHandlerBinder;
 import de.idealo.spring.stream.binder.sqs.inbound.SqsInboundChannelAdapter;
+import de.idealo.spring.stream.binder.sqs.provisioning.SqsQueueMetadataCache;
 
 /**
  * Code from
  * https://github.com/spring-cloud/spring-cloud-aws/pull/342
+ * <p>
+ * The reachability of all queues is checked concurrently, each check limited by {@code timeout}. Results are cached
+ * for {@code cacheTtl}: afterwards the cached result is still reported while a refresh runs in the background, so
+ * only the very first health check of a queue waits for SQS and the number of requests does not grow with the
+ * probe frequency.
  */
 public class SqsBinderHealthIndicator extends AbstractHealthIndicator {
 
@@ -28,11 +42,32 @@ public class SqsBinderHealthIndicator extends AbstractHealthIndicator {
 
     private final SqsMessageHandlerBinder sqsMessageHandlerBinder;
 
+    private final Map<String, Reachability> reachability = new ConcurrentHashMap<>();
+
+    private final Map<String, CompletableFuture<Boolean>> pendingChecks = new ConcurrentHashMap<>();
+
+    private Duration timeout = Duration.ofSeconds(5);
+
+    private Duration cacheTtl = Duration.ofSeconds(30);
+
     public SqsBinderHealthIndicator(SqsMessageHandlerBinder sqsMessageHandlerBinder) {
         Assert.notNull(sqsMessageHandlerBinder, "SqsMessageHandlerBinder must not be null");
         this.sqsMessageHandlerBinder = sqsMessageHandlerBinder;
     }
 
+    public void setTimeout(Duration timeout) {
+        Assert.isTrue(timeout != null && timeout.toMillis() > 0, "'timeout' must be positive");
+        this.timeout = timeout;
+    }
+
+    /**
+     * Set how long the reachability of a queue is cached. Zero disables caching.
+     */
+    public void setCacheTtl(Duration cacheTtl) {
+        Assert.isTrue(cacheTtl != null && !cacheTtl.isNegative(), "'cacheTtl' must not be negative");
+        this.cacheTtl = cacheTtl;
+    }
+
     @Override
     protected void doHealthCheck(Health.Builder builder) {
         boolean allListenersRunning = true;
@@ -42,6 +77,7 @@ public class SqsBinderHealthIndicator extends AbstractHealthIndicator {
             allListenersRunning = false;
         }
 
+        Map<String, CompletableFuture<Boolean>> reachableQueues = new LinkedHashMap<>();
         for (SqsInboundChannelAdapter adapter : this.sqsMessageHandlerBinder.getAdapters()) {
             for (String queueName : adapter.getQueues()) {
                 if (!adapter.isRunning(queueName)) {
@@ -49,10 +85,15 @@ public class SqsBinderHealthIndicator extends AbstractHealthIndicator {
                     allListenersRunning = false;
                 }
 
-                if (!isReachable(queueName)) {
-                    builder.down().withDetail(queueName, "queue is not reachable");
-                    allListenersRunning = false;
-                }
+                reachableQueues.putIfAbsent(queueName, isReachable(queueName));
+            }
+        }
+
+        for (Map.Entry<String, CompletableFuture<Boolean>> reachableQueue : reachableQueues.entrySet()) {
+            // never fails and completes within the timeout
+            if (!reachableQueue.getValue().join()) {
+                builder.down().withDetail(reachableQueue.getKey(), "queue is not reachable");
+                allListenersRunning = false;
             }
         }
 
@@ -61,31 +102,75 @@ public class SqsBinderHealthIndicator extends AbstractHealthIndicator {
         }
     }
 
-    private boolean isReachable(String queueName) {
+    private CompletableFuture<Boolean> isReachable(String queueName) {
+        Reachability cached = this.reachability.get(queueName);
+        if (cached == null || this.cacheTtl.isZero()) {
+            return check(queueName);
+        }
+        if (cached.checkedAt().plus(this.cacheTtl).isBefore(Instant.now())) {
+            check(queueName);
+        }
+        return CompletableFuture.completedFuture(cached.reachable());
+    }
+
+    private CompletableFuture<Boolean> check(String queueName) {
+        CompletableFuture<Boolean> check = new CompletableFuture<>();
+        CompletableFuture<Boolean> pendingCheck = this.pendingChecks.putIfAbsent(queueName, check);
+        if (pendingCheck != null) {
+            return pendingCheck;
+        }
+        requestReachability(queueName).whenComplete((reachable, throwable) -> {
+            this.reachability.put(queueName, new Reachability(reachable, Instant.now()));
+            this.pendingChecks.remove(queueName, check);
+            check.complete(reachable);
+        });
+        return check;
+    }
+
+    private CompletableFuture<Boolean> requestReachability(String queueName) {
+        SqsQueueMetadataCache metadataCache = this.sqsMessageHandlerBinder.getQueueMetadataCache();
+        CompletableFuture<?> request;
         try {
-            if (isValidQueueUrl(queueName)) {
-                this.sqsMessageHandlerBinder.getSqsAsyncClient()
+            if (metadataCache != null) {
+                // the url is only requested again if the queue has been invalidated
+                request = metadataCache.resolveQueueUrl(queueName)
+                        .thenCompose(queueUrl -> this.sqsMessageHandlerBinder.getSqsAsyncClient()
+                                .getQueueAttributes(
+                                        GetQueueAttributesRequest.builder().queueUrl(queueUrl).attributeNamesWithStrings("CreatedTimestamp").build()))
+                        .whenComplete((response, throwable) -> {
+                            if (throwable != null) {
+                                metadataCache.invalidateIfNotExists(queueName, throwable);
+                            }
+                        });
+            } else if (isValidQueueUrl(queueName)) {
+                request = this.sqsMessageHandlerBinder.getSqsAsyncClient()
                         .getQueueAttributes(
-                                GetQueueAttributesRequest.builder().queueUrl(queueName).attributeNamesWithStrings("CreatedTimestamp").build()).get();
+                                GetQueueAttributesRequest.builder().queueUrl(queueName).attributeNamesWithStrings("CreatedTimestamp").build());
             } else {
-                this.sqsMessageHandlerBinder.getSqsAsyncClient()
+                request = this.sqsMessageHandlerBinder.getSqsAsyncClient()
                         .getQueueUrl(
-                                GetQueueUrlRequest.builder().queueName(queueName).build()).get();
+                                GetQueueUrlRequest.builder().queueName(queueName).build());
             }
-            return true;
-        } catch (QueueDoesNotExistException e) {
+        } catch (RuntimeException e) {
+            request = CompletableFuture.failedFuture(e);
+        }
+        return request
+                .orTimeout(this.timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((response, throwable) -> throwable == null || isReachable(queueName, throwable));
+    }
+
+    private static boolean isReachable(String queueName, Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        if (cause instanceof QueueDoesNotExistException) {
             LOGGER.warn("Queue '{}' does not exist", queueName);
-            return false;
-        } catch (SdkClientException e) {
-            LOGGER.error("Queue '{}' is not reachable", queueName, e);
-            return false;
-        } catch (ExecutionException e) {
-            LOGGER.error("Health check failed for queue '{}'", queueName, e);
-            return false;
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return false;
+        } else if (cause instanceof SdkClientException) {
+            LOGGER.error("Queue '{}' is not reachable", queueName, cause);
+        } else if (cause instanceof TimeoutException) {
+            LOGGER.error("Health check for queue '{}' timed out", queueName);
+        } else {
+            LOGGER.error("Health check failed for queue '{}'", queueName, cause);
         }
+        return false;
     }
 
     private static boolean isValidQueueUrl(String name) {
@@ -96,4 +181,7 @@ public class SqsBinderHealthIndicator extends AbstractHealthIndicator {
             return false;
         }
     }
+
+    private record Reachability(boolean reachable, Instant checkedAt) {
+    }
 }
@@ -0,0 +1,327 @@
+package de.idealo.spring.stream.binder.sqs.inbound;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
+
+import io.awspring.cloud.sqs.listener.BatchAwareBackPressureHandler;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+
+import de.idealo.spring.stream.binder.sqs.DelegatingSqsAsyncClient;
+
+/**
+ * Limits the number of messages processed concurrently to a value between {@code minConcurrency} and
+ * {@code maxConcurrency}, which is adapted while the binding is running.
+ * <p>
+ * Every sample interval the limiter looks at the approximate number of messages in the queue, the ratio of empty
+ * receives and the average processing latency. The limit is raised while there is a backlog, receives return
+ * messages and latency stays close to its baseline. It is lowered if receives mostly come back empty, the queue is
+ * drained or latency degrades, which indicates a saturated downstream system. A direction has to be observed for
+ * {@code requiredSamples} consecutive samples before the limit changes.
+ * <p>
+ * The limit is enforced before messages are received: the back pressure handlers created by
+ * {@link #createBackPressureHandler(int, Duration)} request no more messages per poll than the limit leaves.
+ */
+public class SqsAdaptiveConcurrencyLimiter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqsAdaptiveConcurrencyLimiter.class);
+
+    private static final double HIGH_EMPTY_RECEIVE_RATIO = 0.5;
+
+    private static final double LOW_EMPTY_RECEIVE_RATIO = 0.1;
+
+    private final SqsAsyncClient sqsAsyncClient;
+
+    private final TaskScheduler taskScheduler;
+
+    private final int minConcurrency;
+
+    private final int maxConcurrency;
+
+    private final Object monitor = new Object();
+
+    private final Set<String> queueUrls = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong receives = new AtomicLong();
+
+    private final AtomicLong emptyReceives = new AtomicLong();
+
+    private final AtomicLong processed = new AtomicLong();
+
+    private final AtomicLong processingNanos = new AtomicLong();
+
+    private Duration sampleInterval = Duration.ofSeconds(10);
+
+    private int requiredSamples = 3;
+
+    private double latencyTolerance = 2.0;
+
+    private volatile int limit;
+
+    private int inFlight;
+
+    private double baselineLatencyNanos;
+
+    private Direction lastDirection = Direction.HOLD;
+
+    private int streak;
+
+    private ScheduledFuture<?> sampling;
+
+    public SqsAdaptiveConcurrencyLimiter(SqsAsyncClient sqsAsyncClient, TaskScheduler taskScheduler, int minConcurrency, int maxConcurrency) {
+        Assert.notNull(sqsAsyncClient, "'sqsAsyncClient' must not be null");
+        Assert.notNull(taskScheduler, "'taskScheduler' must not be null");
+        Assert.isTrue(minConcurrency > 0, "'minConcurrency' must be greater than 0");
+        Assert.isTrue(maxConcurrency >= minConcurrency, "'maxConcurrency' must not be less than 'minConcurrency'");
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.taskScheduler = taskScheduler;
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.limit = minConcurrency;
+    }
+
+    public void setSampleInterval(Duration sampleInterval) {
+        Assert.isTrue(sampleInterval != null && !sampleInterval.isNegative() && !sampleInterval.isZero(), "'sampleInterval' must be positive");
+        this.sampleInterval = sampleInterval;
+    }
+
+    public void setRequiredSamples(int requiredSamples) {
+        Assert.isTrue(requiredSamples > 0, "'requiredSamples' must be greater than 0");
+        this.requiredSamples = requiredSamples;
+    }
+
+    /**
+     * Set the factor by which the average latency may exceed its baseline before the limit is lowered.
+     */
+    public void setLatencyTolerance(double latencyTolerance) {
+        Assert.isTrue(latencyTolerance > 1.0, "'latencyTolerance' must be greater than 1");
+        this.latencyTolerance = latencyTolerance;
+    }
+
+    /**
+     * @return a client which records the receives made through it, to be used by the listener containers
+     */
+    public SqsAsyncClient observe(SqsAsyncClient client) {
+        return new DelegatingSqsAsyncClient(client) {
+            @Override
+            public CompletableFuture<ReceiveMessageResponse> receiveMessage(ReceiveMessageRequest request) {
+                queueUrls.add(request.queueUrl());
+                return super.receiveMessage(request).whenComplete((response, throwable) -> {
+                    if (response != null) {
+                        receives.incrementAndGet();
+                        if (!response.hasMessages() || response.messages().isEmpty()) {
+                            emptyReceives.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    public void start() {
+        synchronized (this.monitor) {
+            if (this.sampling == null) {
+                this.sampling = this.taskScheduler.scheduleAtFixedRate(this::sample, Instant.now().plus(this.sampleInterval), this.sampleInterval);
+            }
+        }
+    }
+
+    public void stop() {
+        synchronized (this.monitor) {
+            if (this.sampling != null) {
+                this.sampling.cancel(false);
+                this.sampling = null;
+            }
+        }
+    }
+
+    /**
+     * Create the back pressure handler of one message source. A poll requests at most {@code batchSize} messages and
+     * never more than the current limit leaves, so that fewer messages are received once the limit drops.
+     */
+    public BatchAwareBackPressureHandler createBackPressureHandler(int batchSize, Duration acquireTimeout) {
+        Assert.isTrue(batchSize > 0, "'batchSize' must be greater than 0");
+        Assert.notNull(acquireTimeout, "'acquireTimeout' must not be null");
+        return new LimitingBackPressureHandler(batchSize, acquireTimeout);
+    }
+
+    /**
+     * Record the time it took to process the given number of messages.
+     */
+    public void record(int messages, long processingNanos) {
+        this.processed.addAndGet(messages);
+        this.processingNanos.addAndGet(processingNanos);
+    }
+
+    public int getLimit() {
+        return this.limit;
+    }
+
+    public int getInFlight() {
+        synchronized (this.monitor) {
+            return this.inFlight;
+        }
+    }
+
+    void sample() {
+        List<CompletableFuture<Long>> depths = new ArrayList<>();
+        for (String queueUrl : this.queueUrls) {
+            depths.add(this.sqsAsyncClient.getQueueAttributes(GetQueueAttributesRequest.builder()
+                            .queueUrl(queueUrl)
+                            .attributeNames(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES)
+                            .build())
+                    .thenApply(response -> Long.parseLong(response.attributes().getOrDefault(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES, "0"))));
+        }
+        CompletableFuture.allOf(depths.toArray(CompletableFuture[]::new))
+                .thenRun(() -> evaluate(depths.stream().mapToLong(CompletableFuture::join).sum()))
+                .exceptionally(throwable -> {
+                    LOGGER.debug("Failed to sample queue depth, keeping concurrency limit of {}", this.limit, throwable);
+                    return null;
+                });
+    }
+
+    void evaluate(long backlog) {
+        long sampledReceives = this.receives.getAndSet(0);
+        long sampledEmptyReceives = this.emptyReceives.getAndSet(0);
+        long sampledProcessed = this.processed.getAndSet(0);
+        long sampledProcessingNanos = this.processingNanos.getAndSet(0);
+
+        synchronized (this.monitor) {
+            // without receives the container is either idle or waiting for capacity
+            double emptyReceiveRatio = sampledReceives > 0
+                    ? (double) sampledEmptyReceives / sampledReceives
+                    : this.inFlight >= this.limit ? 0.0 : 1.0;
+            boolean latencyDegraded = false;
+            if (sampledProcessed > 0) {
+                double latencyNanos = (double) sampledProcessingNanos / sampledProcessed;
+                latencyDegraded = this.baselineLatencyNanos > 0 && latencyNanos > this.baselineLatencyNanos * this.latencyTolerance;
+                // follows decreases right away and increases slowly, so that the baseline reflects an unsaturated system
+                this.baselineLatencyNanos = this.baselineLatencyNanos == 0 || latencyNanos < this.baselineLatencyNanos
+                        ? latencyNanos
+                        : this.baselineLatencyNanos + (latencyNanos - this.baselineLatencyNanos) * 0.05;
+            }
+
+            Direction direction;
+            if (latencyDegraded || backlog == 0 || emptyReceiveRatio >= HIGH_EMPTY_RECEIVE_RATIO) {
+                direction = Direction.DOWN;
+            } else if (backlog > this.limit && emptyReceiveRatio <= LOW_EMPTY_RECEIVE_RATIO) {
+                direction = Direction.UP;
+            } else {
+                direction = Direction.HOLD;
+            }
+
+            this.streak = direction == this.lastDirection ? this.streak + 1 : 1;
+            this.lastDirection = direction;
+            if (direction == Direction.HOLD || this.streak < this.requiredSamples) {
+                return;
+            }
+            this.streak = 0;
+
+            int previousLimit = this.limit;
+            this.limit = direction == Direction.UP
+                    ? Math.min(this.maxConcurrency, previousLimit + Math.max(1, previousLimit / 2))
+                    : Math.max(this.minConcurrency, previousLimit - Math.max(1, previousLimit / 4));
+            if (this.limit != previousLimit) {
+                LOGGER.debug("Changed concurrency limit from {} to {} (backlog={}, emptyReceiveRatio={}, latencyDegraded={})",
+                        previousLimit, this.limit, backlog, emptyReceiveRatio, latencyDegraded);
+                this.monitor.notifyAll();
+            }
+        }
+    }
+
+    private class LimitingBackPressureHandler implements BatchAwareBackPressureHandler {
+
+        private final int batchSize;
+
+        private final Duration acquireTimeout;
+
+        private int acquired;
+
+        LimitingBackPressureHandler(int batchSize, Duration acquireTimeout) {
+            this.batchSize = batchSize;
+            this.acquireTimeout = acquireTimeout;
+        }
+
+        @Override
+        public int requestBatch() throws InterruptedException {
+            return request(this.batchSize);
+        }
+
+        @Override
+        public int request(int amount) throws InterruptedException {
+            synchronized (monitor) {
+                long deadline = System.nanoTime() + this.acquireTimeout.toNanos();
+                while (inFlight >= limit) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return 0;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+                }
+                int permits = Math.min(amount, limit - inFlight);
+                inFlight += permits;
+                this.acquired += permits;
+                return permits;
+            }
+        }
+
+        @Override
+        public void release(int amount) {
+            synchronized (monitor) {
+                inFlight -= amount;
+                this.acquired -= amount;
+                monitor.notifyAll();
+            }
+        }
+
+        @Override
+        public void releaseBatch() {
+            release(this.batchSize);
+        }
+
+        @Override
+        public int getBatchSize() {
+            return this.batchSize;
+        }
+
+        @Override
+        public boolean drain(Duration timeout) {
+            synchronized (monitor) {
+                long deadline = System.nanoTime() + timeout.toNanos();
+                while (this.acquired > 0) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+    }
+
+    private enum Direction {
+        UP, DOWN, HOLD
+    }
+}
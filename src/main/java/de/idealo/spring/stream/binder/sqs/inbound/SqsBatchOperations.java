@@ -0,0 +1,115 @@
+package de.idealo.spring.stream.binder.sqs.inbound;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.util.Assert;
+
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+
+/**
+ * Deletes received messages or changes their visibility with DeleteMessageBatch and ChangeMessageVisibilityBatch
+ * requests of up to ten entries each. Messages are grouped by their {@link SqsHeaders#SQS_QUEUE_URL_HEADER queue url}
+ * and identified by their {@link SqsHeaders#SQS_RECEIPT_HANDLE_HEADER receipt handle}. Failed entries are logged.
+ */
+public class SqsBatchOperations {
+
+    public static final int MAX_BATCH_SIZE = 10;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqsBatchOperations.class);
+
+    private final SqsAsyncClient sqsAsyncClient;
+
+    public SqsBatchOperations(SqsAsyncClient sqsAsyncClient) {
+        Assert.notNull(sqsAsyncClient, "'sqsAsyncClient' must not be null");
+        this.sqsAsyncClient = sqsAsyncClient;
+    }
+
+    public CompletableFuture<Void> deleteMessages(Collection<? extends Message<?>> messages) {
+        return execute(messages, "DeleteMessageBatch", (queueUrl, chunk) -> {
+            List<DeleteMessageBatchRequestEntry> entries = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                entries.add(DeleteMessageBatchRequestEntry.builder().id(Integer.toString(i)).receiptHandle(receiptHandle(chunk.get(i))).build());
+            }
+            return this.sqsAsyncClient.deleteMessageBatch(DeleteMessageBatchRequest.builder().queueUrl(queueUrl).entries(entries).build())
+                    .thenApply(response -> response.hasFailed() ? response.failed() : List.<BatchResultErrorEntry>of());
+        });
+    }
+
+    public CompletableFuture<Void> changeMessageVisibility(Collection<? extends Message<?>> messages, Duration visibilityTimeout) {
+        return changeMessageVisibility(messages, message -> visibilityTimeout);
+    }
+
+    /**
+     * Change the visibility of each message to the timeout computed for it, e.g. a backoff depending on its
+     * receive count.
+     */
+    public CompletableFuture<Void> changeMessageVisibility(Collection<? extends Message<?>> messages, Function<Message<?>, Duration> visibilityTimeout) {
+        return execute(messages, "ChangeMessageVisibilityBatch", (queueUrl, chunk) -> {
+            List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                entries.add(ChangeMessageVisibilityBatchRequestEntry.builder()
+                        .id(Integer.toString(i))
+                        .receiptHandle(receiptHandle(chunk.get(i)))
+                        .visibilityTimeout((int) Math.min(visibilityTimeout.apply(chunk.get(i)).toSeconds(), Integer.MAX_VALUE))
+                        .build());
+            }
+            return this.sqsAsyncClient.changeMessageVisibilityBatch(ChangeMessageVisibilityBatchRequest.builder().queueUrl(queueUrl).entries(entries).build())
+                    .thenApply(response -> response.hasFailed() ? response.failed() : List.<BatchResultErrorEntry>of());
+        });
+    }
+
+    private CompletableFuture<Void> execute(Collection<? extends Message<?>> messages, String operation,
+                                            BiFunction<String, List<Message<?>>, CompletableFuture<List<BatchResultErrorEntry>>> request) {
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        groupByQueueUrl(messages).forEach((queueUrl, queueMessages) -> {
+            for (int start = 0; start < queueMessages.size(); start += MAX_BATCH_SIZE) {
+                List<Message<?>> chunk = queueMessages.subList(start, Math.min(start + MAX_BATCH_SIZE, queueMessages.size()));
+                requests.add(request.apply(queueUrl, chunk)
+                        .handle((failed, throwable) -> {
+                            if (throwable != null) {
+                                LOGGER.warn("{} request for {} messages of queue '{}' failed", operation, chunk.size(), queueUrl, throwable);
+                            } else if (!failed.isEmpty()) {
+                                LOGGER.warn("{} request for queue '{}' failed for {} of {} entries, first error: {}",
+                                        operation, queueUrl, failed.size(), chunk.size(), failed.get(0).message());
+                            }
+                            return null;
+                        }));
+            }
+        });
+        return CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new));
+    }
+
+    private static Map<String, List<Message<?>>> groupByQueueUrl(Collection<? extends Message<?>> messages) {
+        Map<String, List<Message<?>>> messagesByQueueUrl = new LinkedHashMap<>();
+        for (Message<?> message : messages) {
+            String queueUrl = message.getHeaders().get(SqsHeaders.SQS_QUEUE_URL_HEADER, String.class);
+            if (queueUrl == null || receiptHandle(message) == null) {
+                LOGGER.debug("Ignoring message {} without queue url or receipt handle", message.getHeaders().getId());
+                continue;
+            }
+            messagesByQueueUrl.computeIfAbsent(queueUrl, key -> new ArrayList<>()).add(message);
+        }
+        return messagesByQueueUrl;
+    }
+
+    private static String receiptHandle(Message<?> message) {
+        return message.getHeaders().get(SqsHeaders.SQS_RECEIPT_HANDLE_HEADER, String.class);
+    }
+}
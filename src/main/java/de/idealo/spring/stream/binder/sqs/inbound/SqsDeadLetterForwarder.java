@@ -0,0 +1,296 @@
+package de.idealo.spring.stream.binder.sqs.inbound;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
+
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+import software.amazon.awssdk.services.sqs.model.QueueDoesNotExistException;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+
+import de.idealo.spring.stream.binder.sqs.provisioning.SqsQueueMetadataCache;
+
+/**
+ * Moves messages which have been received more than {@code maxReceiveCount} times to a dead letter queue before
+ * they reach the consumer, so that a poison message does not cost a conversion and a failed processing attempt on
+ * every delivery until the redrive policy of the queue takes effect.
+ * <p>
+ * Messages are collected for {@code flushInterval} and sent with SendMessageBatch requests, keeping their body and
+ * message attributes. Messages which have been sent successfully are then deleted from their source queue with
+ * DeleteMessageBatch requests, all others are redelivered and forwarded again.
+ */
+public class SqsDeadLetterForwarder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqsDeadLetterForwarder.class);
+
+    private static final int MAX_BATCH_BYTES = 256 * 1024;
+
+    private final SqsAsyncClient sqsAsyncClient;
+
+    private final SqsBatchOperations batchOperations;
+
+    private final TaskScheduler taskScheduler;
+
+    private final String deadLetterQueue;
+
+    private final int maxReceiveCount;
+
+    private final Object monitor = new Object();
+
+    private Duration flushInterval = Duration.ofMillis(100);
+
+    private SqsQueueMetadataCache queueMetadataCache;
+
+    private CompletableFuture<String> deadLetterQueueUrl;
+
+    private List<Message<?>> pending = new ArrayList<>();
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    public SqsDeadLetterForwarder(SqsAsyncClient sqsAsyncClient, TaskScheduler taskScheduler, String deadLetterQueue, int maxReceiveCount) {
+        Assert.notNull(sqsAsyncClient, "'sqsAsyncClient' must not be null");
+        Assert.notNull(taskScheduler, "'taskScheduler' must not be null");
+        Assert.hasText(deadLetterQueue, "'deadLetterQueue' must not be empty");
+        Assert.isTrue(maxReceiveCount > 0, "'maxReceiveCount' must be greater than 0");
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.batchOperations = new SqsBatchOperations(sqsAsyncClient);
+        this.taskScheduler = taskScheduler;
+        this.deadLetterQueue = deadLetterQueue;
+        this.maxReceiveCount = maxReceiveCount;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        Assert.isTrue(flushInterval != null && !flushInterval.isNegative(), "'flushInterval' must not be negative");
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Resolve the url of the dead letter queue through the given cache, which is shared with the other components of
+     * the binder.
+     */
+    public void setQueueMetadataCache(SqsQueueMetadataCache queueMetadataCache) {
+        this.queueMetadataCache = queueMetadataCache;
+    }
+
+    /**
+     * @return whether the message has been received more than {@code maxReceiveCount} times
+     */
+    public boolean isExhausted(Message<?> message) {
+        return SqsFailureBackoff.receiveCount(message) > this.maxReceiveCount;
+    }
+
+    /**
+     * Forward the messages to the dead letter queue. Once enough messages for a full batch request are pending,
+     * they are sent right away.
+     */
+    public void forward(Collection<? extends Message<?>> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        List<Message<?>> full = null;
+        synchronized (this.monitor) {
+            this.pending.addAll(messages);
+            if (this.pending.size() >= SqsBatchOperations.MAX_BATCH_SIZE) {
+                full = drain();
+            } else if (this.scheduledFlush == null) {
+                this.scheduledFlush = this.taskScheduler.schedule(this::flush, Instant.now().plus(this.flushInterval));
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+    }
+
+    /**
+     * Forward all pending messages right away.
+     */
+    public CompletableFuture<Void> flush() {
+        List<Message<?>> messages;
+        synchronized (this.monitor) {
+            messages = drain();
+        }
+        return messages.isEmpty() ? CompletableFuture.completedFuture(null) : send(messages);
+    }
+
+    private List<Message<?>> drain() {
+        if (this.scheduledFlush != null) {
+            this.scheduledFlush.cancel(false);
+            this.scheduledFlush = null;
+        }
+        List<Message<?>> messages = this.pending;
+        this.pending = new ArrayList<>();
+        return messages;
+    }
+
+    private CompletableFuture<Void> send(List<Message<?>> messages) {
+        return resolveDeadLetterQueueUrl()
+                .thenCompose(queueUrl -> {
+                    List<CompletableFuture<Void>> requests = new ArrayList<>();
+                    for (List<Message<?>> chunk : chunk(messages)) {
+                        requests.add(send(queueUrl, chunk));
+                    }
+                    return CompletableFuture.allOf(requests.toArray(CompletableFuture[]::new));
+                })
+                .exceptionally(throwable -> {
+                    invalidateDeadLetterQueueUrl(throwable);
+                    LOGGER.warn("Failed to forward {} messages to dead letter queue '{}', they will be redelivered", messages.size(), this.deadLetterQueue, throwable);
+                    return null;
+                });
+    }
+
+    private CompletableFuture<Void> send(String queueUrl, List<Message<?>> chunk) {
+        boolean fifo = queueUrl.endsWith(".fifo");
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            entries.add(toEntry(Integer.toString(i), chunk.get(i), fifo));
+        }
+        return this.sqsAsyncClient.sendMessageBatch(SendMessageBatchRequest.builder().queueUrl(queueUrl).entries(entries).build())
+                .thenCompose(response -> {
+                    if (response.hasFailed() && !response.failed().isEmpty()) {
+                        LOGGER.warn("Failed to forward {} of {} messages to dead letter queue '{}', first error: {}",
+                                response.failed().size(), chunk.size(), this.deadLetterQueue, response.failed().get(0).message());
+                    }
+                    Set<String> sent = response.successful().stream().map(SendMessageBatchResultEntry::id).collect(Collectors.toSet());
+                    List<Message<?>> forwarded = new ArrayList<>(sent.size());
+                    for (int i = 0; i < chunk.size(); i++) {
+                        if (sent.contains(Integer.toString(i))) {
+                            forwarded.add(chunk.get(i));
+                        }
+                    }
+                    LOGGER.debug("Forwarded {} messages to dead letter queue '{}'", forwarded.size(), this.deadLetterQueue);
+                    return this.batchOperations.deleteMessages(forwarded);
+                });
+    }
+
+    private static SendMessageBatchRequestEntry toEntry(String id, Message<?> message, boolean fifo) {
+        SendMessageBatchRequestEntry.Builder entry = SendMessageBatchRequestEntry.builder().id(id);
+        Object sourceData = message.getHeaders().get(SqsHeaders.SQS_SOURCE_DATA_HEADER);
+        software.amazon.awssdk.services.sqs.model.Message source = sourceData instanceof software.amazon.awssdk.services.sqs.model.Message sourceMessage
+                ? sourceMessage
+                : null;
+        if (source != null) {
+            entry.messageBody(source.body());
+            if (source.hasMessageAttributes()) {
+                entry.messageAttributes(source.messageAttributes());
+            }
+        } else {
+            entry.messageBody(body(message.getPayload()));
+        }
+        if (fifo) {
+            entry.messageGroupId(messageGroupId(message, source));
+            entry.messageDeduplicationId(messageDeduplicationId(message, source));
+        }
+        return entry.build();
+    }
+
+    private static String messageGroupId(Message<?> message, software.amazon.awssdk.services.sqs.model.Message source) {
+        String groupId = message.getHeaders().get(SqsHeaders.MessageSystemAttributes.SQS_MESSAGE_GROUP_ID_HEADER, String.class);
+        if (groupId == null && source != null) {
+            groupId = source.attributes().get(MessageSystemAttributeName.MESSAGE_GROUP_ID);
+        }
+        if (groupId == null) {
+            throw new IllegalStateException("Message without message group id cannot be forwarded to a FIFO dead letter queue");
+        }
+        return groupId;
+    }
+
+    /**
+     * @return the deduplication id of the source message, or else its message id, which both stay the same across
+     * redeliveries, so that a message which is forwarded again after its deletion failed is deduplicated
+     */
+    private static String messageDeduplicationId(Message<?> message, software.amazon.awssdk.services.sqs.model.Message source) {
+        String deduplicationId = message.getHeaders().get(SqsHeaders.MessageSystemAttributes.SQS_MESSAGE_DEDUPLICATION_ID_HEADER, String.class);
+        if (deduplicationId == null && source != null) {
+            deduplicationId = source.attributes().get(MessageSystemAttributeName.MESSAGE_DEDUPLICATION_ID);
+            if (deduplicationId == null) {
+                deduplicationId = source.messageId();
+            }
+        }
+        if (deduplicationId == null) {
+            throw new IllegalStateException("Message without deduplication id or message id cannot be forwarded to a FIFO dead letter queue");
+        }
+        return deduplicationId;
+    }
+
+    private static String body(Object payload) {
+        if (payload instanceof byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        return String.valueOf(payload);
+    }
+
+    private static List<List<Message<?>>> chunk(List<Message<?>> messages) {
+        List<List<Message<?>>> chunks = new ArrayList<>();
+        List<Message<?>> chunk = new ArrayList<>();
+        long chunkBytes = 0;
+        for (Message<?> message : messages) {
+            long bytes = estimateSize(message);
+            if (!chunk.isEmpty() && (chunk.size() == SqsBatchOperations.MAX_BATCH_SIZE || chunkBytes + bytes > MAX_BATCH_BYTES)) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                chunkBytes = 0;
+            }
+            chunk.add(message);
+            chunkBytes += bytes;
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private static long estimateSize(Message<?> message) {
+        Object sourceData = message.getHeaders().get(SqsHeaders.SQS_SOURCE_DATA_HEADER);
+        if (sourceData instanceof software.amazon.awssdk.services.sqs.model.Message source) {
+            return source.body().getBytes(StandardCharsets.UTF_8).length;
+        }
+        return body(message.getPayload()).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private CompletableFuture<String> resolveDeadLetterQueueUrl() {
+        synchronized (this.monitor) {
+            if (this.queueMetadataCache != null) {
+                return this.queueMetadataCache.resolveQueueUrl(this.deadLetterQueue);
+            }
+            if (this.deadLetterQueueUrl == null || this.deadLetterQueueUrl.isCompletedExceptionally()) {
+                this.deadLetterQueueUrl = this.deadLetterQueue.startsWith("http")
+                        ? CompletableFuture.completedFuture(this.deadLetterQueue)
+                        : this.sqsAsyncClient.getQueueUrl(GetQueueUrlRequest.builder().queueName(this.deadLetterQueue).build())
+                                .thenApply(GetQueueUrlResponse::queueUrl);
+            }
+            return this.deadLetterQueueUrl;
+        }
+    }
+
+    private void invalidateDeadLetterQueueUrl(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        if (cause instanceof QueueDoesNotExistException) {
+            synchronized (this.monitor) {
+                this.deadLetterQueueUrl = null;
+            }
+            if (this.queueMetadataCache != null) {
+                this.queueMetadataCache.invalidate(this.deadLetterQueue);
+            }
+        }
+    }
+}
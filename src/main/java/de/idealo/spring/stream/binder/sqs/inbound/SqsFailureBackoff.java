@@ -0,0 +1,162 @@
+package de.idealo.spring.stream.binder.sqs.inbound;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
+
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+
+/**
+ * Delays the redelivery of messages which failed to be processed by changing their visibility timeout to an
+ * exponential backoff, computed from their {@link SqsHeaders.MessageSystemAttributes#SQS_APPROXIMATE_RECEIVE_COUNT
+ * approximate receive count}:
+ * {@code min(maxInterval, initialInterval * multiplier ^ (receiveCount - 1))}, reduced by a random share of up to
+ * {@code jitter} so that messages failing together are not retried together.
+ * <p>
+ * Failed messages are collected for {@code flushInterval} and then sent as ChangeMessageVisibilityBatch requests,
+ * so that neither sleeps nor blocked threads are needed for a retry.
+ */
+public class SqsFailureBackoff {
+
+    /**
+     * The maximum visibility timeout supported by SQS.
+     */
+    public static final Duration MAX_VISIBILITY_TIMEOUT = Duration.ofHours(12);
+
+    private final SqsBatchOperations batchOperations;
+
+    private final TaskScheduler taskScheduler;
+
+    private final Object monitor = new Object();
+
+    private Duration initialInterval = Duration.ofSeconds(1);
+
+    private double multiplier = 2.0;
+
+    private Duration maxInterval = Duration.ofMinutes(15);
+
+    private double jitter = 0.2;
+
+    private Duration flushInterval = Duration.ofMillis(100);
+
+    private List<Message<?>> pending = new ArrayList<>();
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    public SqsFailureBackoff(SqsBatchOperations batchOperations, TaskScheduler taskScheduler) {
+        Assert.notNull(batchOperations, "'batchOperations' must not be null");
+        Assert.notNull(taskScheduler, "'taskScheduler' must not be null");
+        this.batchOperations = batchOperations;
+        this.taskScheduler = taskScheduler;
+    }
+
+    public void setInitialInterval(Duration initialInterval) {
+        Assert.isTrue(initialInterval != null && !initialInterval.isNegative(), "'initialInterval' must not be negative");
+        this.initialInterval = initialInterval;
+    }
+
+    public void setMultiplier(double multiplier) {
+        Assert.isTrue(multiplier >= 1.0, "'multiplier' must not be less than 1");
+        this.multiplier = multiplier;
+    }
+
+    public void setMaxInterval(Duration maxInterval) {
+        Assert.isTrue(maxInterval != null && !maxInterval.isNegative() && maxInterval.compareTo(MAX_VISIBILITY_TIMEOUT) <= 0,
+                "'maxInterval' must be between 0 and 12 hours");
+        this.maxInterval = maxInterval;
+    }
+
+    /**
+     * Set the share of the backoff, between 0 and 1, by which it is randomly reduced.
+     */
+    public void setJitter(double jitter) {
+        Assert.isTrue(jitter >= 0.0 && jitter <= 1.0, "'jitter' must be between 0 and 1");
+        this.jitter = jitter;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        Assert.isTrue(flushInterval != null && !flushInterval.isNegative(), "'flushInterval' must not be negative");
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Schedule the redelivery of the given messages. Once enough messages for a full batch request are pending,
+     * they are sent right away.
+     */
+    public void onFailure(Collection<? extends Message<?>> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        List<Message<?>> full = null;
+        synchronized (this.monitor) {
+            this.pending.addAll(messages);
+            if (this.pending.size() >= SqsBatchOperations.MAX_BATCH_SIZE) {
+                full = drain();
+            } else if (this.scheduledFlush == null) {
+                this.scheduledFlush = this.taskScheduler.schedule(this::flush, Instant.now().plus(this.flushInterval));
+            }
+        }
+        if (full != null) {
+            this.batchOperations.changeMessageVisibility(full, this::backoff);
+        }
+    }
+
+    /**
+     * Send all pending visibility changes right away.
+     */
+    public void flush() {
+        List<Message<?>> messages;
+        synchronized (this.monitor) {
+            messages = drain();
+        }
+        if (!messages.isEmpty()) {
+            this.batchOperations.changeMessageVisibility(messages, this::backoff);
+        }
+    }
+
+    private List<Message<?>> drain() {
+        if (this.scheduledFlush != null) {
+            this.scheduledFlush.cancel(false);
+            this.scheduledFlush = null;
+        }
+        List<Message<?>> messages = this.pending;
+        this.pending = new ArrayList<>();
+        return messages;
+    }
+
+    Duration backoff(Message<?> message) {
+        return backoff(receiveCount(message));
+    }
+
+    Duration backoff(int receiveCount) {
+        double backoffMillis = this.initialInterval.toMillis() * Math.pow(this.multiplier, Math.max(0, receiveCount - 1));
+        backoffMillis = Math.min(backoffMillis, this.maxInterval.toMillis());
+        if (this.jitter > 0) {
+            backoffMillis -= backoffMillis * this.jitter * ThreadLocalRandom.current().nextDouble();
+        }
+        return Duration.ofMillis(Math.round(backoffMillis));
+    }
+
+    static int receiveCount(Message<?> message) {
+        Object receiveCount = message.getHeaders().get(SqsHeaders.MessageSystemAttributes.SQS_APPROXIMATE_RECEIVE_COUNT);
+        if (receiveCount instanceof Number number) {
+            return number.intValue();
+        }
+        if (receiveCount instanceof String text) {
+            try {
+                return Integer.parseInt(text);
+            } catch (NumberFormatException e) {
+                return 1;
+            }
+        }
+        return 1;
+    }
+}
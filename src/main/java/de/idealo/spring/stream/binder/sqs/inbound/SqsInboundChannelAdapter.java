@@ -1,37 +1,141 @@
 package de.idealo.spring.stream.binder.sqs.inbound;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.integration.endpoint.MessageProducerSupport;
+import org.springframework.integration.support.MessageBuilder;
 import org.springframework.messaging.Message;
-import org.springframework.messaging.support.GenericMessage;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 
 import io.awspring.cloud.sqs.config.SqsMessageListenerContainerFactory;
+import io.awspring.cloud.sqs.listener.AsyncMessageListener;
+import io.awspring.cloud.sqs.listener.BackPressureHandler;
+import io.awspring.cloud.sqs.listener.ContainerComponentFactory;
+import io.awspring.cloud.sqs.listener.FifoSqsComponentFactory;
+import io.awspring.cloud.sqs.listener.ListenerMode;
 import io.awspring.cloud.sqs.listener.MessageListener;
 import io.awspring.cloud.sqs.listener.SqsContainerOptions;
 import io.awspring.cloud.sqs.listener.SqsMessageListenerContainer;
+import io.awspring.cloud.sqs.listener.StandardSqsComponentFactory;
+import io.awspring.cloud.sqs.listener.acknowledgement.Acknowledgement;
+import io.awspring.cloud.sqs.listener.acknowledgement.handler.AcknowledgementMode;
+import io.awspring.cloud.sqs.listener.source.FifoSqsMessageSource;
+import io.awspring.cloud.sqs.listener.source.MessageSource;
+import io.awspring.cloud.sqs.listener.source.StandardSqsMessageSource;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 
+import de.idealo.spring.stream.binder.sqs.SqsBatchProcessingException;
+import de.idealo.spring.stream.binder.sqs.SqsHeaders;
+import de.idealo.spring.stream.binder.sqs.metrics.SqsConsumerMetrics;
+import de.idealo.spring.stream.binder.sqs.payload.PayloadCompression;
+import de.idealo.spring.stream.binder.sqs.payload.PayloadStore;
+import de.idealo.spring.stream.binder.sqs.provisioning.SqsQueueMetadata;
+import de.idealo.spring.stream.binder.sqs.provisioning.SqsQueueMetadataCache;
+
 public class SqsInboundChannelAdapter extends MessageProducerSupport {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqsInboundChannelAdapter.class);
+
+    private static final long RESOLVE_TIMEOUT_SECONDS = 10;
+
+    private static final int DEFAULT_MAX_RETRIEVED_PAYLOAD_SIZE = 64 * 1024 * 1024;
+
     private final SqsMessageListenerContainerFactory.Builder<Object> sqsMessageListenerContainerFactory =
             SqsMessageListenerContainerFactory.builder();
 
     private final String[] queues;
 
+    private final Map<String, String> queueUrls = new HashMap<>();
+
     private SqsContainerOptions sqsContainerOptions;
 
     private final List<SqsMessageListenerContainer<?>> listenerContainers = new ArrayList<>();
 
     private int concurrency = 1;
 
+    private final SqsAsyncClient amazonSqs;
+
+    private int windowSize;
+
+    private long windowMaxBytes = Long.MAX_VALUE;
+
+    private Duration windowTimeout = Duration.ofSeconds(2);
+
+    private SqsMessageWindow messageWindow;
+
+    private int adaptiveMinConcurrency;
+
+    private int adaptiveMaxConcurrency;
+
+    private Duration adaptiveSampleInterval = Duration.ofSeconds(10);
+
+    private SqsAdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    private Executor listenerExecutor;
+
+    private ExecutorService ownedListenerExecutor;
+
+    private Duration maxVisibilityExtension;
+
+    private SqsVisibilityExtender visibilityExtender;
+
+    private Duration backoffInitialInterval;
+
+    private Duration backoffMaxInterval;
+
+    private double backoffMultiplier = 2.0;
+
+    private double backoffJitter;
+
+    private SqsFailureBackoff failureBackoff;
+
+    private String deadLetterQueue;
+
+    private int maxReceiveCount;
+
+    private SqsDeadLetterForwarder deadLetterForwarder;
+
+    private SqsConsumerMetrics metrics = SqsConsumerMetrics.NOOP;
+
+    private int messageGroupConcurrency;
+
+    private SqsMessageGroupDispatcher messageGroupDispatcher;
+
+    private SqsBatchOperations messageGroupBatchOperations;
+
+    private ExecutorService messageGroupExecutor;
+
+    private PayloadStore payloadStore;
+
+    private int maxRetrievedPayloadSize = DEFAULT_MAX_RETRIEVED_PAYLOAD_SIZE;
+
+    private SqsQueueMetadataCache queueMetadataCache;
+
     public SqsInboundChannelAdapter(SqsAsyncClient amazonSqs, String... queues) {
         Assert.noNullElements(queues, "'queues' must not be empty");
         this.sqsMessageListenerContainerFactory.sqsAsyncClient(amazonSqs);
+        this.amazonSqs = amazonSqs;
         this.queues = Arrays.copyOf(queues, queues.length);
     }
 
@@ -39,21 +143,242 @@ public class SqsInboundChannelAdapter extends MessageProducerSupport {
         this.sqsContainerOptions = sqsContainerOptions;
     }
 
+    /**
+     * Set the number of independent listener containers polling the queues. Defaults to 1; to process more
+     * messages concurrently prefer a higher {@code maxConcurrentMessages} in the container options.
+     */
     public void setConcurrency(int concurrency) {
         this.concurrency = concurrency;
     }
 
+    /**
+     * Set the maximum number of messages which are aggregated across polls into one batch.
+     * Values greater than 0 enable windowing, see {@link SqsMessageWindow}.
+     */
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public void setWindowMaxBytes(long windowMaxBytes) {
+        this.windowMaxBytes = windowMaxBytes;
+    }
+
+    public void setWindowTimeout(Duration windowTimeout) {
+        this.windowTimeout = windowTimeout;
+    }
+
+    /**
+     * Enable adaptive concurrency: the number of messages processed concurrently is scaled between the given
+     * bounds while the adapter is running, see {@link SqsAdaptiveConcurrencyLimiter}. The limiter replaces the back
+     * pressure of the listener containers, so that polls only request as many messages as the current limit leaves.
+     */
+    public void setAdaptiveConcurrency(int minConcurrency, int maxConcurrency) {
+        Assert.isTrue(minConcurrency > 0 && maxConcurrency >= minConcurrency, "'maxConcurrency' must not be less than 'minConcurrency' and both must be greater than 0");
+        this.adaptiveMinConcurrency = minConcurrency;
+        this.adaptiveMaxConcurrency = maxConcurrency;
+    }
+
+    public void setAdaptiveSampleInterval(Duration adaptiveSampleInterval) {
+        this.adaptiveSampleInterval = adaptiveSampleInterval;
+    }
+
+    /**
+     * Set the executor which runs the message processing instead of the threads of the listener containers,
+     * e.g. an executor creating virtual threads, or a dedicated pool per binding. The number of messages in flight
+     * remains limited by {@code maxConcurrentMessages} of the container options.
+     */
+    public void setListenerExecutor(Executor listenerExecutor) {
+        this.listenerExecutor = listenerExecutor;
+    }
+
+    /**
+     * Set an executor which is created for this adapter alone and shut down once it is destroyed, i.e. once its
+     * binding is unbound.
+     */
+    public void setOwnedListenerExecutor(ExecutorService listenerExecutor) {
+        this.listenerExecutor = listenerExecutor;
+        this.ownedListenerExecutor = listenerExecutor;
+    }
+
+    /**
+     * Enable the extension of the visibility of messages while they are being processed, for at most the given
+     * duration, see {@link SqsVisibilityExtender}. Has no effect on batch windows, which extend the visibility of
+     * their messages themselves.
+     */
+    public void setMaxVisibilityExtension(Duration maxVisibilityExtension) {
+        this.maxVisibilityExtension = maxVisibilityExtension;
+    }
+
+    /**
+     * Enable an exponential backoff for the redelivery of messages which failed to be processed, see
+     * {@link SqsFailureBackoff}. Without a backoff, failed messages are redelivered once their visibility timeout
+     * expires.
+     */
+    public void setFailureBackoff(Duration initialInterval, Duration maxInterval) {
+        this.backoffInitialInterval = initialInterval;
+        this.backoffMaxInterval = maxInterval;
+    }
+
+    public void setBackoffMultiplier(double backoffMultiplier) {
+        this.backoffMultiplier = backoffMultiplier;
+    }
+
+    public void setBackoffJitter(double backoffJitter) {
+        this.backoffJitter = backoffJitter;
+    }
+
+    /**
+     * Forward messages which have been received more than {@code maxReceiveCount} times to the given dead letter
+     * queue instead of passing them to the consumer, see {@link SqsDeadLetterForwarder}.
+     */
+    public void setDeadLetterQueue(String deadLetterQueue, int maxReceiveCount) {
+        this.deadLetterQueue = deadLetterQueue;
+        this.maxReceiveCount = maxReceiveCount;
+    }
+
+    /**
+     * Process the messages of up to the given number of message groups concurrently, while keeping the order within
+     * each group, see {@link SqsMessageGroupDispatcher}. Messages are received in batches and acknowledged
+     * individually once they have been processed. Must not be combined with a batch listener or a message window,
+     * initialization fails otherwise.
+     */
+    public void setMessageGroupConcurrency(int messageGroupConcurrency) {
+        Assert.isTrue(messageGroupConcurrency > 0, "'messageGroupConcurrency' must be greater than 0");
+        this.messageGroupConcurrency = messageGroupConcurrency;
+    }
+
+    /**
+     * Read the bodies of messages which have been offloaded by the producer, marked by the
+     * {@link SqsHeaders#CLAIM_CHECK} header, from the given store before they are converted.
+     */
+    public void setPayloadStore(PayloadStore payloadStore) {
+        Assert.notNull(payloadStore, "'payloadStore' must not be null");
+        this.payloadStore = payloadStore;
+    }
+
+    /**
+     * Set the maximum size in bytes of a payload read from the {@link #setPayloadStore(PayloadStore) payload store},
+     * after decompression. Messages with larger payloads fail conversion. Defaults to 64 MB.
+     */
+    public void setMaxRetrievedPayloadSize(int maxRetrievedPayloadSize) {
+        Assert.isTrue(maxRetrievedPayloadSize > 0, "'maxRetrievedPayloadSize' must be greater than 0");
+        this.maxRetrievedPayloadSize = maxRetrievedPayloadSize;
+    }
+
+    /**
+     * Resolve the urls of the queues through the given cache, which is shared with the other components of the
+     * binder. The listener containers then poll the resolved urls, and without a {@code messageVisibility} in the
+     * container options, windows and visibility extension use the visibility timeout of the queues.
+     */
+    public void setQueueMetadataCache(SqsQueueMetadataCache queueMetadataCache) {
+        this.queueMetadataCache = queueMetadataCache;
+    }
+
+    public void setMetrics(SqsConsumerMetrics metrics) {
+        Assert.notNull(metrics, "'metrics' must not be null");
+        this.metrics = metrics;
+    }
+
+    public SqsAdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return this.concurrencyLimiter;
+    }
+
     @Override
     protected void onInit() {
         super.onInit();
-        if (this.sqsContainerOptions != null) {
-            this.sqsMessageListenerContainerFactory.configure(sqsContainerOptionsBuilder ->
-                    sqsContainerOptionsBuilder.fromBuilder(this.sqsContainerOptions.toBuilder()));
+        if (this.messageGroupConcurrency > 0) {
+            Assert.isTrue(this.windowSize <= 0, "'messageGroupConcurrency' must not be combined with a message window");
+            Assert.isTrue(this.sqsContainerOptions == null || this.sqsContainerOptions.getListenerMode() != ListenerMode.BATCH,
+                    "'messageGroupConcurrency' must not be combined with a batch listener");
+        }
+        Duration visibilityTimeout = this.sqsContainerOptions != null ? this.sqsContainerOptions.getMessageVisibility() : null;
+        Duration queueVisibilityTimeout = resolveQueues();
+        if (visibilityTimeout == null) {
+            visibilityTimeout = queueVisibilityTimeout;
+        }
+        // receives and deletes of the containers as well as of the batch operations are recorded by the metrics
+        SqsAsyncClient sqsAsyncClient = this.metrics.instrument(this.amazonSqs);
+        if (this.adaptiveMaxConcurrency > 0) {
+            this.concurrencyLimiter = new SqsAdaptiveConcurrencyLimiter(sqsAsyncClient, getTaskScheduler(), this.adaptiveMinConcurrency, this.adaptiveMaxConcurrency);
+            this.concurrencyLimiter.setSampleInterval(this.adaptiveSampleInterval);
+            this.sqsMessageListenerContainerFactory.sqsAsyncClient(this.concurrencyLimiter.observe(sqsAsyncClient));
+            this.sqsMessageListenerContainerFactory.containerComponentFactories(limitingComponentFactories(this.concurrencyLimiter));
+        } else {
+            this.sqsMessageListenerContainerFactory.sqsAsyncClient(sqsAsyncClient);
+        }
+        if (this.backoffInitialInterval != null) {
+            this.failureBackoff = new SqsFailureBackoff(new SqsBatchOperations(sqsAsyncClient), getTaskScheduler());
+            this.failureBackoff.setInitialInterval(this.backoffInitialInterval);
+            this.failureBackoff.setMaxInterval(this.backoffMaxInterval);
+            this.failureBackoff.setMultiplier(this.backoffMultiplier);
+            this.failureBackoff.setJitter(this.backoffJitter);
+        }
+        if (this.deadLetterQueue != null) {
+            this.deadLetterForwarder = new SqsDeadLetterForwarder(sqsAsyncClient, getTaskScheduler(), this.deadLetterQueue, this.maxReceiveCount);
+            this.deadLetterForwarder.setQueueMetadataCache(this.queueMetadataCache);
+        }
+        if (this.windowSize > 0) {
+            this.messageWindow = new SqsMessageWindow(new SqsBatchOperations(sqsAsyncClient), getTaskScheduler(), this::dispatchWindow);
+            this.messageWindow.setMaxSize(this.windowSize);
+            this.messageWindow.setMaxBytes(this.windowMaxBytes);
+            this.messageWindow.setTimeout(this.windowTimeout);
+            if (this.listenerExecutor != null) {
+                this.messageWindow.setDispatchExecutor(this.listenerExecutor);
+            }
+            this.messageWindow.setFailureBackoff(this.failureBackoff);
+            if (visibilityTimeout != null) {
+                this.messageWindow.setVisibilityTimeout(visibilityTimeout);
+            }
+        }
+        if (this.maxVisibilityExtension != null && this.messageWindow == null) {
+            this.visibilityExtender = new SqsVisibilityExtender(new SqsBatchOperations(sqsAsyncClient), getTaskScheduler());
+            this.visibilityExtender.setMaxExtension(this.maxVisibilityExtension);
+            if (visibilityTimeout != null) {
+                this.visibilityExtender.setVisibilityTimeout(visibilityTimeout);
+            }
+        }
+        boolean messageGroups = this.messageGroupConcurrency > 0;
+        if (this.sqsContainerOptions != null || this.messageWindow != null || this.deadLetterForwarder != null || messageGroups) {
+            this.sqsMessageListenerContainerFactory.configure(sqsContainerOptionsBuilder -> {
+                if (this.sqsContainerOptions != null) {
+                    sqsContainerOptionsBuilder.fromBuilder(this.sqsContainerOptions.toBuilder());
+                }
+                if (messageGroups) {
+                    // whole polls are handed to the dispatcher, which processes them message by message
+                    sqsContainerOptionsBuilder.listenerMode(ListenerMode.BATCH);
+                }
+                if (this.messageWindow != null || this.deadLetterForwarder != null || messageGroups) {
+                    // messages are deleted by the window once their batch has been processed, forwarded messages
+                    // by the dead letter forwarder once they have been sent, and all others by the listener
+                    sqsContainerOptionsBuilder.acknowledgementMode(AcknowledgementMode.MANUAL);
+                }
+            });
+        }
+        MessageListener<Object> messageListener = new IntegrationMessageListener();
+        if (this.concurrencyLimiter != null) {
+            messageListener = new LatencyRecordingMessageListener(messageListener, this.concurrencyLimiter);
+        }
+        if (messageGroups) {
+            if (this.visibilityExtender != null) {
+                messageListener = new VisibilityExtendingMessageListener(messageListener, this.visibilityExtender);
+            }
+            // without a listener executor, the groups are processed by a pool which lives as long as the adapter runs
+            Executor executor = this.listenerExecutor != null ? this.listenerExecutor : task -> this.messageGroupExecutor.execute(task);
+            this.messageGroupBatchOperations = new SqsBatchOperations(sqsAsyncClient);
+            this.messageGroupDispatcher = new SqsMessageGroupDispatcher(executor, this.messageGroupConcurrency, messageListener::onMessage, this::releaseMessageGroup);
+            this.sqsMessageListenerContainerFactory.asyncMessageListener(new MessageGroupListener(this.messageGroupDispatcher));
+        } else if (this.listenerExecutor != null) {
+            this.sqsMessageListenerContainerFactory.asyncMessageListener(new ExecutorMessageListener(messageListener, this.listenerExecutor, this.visibilityExtender));
+        } else {
+            if (this.visibilityExtender != null) {
+                messageListener = new VisibilityExtendingMessageListener(messageListener, this.visibilityExtender);
+            }
+            this.sqsMessageListenerContainerFactory.messageListener(messageListener);
         }
-        this.sqsMessageListenerContainerFactory.messageListener(new IntegrationMessageListener());
 
+        String[] containerQueues = Arrays.stream(this.queues).map(queue -> this.queueUrls.getOrDefault(queue, queue)).toArray(String[]::new);
         for (int i = 0; i < concurrency; i++) {
-            final SqsMessageListenerContainer<Object> container = this.sqsMessageListenerContainerFactory.build().createContainer(this.queues);
+            final SqsMessageListenerContainer<Object> container = this.sqsMessageListenerContainerFactory.build().createContainer(containerQueues);
             this.listenerContainers.add(container);
         }
     }
@@ -61,18 +386,256 @@ public class SqsInboundChannelAdapter extends MessageProducerSupport {
     @Override
     protected void doStart() {
         super.doStart();
+        if (this.concurrencyLimiter != null) {
+            this.concurrencyLimiter.start();
+        }
+        if (this.visibilityExtender != null) {
+            this.visibilityExtender.start();
+        }
+        if (this.messageGroupDispatcher != null && this.listenerExecutor == null) {
+            this.messageGroupExecutor = Executors.newFixedThreadPool(this.messageGroupConcurrency, new CustomizableThreadFactory("sqs-message-group-"));
+        }
         this.listenerContainers.forEach(SqsMessageListenerContainer::start);
     }
 
+    @Override
+    public void destroy() {
+        super.destroy();
+        if (this.ownedListenerExecutor != null) {
+            this.ownedListenerExecutor.shutdown();
+        }
+    }
+
     @Override
     protected void doStop() {
         super.doStop();
         this.listenerContainers.forEach(SqsMessageListenerContainer::stop);
+        if (this.messageGroupExecutor != null) {
+            this.messageGroupExecutor.shutdown();
+        }
+        if (this.concurrencyLimiter != null) {
+            this.concurrencyLimiter.stop();
+        }
+        if (this.visibilityExtender != null) {
+            this.visibilityExtender.stop();
+        }
+        if (this.messageWindow != null) {
+            this.messageWindow.flush();
+        }
+        if (this.failureBackoff != null) {
+            this.failureBackoff.flush();
+        }
+        if (this.deadLetterForwarder != null) {
+            this.deadLetterForwarder.flush();
+        }
+    }
+
+    /**
+     * Waits for the metadata of all queues at once, whose resolution has usually been started when the destination
+     * was provisioned. Queues which cannot be resolved are passed to the containers by name, which resolve them again.
+     *
+     * @return the shortest visibility timeout of the queues which is long enough to be extended, or {@code null}
+     */
+    private Duration resolveQueues() {
+        if (this.queueMetadataCache == null) {
+            return null;
+        }
+        List<CompletableFuture<SqsQueueMetadata>> resolutions = Arrays.stream(this.queues).map(this.queueMetadataCache::resolve).toList();
+        try {
+            CompletableFuture.allOf(resolutions.toArray(CompletableFuture[]::new)).get(RESOLVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.warn("Failed to resolve all of the queues {}, the listener containers resolve them again", Arrays.toString(this.queues), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Duration visibilityTimeout = null;
+        for (int i = 0; i < this.queues.length; i++) {
+            CompletableFuture<SqsQueueMetadata> resolution = resolutions.get(i);
+            if (!resolution.isDone() || resolution.isCompletedExceptionally()) {
+                continue;
+            }
+            SqsQueueMetadata metadata = resolution.join();
+            this.queueUrls.put(this.queues[i], metadata.queueUrl());
+            if (metadata.visibilityTimeout() != null && metadata.visibilityTimeout().toSeconds() >= 2
+                    && (visibilityTimeout == null || metadata.visibilityTimeout().compareTo(visibilityTimeout) < 0)) {
+                visibilityTimeout = metadata.visibilityTimeout();
+            }
+        }
+        return visibilityTimeout;
+    }
+
+    /**
+     * Creates the default component factories of the containers, except that their message sources take the back
+     * pressure from the limiter instead of the fixed {@code maxConcurrentMessages} of the container options.
+     */
+    private static List<ContainerComponentFactory<Object, SqsContainerOptions>> limitingComponentFactories(SqsAdaptiveConcurrencyLimiter concurrencyLimiter) {
+        return List.of(new StandardSqsComponentFactory<>() {
+            @Override
+            public MessageSource<Object> createMessageSource(SqsContainerOptions options) {
+                return new StandardSqsMessageSource<>() {
+                    @Override
+                    public void setBackPressureHandler(BackPressureHandler backPressureHandler) {
+                        super.setBackPressureHandler(concurrencyLimiter.createBackPressureHandler(options.getMaxMessagesPerPoll(), options.getMaxDelayBetweenPolls()));
+                    }
+                };
+            }
+        }, new FifoSqsComponentFactory<>() {
+            @Override
+            public MessageSource<Object> createMessageSource(SqsContainerOptions options) {
+                return new FifoSqsMessageSource<>() {
+                    @Override
+                    public void setBackPressureHandler(BackPressureHandler backPressureHandler) {
+                        super.setBackPressureHandler(concurrencyLimiter.createBackPressureHandler(options.getMaxMessagesPerPoll(), options.getMaxDelayBetweenPolls()));
+                    }
+                };
+            }
+        });
+    }
+
+    /**
+     * Makes the failed message visible again unless the failure backoff delays its redelivery, and the remaining
+     * messages of its group right away. Since SQS does not deliver messages of a group while one of them is in
+     * flight, the group is redelivered in order.
+     */
+    private void releaseMessageGroup(Message<Object> failed, List<Message<Object>> remaining) {
+        List<Message<Object>> released = new ArrayList<>(remaining.size() + 1);
+        if (failed != null && this.failureBackoff == null) {
+            released.add(failed);
+        }
+        released.addAll(remaining);
+        if (!released.isEmpty()) {
+            this.messageGroupBatchOperations.changeMessageVisibility(released, Duration.ZERO);
+        }
+    }
+
+    /**
+     * Records the processing of the messages of a window while it is dispatched, not while they wait in the window.
+     */
+    private void dispatchWindow(List<Message<Object>> messages) {
+        recordProcessing(messages, () -> sendBatch(messages));
+    }
+
+    private void recordProcessing(Collection<Message<Object>> messages, Runnable processing) {
+        this.metrics.processingStarted(messages);
+        try {
+            processing.run();
+        } finally {
+            this.metrics.processingCompleted(messages);
+        }
+    }
+
+    private void sendBatch(List<Message<Object>> messages) {
+        List<Object> payloads = new ArrayList<>(messages.size());
+        List<Map<String, Object>> headers = new ArrayList<>(messages.size());
+        for (Message<Object> message : messages) {
+            payloads.add(message.getPayload());
+            headers.add(message.getHeaders());
+        }
+        send(MessageBuilder.withPayload(payloads)
+                .setHeader(SqsHeaders.BATCH_HEADERS, headers)
+                .build());
+    }
+
+    private void send(Message<?> message) {
+        long start = System.nanoTime();
+        try {
+            sendMessage(message);
+        } finally {
+            this.metrics.recordHandler(System.nanoTime() - start);
+        }
+    }
+
+    private Message<Object> convert(Message<Object> message) {
+        long start = System.nanoTime();
+        try {
+            // strips SNS notification json, leaving the actual message payload as SQS message
+            return getMessageBuilderFactory().fromMessage(decodePayload(message)).build();
+        } finally {
+            this.metrics.recordConversion(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Reverts what the producer did to the body in the opposite order: replaces the reference of an offloaded message
+     * with the payload, which is read straight from the store, and decompresses a compressed payload. The claim check
+     * and content encoding headers are removed, so that the message can be sent on like any other.
+     */
+    private Message<Object> decodePayload(Message<Object> message) {
+        boolean offloaded = message.getHeaders().containsKey(SqsHeaders.CLAIM_CHECK);
+        Object contentEncoding = message.getHeaders().get(SqsHeaders.CONTENT_ENCODING);
+        // without a store, an offloaded message is passed on with the reference as payload
+        if ((offloaded && this.payloadStore == null) || (!offloaded && contentEncoding == null)) {
+            return message;
+        }
+        String payload = offloaded ? retrievePayload(message, contentEncoding) : decompressPayload(message, contentEncoding.toString());
+        return MessageBuilder.withPayload((Object) payload)
+                .copyHeaders(message.getHeaders())
+                .removeHeader(SqsHeaders.CLAIM_CHECK)
+                .removeHeader(SqsHeaders.CONTENT_ENCODING)
+                .build();
+    }
+
+    /**
+     * Reads the payload from the store, rejecting it before the read if the size declared by the claim check exceeds
+     * the maximum. Compressed payloads are decompressed while they are read. Since the payload becomes a string, it
+     * cannot be streamed any further: it is read into a buffer of the declared size and decoded once.
+     */
+    private String retrievePayload(Message<Object> message, Object contentEncoding) {
+        String reference = String.valueOf(message.getPayload());
+        int declaredSize = declaredSize(message.getHeaders().get(SqsHeaders.CLAIM_CHECK));
+        if (declaredSize > this.maxRetrievedPayloadSize) {
+            throw new MessageConversionException(message, "Offloaded payload '" + reference + "' of " + declaredSize
+                    + " bytes exceeds the maximum of " + this.maxRetrievedPayloadSize + " bytes");
+        }
+        try (InputStream stored = this.payloadStore.retrieve(reference)) {
+            if (contentEncoding != null) {
+                return PayloadCompression.forContentEncoding(contentEncoding.toString()).decompress(stored, this.maxRetrievedPayloadSize);
+            }
+            return new String(readPayload(stored, declaredSize), StandardCharsets.UTF_8);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new MessageConversionException(message, "Failed to retrieve offloaded payload '" + reference + "'", e);
+        }
+    }
+
+    private byte[] readPayload(InputStream stored, int declaredSize) throws IOException {
+        if (declaredSize < 0) {
+            byte[] payload = stored.readNBytes(this.maxRetrievedPayloadSize);
+            if (stored.read() >= 0) {
+                throw new IOException("Payload exceeds the maximum size of " + this.maxRetrievedPayloadSize + " bytes");
+            }
+            return payload;
+        }
+        byte[] payload = new byte[declaredSize];
+        if (stored.readNBytes(payload, 0, declaredSize) < declaredSize || stored.read() >= 0) {
+            throw new IOException("Payload does not match its declared size of " + declaredSize + " bytes");
+        }
+        return payload;
+    }
+
+    private static int declaredSize(Object claimCheck) {
+        try {
+            return Integer.parseInt(String.valueOf(claimCheck));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private String decompressPayload(Message<Object> message, String contentEncoding) {
+        try {
+            return PayloadCompression.forContentEncoding(contentEncoding).decompress(String.valueOf(message.getPayload()));
+        } catch (IOException | IllegalArgumentException e) {
+            throw new MessageConversionException(message, "Failed to decompress payload with content encoding '" + contentEncoding + "'", e);
+        }
+    }
+
+    private boolean acknowledgesManually() {
+        return (this.deadLetterForwarder != null || this.messageGroupDispatcher != null) && this.messageWindow == null;
     }
 
     public boolean isRunning(String logicalQueueName) {
+        String containerQueue = this.queueUrls.getOrDefault(logicalQueueName, logicalQueueName);
         return this.listenerContainers.stream()
-                .filter(container -> container.getQueueNames().contains(logicalQueueName))
+                .filter(container -> container.getQueueNames().contains(containerQueue))
                 .anyMatch(SqsMessageListenerContainer::isRunning);
     }
 
@@ -87,14 +650,247 @@ public class SqsInboundChannelAdapter extends MessageProducerSupport {
 
         @Override
         public void onMessage(Message<Object> message) {
-            // strips SNS notification json, leaving the actual message payload as SQS message
-            sendMessage(getMessageBuilderFactory().fromMessage(message).build());
+            if (messageWindow != null) {
+                process(message);
+            } else {
+                recordProcessing(List.of(message), () -> process(message));
+            }
+        }
+
+        @Override
+        public void onMessage(Collection<Message<Object>> messages) {
+            if (messageWindow != null) {
+                process(messages);
+            } else {
+                recordProcessing(messages, () -> process(messages));
+            }
+        }
+
+        private void process(Message<Object> message) {
+            if (deadLetterForwarder != null && deadLetterForwarder.isExhausted(message)) {
+                deadLetterForwarder.forward(List.of(message));
+                return;
+            }
+            try {
+                Message<Object> converted = convert(message);
+                if (messageWindow != null) {
+                    messageWindow.add(List.of(converted));
+                } else {
+                    send(converted);
+                }
+            } catch (RuntimeException e) {
+                backoff(List.of(message));
+                throw e;
+            }
+            if (acknowledgesManually()) {
+                Acknowledgement.acknowledgeAsync(message);
+            }
+        }
+
+        /**
+         * Sends the batch as one message with a list payload and the headers of each message in the
+         * {@link SqsHeaders#BATCH_HEADERS} header. Messages which cannot be converted are left out and redelivered.
+         * If the consumer reports failed indices with a {@link SqsBatchProcessingException}, all other messages
+         * are acknowledged before the exception is rethrown, so that only the failed messages are redelivered.
+         * With windowing enabled, the converted messages are added to the current window instead. Messages which
+         * exceed the maximum receive count are forwarded to the dead letter queue before anything else.
+         */
+        private void process(Collection<Message<Object>> messages) {
+            List<Message<Object>> dispatched = new ArrayList<>(messages.size());
+            List<Message<Object>> converted = new ArrayList<>(messages.size());
+            List<Message<Object>> rejected = new ArrayList<>();
+            List<Message<Object>> exhausted = new ArrayList<>();
+            for (Message<Object> message : messages) {
+                if (deadLetterForwarder != null && deadLetterForwarder.isExhausted(message)) {
+                    exhausted.add(message);
+                    continue;
+                }
+                try {
+                    converted.add(convert(message));
+                    dispatched.add(message);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("Failed to convert message from batch, it will be redelivered", e);
+                    rejected.add(message);
+                }
+            }
+            backoff(rejected);
+            if (!exhausted.isEmpty()) {
+                deadLetterForwarder.forward(exhausted);
+            }
+
+            if (messageWindow != null) {
+                messageWindow.add(converted);
+                return;
+            }
+
+            if (!dispatched.isEmpty()) {
+                try {
+                    sendBatch(converted);
+                } catch (RuntimeException e) {
+                    SqsBatchProcessingException batchFailure = SqsMessageWindow.findBatchProcessingException(e);
+                    if (batchFailure != null) {
+                        acknowledge(dispatched, batchFailure.getFailedIndices());
+                    } else {
+                        backoff(dispatched);
+                    }
+                    throw e;
+                }
+            }
+
+            if (!rejected.isEmpty() || acknowledgesManually()) {
+                acknowledge(dispatched, Set.of());
+            }
+            if (!rejected.isEmpty()) {
+                throw new MessageConversionException(rejected.size() + " of " + messages.size() + " messages of the batch could not be converted");
+            }
+        }
+
+        private void acknowledge(List<Message<Object>> messages, Set<Integer> failedIndices) {
+            List<Message<Object>> succeeded = new ArrayList<>(messages.size());
+            List<Message<Object>> failed = new ArrayList<>(failedIndices.size());
+            for (int i = 0; i < messages.size(); i++) {
+                (failedIndices.contains(i) ? failed : succeeded).add(messages.get(i));
+            }
+            if (!succeeded.isEmpty()) {
+                Acknowledgement.acknowledgeAsync(succeeded);
+            }
+            backoff(failed);
+        }
+
+        private void backoff(List<Message<Object>> failed) {
+            if (failureBackoff != null && !failed.isEmpty()) {
+                failureBackoff.onFailure(failed);
+            }
+        }
+
+    }
+
+    /**
+     * Hands the messages of every poll to the dispatcher, whose future completes once all of them have been
+     * processed or released.
+     */
+    private static class MessageGroupListener implements AsyncMessageListener<Object> {
+
+        private final SqsMessageGroupDispatcher dispatcher;
+
+        MessageGroupListener(SqsMessageGroupDispatcher dispatcher) {
+            this.dispatcher = dispatcher;
+        }
+
+        @Override
+        public CompletableFuture<Void> onMessage(Message<Object> message) {
+            return this.dispatcher.dispatch(List.of(message));
+        }
+
+        @Override
+        public CompletableFuture<Void> onMessage(Collection<Message<Object>> messages) {
+            return this.dispatcher.dispatch(messages);
+        }
+    }
+
+    /**
+     * Reports the processing latency to the limiter, which lowers the limit once it degrades.
+     */
+    private static class LatencyRecordingMessageListener implements MessageListener<Object> {
+
+        private final MessageListener<Object> delegate;
+
+        private final SqsAdaptiveConcurrencyLimiter concurrencyLimiter;
+
+        LatencyRecordingMessageListener(MessageListener<Object> delegate, SqsAdaptiveConcurrencyLimiter concurrencyLimiter) {
+            this.delegate = delegate;
+            this.concurrencyLimiter = concurrencyLimiter;
+        }
+
+        @Override
+        public void onMessage(Message<Object> message) {
+            record(1, () -> this.delegate.onMessage(message));
         }
 
         @Override
         public void onMessage(Collection<Message<Object>> messages) {
-            onMessage(new GenericMessage<>(messages));
+            record(messages.size(), () -> this.delegate.onMessage(messages));
+        }
+
+        private void record(int messages, Runnable processing) {
+            long start = System.nanoTime();
+            try {
+                processing.run();
+            } finally {
+                this.concurrencyLimiter.record(messages, System.nanoTime() - start);
+            }
         }
+    }
+
+    private static class VisibilityExtendingMessageListener implements MessageListener<Object> {
+
+        private final MessageListener<Object> delegate;
 
+        private final SqsVisibilityExtender visibilityExtender;
+
+        VisibilityExtendingMessageListener(MessageListener<Object> delegate, SqsVisibilityExtender visibilityExtender) {
+            this.delegate = delegate;
+            this.visibilityExtender = visibilityExtender;
+        }
+
+        @Override
+        public void onMessage(Message<Object> message) {
+            List<Message<Object>> messages = List.of(message);
+            this.visibilityExtender.track(messages);
+            try {
+                this.delegate.onMessage(message);
+            } finally {
+                this.visibilityExtender.untrack(messages);
+            }
+        }
+
+        @Override
+        public void onMessage(Collection<Message<Object>> messages) {
+            this.visibilityExtender.track(messages);
+            try {
+                this.delegate.onMessage(messages);
+            } finally {
+                this.visibilityExtender.untrack(messages);
+            }
+        }
+    }
+
+    /**
+     * Hands the processing over to an executor, so that the threads of the listener container are released
+     * right away and only the returned future completes once the message has been processed. If visibility
+     * extension is enabled, messages are tracked while they wait for the executor as well.
+     */
+    private static class ExecutorMessageListener implements AsyncMessageListener<Object> {
+
+        private final MessageListener<Object> delegate;
+
+        private final Executor executor;
+
+        private final SqsVisibilityExtender visibilityExtender;
+
+        ExecutorMessageListener(MessageListener<Object> delegate, Executor executor, SqsVisibilityExtender visibilityExtender) {
+            this.delegate = delegate;
+            this.executor = executor;
+            this.visibilityExtender = visibilityExtender;
+        }
+
+        @Override
+        public CompletableFuture<Void> onMessage(Message<Object> message) {
+            return process(List.of(message), () -> this.delegate.onMessage(message));
+        }
+
+        @Override
+        public CompletableFuture<Void> onMessage(Collection<Message<Object>> messages) {
+            return process(messages, () -> this.delegate.onMessage(messages));
+        }
+
+        private CompletableFuture<Void> process(Collection<Message<Object>> messages, Runnable processing) {
+            if (this.visibilityExtender == null) {
+                return CompletableFuture.runAsync(processing, this.executor);
+            }
+            this.visibilityExtender.track(messages);
+            return CompletableFuture.runAsync(processing, this.executor)
+                    .whenComplete((result, throwable) -> this.visibilityExtender.untrack(messages));
+        }
     }
 }
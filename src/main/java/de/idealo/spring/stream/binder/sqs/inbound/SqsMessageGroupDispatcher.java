@@ -0,0 +1,226 @@
+package de.idealo.spring.stream.binder.sqs.inbound;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.util.Assert;
+
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+
+/**
+ * Processes messages of different message groups concurrently while strictly keeping the order of the messages
+ * within each group, as required for FIFO queues. Messages without a message group id are treated as a group of
+ * their own.
+ * <p>
+ * At most {@code maxConcurrentGroups} groups are processed at the same time. Groups with pending messages take
+ * turns: after {@code messagesPerTurn} messages a group goes back to the end of the line, so that a hot group
+ * cannot starve the others. If a message fails, the remaining pending messages of its group are not processed but
+ * handed to the failure callback, so that their visibility can be released and the group is redelivered in order.
+ * The same happens to all pending messages of a group whose turn is rejected by the executor, e.g. while it shuts
+ * down.
+ */
+public class SqsMessageGroupDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqsMessageGroupDispatcher.class);
+
+    private final Executor executor;
+
+    private final int maxConcurrentGroups;
+
+    private final Consumer<Message<Object>> handler;
+
+    private final BiConsumer<Message<Object>, List<Message<Object>>> failureHandler;
+
+    private final Object monitor = new Object();
+
+    private final Map<String, MessageGroup> groups = new HashMap<>();
+
+    private final Deque<MessageGroup> readyGroups = new ArrayDeque<>();
+
+    private int activeGroups;
+
+    private int messagesPerTurn = 1;
+
+    /**
+     * @param handler processes one message and throws an exception if it failed
+     * @param failureHandler receives the failed message and the remaining messages of its group, which have not
+     * been processed. The failed message is {@code null} if the turn of the group was rejected by the executor.
+     */
+    public SqsMessageGroupDispatcher(Executor executor, int maxConcurrentGroups, Consumer<Message<Object>> handler,
+                                     BiConsumer<Message<Object>, List<Message<Object>>> failureHandler) {
+        Assert.notNull(executor, "'executor' must not be null");
+        Assert.isTrue(maxConcurrentGroups > 0, "'maxConcurrentGroups' must be greater than 0");
+        Assert.notNull(handler, "'handler' must not be null");
+        Assert.notNull(failureHandler, "'failureHandler' must not be null");
+        this.executor = executor;
+        this.maxConcurrentGroups = maxConcurrentGroups;
+        this.handler = handler;
+        this.failureHandler = failureHandler;
+    }
+
+    /**
+     * Set the number of messages a group may process before it has to let other groups take their turn.
+     */
+    public void setMessagesPerTurn(int messagesPerTurn) {
+        Assert.isTrue(messagesPerTurn > 0, "'messagesPerTurn' must be greater than 0");
+        this.messagesPerTurn = messagesPerTurn;
+    }
+
+    /**
+     * Queue the messages behind the pending messages of their groups.
+     *
+     * @return a future which completes once all given messages have been processed or handed to the failure
+     * callback
+     */
+    public CompletableFuture<Void> dispatch(Collection<Message<Object>> messages) {
+        if (messages.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Dispatch dispatch = new Dispatch(messages.size());
+        synchronized (this.monitor) {
+            for (Message<Object> message : messages) {
+                MessageGroup group = this.groups.computeIfAbsent(groupId(message), MessageGroup::new);
+                group.pending.add(new PendingMessage(message, dispatch));
+                if (!group.scheduled) {
+                    group.scheduled = true;
+                    this.readyGroups.add(group);
+                }
+            }
+        }
+        schedule();
+        return dispatch.completion;
+    }
+
+    private void schedule() {
+        List<MessageGroup> turns = new ArrayList<>();
+        synchronized (this.monitor) {
+            while (this.activeGroups < this.maxConcurrentGroups && !this.readyGroups.isEmpty()) {
+                this.activeGroups++;
+                turns.add(this.readyGroups.poll());
+            }
+        }
+        for (MessageGroup group : turns) {
+            try {
+                this.executor.execute(() -> takeTurn(group));
+            } catch (RejectedExecutionException e) {
+                reject(group, e);
+            }
+        }
+    }
+
+    private void reject(MessageGroup group, RejectedExecutionException exception) {
+        List<PendingMessage> pending;
+        synchronized (this.monitor) {
+            pending = new ArrayList<>(group.pending);
+            group.pending.clear();
+            group.scheduled = false;
+            this.groups.remove(group.id);
+            this.activeGroups--;
+        }
+        LOGGER.warn("Executor rejected turn of group '{}', releasing its {} pending messages", group.id, pending.size(), exception);
+        try {
+            this.failureHandler.accept(null, pending.stream().map(PendingMessage::message).toList());
+        } finally {
+            pending.forEach(message -> message.dispatch.completed(1));
+        }
+    }
+
+    private void takeTurn(MessageGroup group) {
+        try {
+            for (int i = 0; i < this.messagesPerTurn; i++) {
+                PendingMessage next;
+                synchronized (this.monitor) {
+                    next = group.pending.poll();
+                }
+                if (next == null || !process(group, next)) {
+                    break;
+                }
+            }
+        } finally {
+            synchronized (this.monitor) {
+                this.activeGroups--;
+                if (group.pending.isEmpty()) {
+                    group.scheduled = false;
+                    this.groups.remove(group.id);
+                } else {
+                    this.readyGroups.add(group);
+                }
+            }
+            schedule();
+        }
+    }
+
+    private boolean process(MessageGroup group, PendingMessage pendingMessage) {
+        try {
+            this.handler.accept(pendingMessage.message);
+            pendingMessage.dispatch.completed(1);
+            return true;
+        } catch (RuntimeException e) {
+            List<PendingMessage> remaining;
+            synchronized (this.monitor) {
+                remaining = new ArrayList<>(group.pending);
+                group.pending.clear();
+            }
+            LOGGER.debug("Failed to process message of group '{}', releasing {} remaining messages of the group", group.id, remaining.size(), e);
+            try {
+                this.failureHandler.accept(pendingMessage.message, remaining.stream().map(PendingMessage::message).toList());
+            } finally {
+                pendingMessage.dispatch.completed(1);
+                remaining.forEach(message -> message.dispatch.completed(1));
+            }
+            return false;
+        }
+    }
+
+    private static String groupId(Message<?> message) {
+        Object groupId = message.getHeaders().get(SqsHeaders.MessageSystemAttributes.SQS_MESSAGE_GROUP_ID_HEADER);
+        return groupId != null ? groupId.toString() : String.valueOf(message.getHeaders().getId());
+    }
+
+    private static final class MessageGroup {
+
+        private final String id;
+
+        private final Deque<PendingMessage> pending = new ArrayDeque<>();
+
+        private boolean scheduled;
+
+        MessageGroup(String id) {
+            this.id = id;
+        }
+    }
+
+    private record PendingMessage(Message<Object> message, Dispatch dispatch) {
+    }
+
+    private static final class Dispatch {
+
+        private final AtomicInteger remaining;
+
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        Dispatch(int messages) {
+            this.remaining = new AtomicInteger(messages);
+        }
+
+        void completed(int messages) {
+            if (this.remaining.addAndGet(-messages) == 0) {
+                this.completion.complete(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package de.idealo.spring.stream.binder.sqs.inbound;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
+
+import de.idealo.spring.stream.binder.sqs.SqsBatchProcessingException;
+import de.idealo.spring.stream.binder.sqs.outbound.AbstractSqsMessageHandler;
+
+/**
+ * Aggregates received messages across polls and listener containers into windows which are dispatched as one batch
+ * once they hold {@code maxSize} messages, reach {@code maxBytes} or have been open for {@code timeout}. Full windows
+ * are dispatched by the thread adding the last message, windows which timed out by the dispatch executor, so that
+ * the task scheduler only schedules. While {@code maxPendingWindows} windows are being dispatched, adding messages
+ * blocks, which holds back the listener containers from polling more messages that would not be acknowledged.
+ * <p>
+ * The messages of a window are not acknowledged by the listener container. While a window is open or being
+ * dispatched, the visibility of its messages is extended every half visibility timeout. After the dispatch all
+ * messages are deleted with DeleteMessageBatch requests, except for the ones reported as failed by a
+ * {@link SqsBatchProcessingException}, which are made visible again right away or after the configured
+ * {@link SqsFailureBackoff}.
+ */
+public class SqsMessageWindow {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqsMessageWindow.class);
+
+    private final SqsBatchOperations batchOperations;
+
+    private final TaskScheduler taskScheduler;
+
+    private final Consumer<List<Message<Object>>> dispatcher;
+
+    private final Object monitor = new Object();
+
+    private int maxSize = 500;
+
+    private long maxBytes = Long.MAX_VALUE;
+
+    private Duration timeout = Duration.ofSeconds(2);
+
+    private Duration visibilityTimeout = Duration.ofSeconds(30);
+
+    private SqsFailureBackoff failureBackoff;
+
+    private int maxPendingWindows = 1;
+
+    private Executor dispatchExecutor = new SimpleAsyncTaskExecutor("sqs-message-window-");
+
+    private Window currentWindow;
+
+    private int pendingWindows;
+
+    public SqsMessageWindow(SqsBatchOperations batchOperations, TaskScheduler taskScheduler, Consumer<List<Message<Object>>> dispatcher) {
+        Assert.notNull(batchOperations, "'batchOperations' must not be null");
+        Assert.notNull(taskScheduler, "'taskScheduler' must not be null");
+        Assert.notNull(dispatcher, "'dispatcher' must not be null");
+        this.batchOperations = batchOperations;
+        this.taskScheduler = taskScheduler;
+        this.dispatcher = dispatcher;
+    }
+
+    public void setMaxSize(int maxSize) {
+        Assert.isTrue(maxSize > 0, "'maxSize' must be greater than 0");
+        this.maxSize = maxSize;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        Assert.isTrue(maxBytes > 0, "'maxBytes' must be greater than 0");
+        this.maxBytes = maxBytes;
+    }
+
+    public void setTimeout(Duration timeout) {
+        Assert.isTrue(timeout != null && !timeout.isNegative() && !timeout.isZero(), "'timeout' must be positive");
+        this.timeout = timeout;
+    }
+
+    public void setVisibilityTimeout(Duration visibilityTimeout) {
+        Assert.isTrue(visibilityTimeout != null && visibilityTimeout.toSeconds() >= 2, "'visibilityTimeout' must be at least 2 seconds");
+        this.visibilityTimeout = visibilityTimeout;
+    }
+
+    /**
+     * Set the backoff for the redelivery of failed messages. Without a backoff, they are made visible again right
+     * away.
+     */
+    public void setFailureBackoff(SqsFailureBackoff failureBackoff) {
+        this.failureBackoff = failureBackoff;
+    }
+
+    /**
+     * Set the number of windows that may be dispatched at the same time before adding messages blocks. Default is 1.
+     */
+    public void setMaxPendingWindows(int maxPendingWindows) {
+        Assert.isTrue(maxPendingWindows > 0, "'maxPendingWindows' must be greater than 0");
+        this.maxPendingWindows = maxPendingWindows;
+    }
+
+    /**
+     * Set the executor which dispatches windows once they timed out. Defaults to a new thread per window, of which
+     * there are at most {@code maxPendingWindows + 1} as adding messages blocks beyond that.
+     */
+    public void setDispatchExecutor(Executor dispatchExecutor) {
+        Assert.notNull(dispatchExecutor, "'dispatchExecutor' must not be null");
+        this.dispatchExecutor = dispatchExecutor;
+    }
+
+    /**
+     * Add the messages to the current window. A window that is full is dispatched on the calling thread. Blocks while
+     * {@code maxPendingWindows} windows are being dispatched.
+     */
+    public void add(Collection<Message<Object>> messages) {
+        List<Window> fullWindows = new ArrayList<>(1);
+        synchronized (this.monitor) {
+            awaitPendingWindows();
+            for (Message<Object> message : messages) {
+                if (this.currentWindow == null) {
+                    this.currentWindow = open();
+                }
+                this.currentWindow.messages.add(message);
+                this.currentWindow.bytes += estimateSize(message.getPayload());
+                if (this.currentWindow.messages.size() >= this.maxSize || this.currentWindow.bytes >= this.maxBytes) {
+                    fullWindows.add(close(this.currentWindow));
+                }
+            }
+        }
+        fullWindows.forEach(this::dispatch);
+    }
+
+    /**
+     * Dispatch the current window right away, regardless of its size and age.
+     */
+    public void flush() {
+        Window window;
+        synchronized (this.monitor) {
+            window = this.currentWindow != null ? close(this.currentWindow) : null;
+        }
+        if (window != null) {
+            dispatch(window);
+        }
+    }
+
+    private void awaitPendingWindows() {
+        try {
+            while (this.pendingWindows >= this.maxPendingWindows) {
+                this.monitor.wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Window open() {
+        Window window = new Window();
+        window.timeoutFlush = this.taskScheduler.schedule(() -> flush(window), Instant.now().plus(this.timeout));
+        Duration heartbeatInterval = this.visibilityTimeout.dividedBy(2);
+        window.heartbeat = this.taskScheduler.scheduleAtFixedRate(() -> extendVisibility(window), Instant.now().plus(heartbeatInterval), heartbeatInterval);
+        return window;
+    }
+
+    private Window close(Window window) {
+        window.timeoutFlush.cancel(false);
+        this.currentWindow = null;
+        this.pendingWindows++;
+        return window;
+    }
+
+    private void flush(Window window) {
+        synchronized (this.monitor) {
+            if (this.currentWindow != window) {
+                return;
+            }
+            close(window);
+        }
+        try {
+            this.dispatchExecutor.execute(() -> dispatch(window));
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Dispatch executor rejected window of {} messages, dispatching it on the scheduler", window.messages.size(), e);
+            dispatch(window);
+        }
+    }
+
+    private void extendVisibility(Window window) {
+        List<Message<Object>> messages;
+        synchronized (this.monitor) {
+            messages = new ArrayList<>(window.messages);
+        }
+        this.batchOperations.changeMessageVisibility(messages, this.visibilityTimeout);
+    }
+
+    private void dispatch(Window window) {
+        List<Message<Object>> messages = window.messages;
+        try {
+            this.dispatcher.accept(messages);
+            this.batchOperations.deleteMessages(messages);
+        } catch (RuntimeException e) {
+            SqsBatchProcessingException batchFailure = findBatchProcessingException(e);
+            if (batchFailure == null) {
+                LOGGER.error("Failed to process window of {} messages, all of them will be redelivered", messages.size(), e);
+                redeliver(messages);
+                return;
+            }
+            LOGGER.warn("Failed to process {} of {} messages of window, they will be redelivered", batchFailure.getFailedIndices().size(), messages.size(), e);
+            acknowledgePartially(messages, batchFailure.getFailedIndices());
+        } finally {
+            window.heartbeat.cancel(false);
+            synchronized (this.monitor) {
+                this.pendingWindows--;
+                this.monitor.notifyAll();
+            }
+        }
+    }
+
+    private void acknowledgePartially(List<Message<Object>> messages, Set<Integer> failedIndices) {
+        List<Message<Object>> succeeded = new ArrayList<>(messages.size());
+        List<Message<Object>> failed = new ArrayList<>(failedIndices.size());
+        for (int i = 0; i < messages.size(); i++) {
+            (failedIndices.contains(i) ? failed : succeeded).add(messages.get(i));
+        }
+        this.batchOperations.deleteMessages(succeeded);
+        redeliver(failed);
+    }
+
+    private void redeliver(List<Message<Object>> messages) {
+        if (this.failureBackoff != null) {
+            this.failureBackoff.onFailure(messages);
+        } else {
+            this.batchOperations.changeMessageVisibility(messages, Duration.ZERO);
+        }
+    }
+
+    static SqsBatchProcessingException findBatchProcessingException(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause != null) {
+            if (cause instanceof SqsBatchProcessingException batchProcessingException) {
+                return batchProcessingException;
+            }
+            cause = cause.getCause();
+        }
+        return null;
+    }
+
+    private static long estimateSize(Object payload) {
+        if (payload instanceof String text) {
+            return AbstractSqsMessageHandler.utf8Length(text);
+        }
+        if (payload instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        return 0;
+    }
+
+    private static final class Window {
+
+        private final List<Message<Object>> messages = new ArrayList<>();
+
+        private long bytes;
+
+        private ScheduledFuture<?> timeoutFlush;
+
+        private ScheduledFuture<?> heartbeat;
+    }
+}
@@ -0,0 +1,123 @@
+package de.idealo.spring.stream.binder.sqs.inbound;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
+
+/**
+ * Keeps messages invisible while they are being processed, so that the visibility timeout of a queue can stay short
+ * and messages of a crashed consumer are redelivered quickly.
+ * <p>
+ * Messages are tracked from the moment they are handed to the consumer until processing completed. Every half
+ * visibility timeout the visibility of all tracked messages is extended with ChangeMessageVisibilityBatch requests.
+ * Messages which have been tracked for longer than {@code maxExtension} are no longer extended and become visible
+ * again once their current visibility timeout expires.
+ */
+public class SqsVisibilityExtender {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqsVisibilityExtender.class);
+
+    private final SqsBatchOperations batchOperations;
+
+    private final TaskScheduler taskScheduler;
+
+    private final Object monitor = new Object();
+
+    private final Map<UUID, InFlightMessage> inFlight = new ConcurrentHashMap<>();
+
+    private Duration visibilityTimeout = Duration.ofSeconds(30);
+
+    private Duration maxExtension = Duration.ofHours(1);
+
+    private ScheduledFuture<?> heartbeat;
+
+    public SqsVisibilityExtender(SqsBatchOperations batchOperations, TaskScheduler taskScheduler) {
+        Assert.notNull(batchOperations, "'batchOperations' must not be null");
+        Assert.notNull(taskScheduler, "'taskScheduler' must not be null");
+        this.batchOperations = batchOperations;
+        this.taskScheduler = taskScheduler;
+    }
+
+    public void setVisibilityTimeout(Duration visibilityTimeout) {
+        Assert.isTrue(visibilityTimeout != null && visibilityTimeout.toSeconds() >= 2, "'visibilityTimeout' must be at least 2 seconds");
+        this.visibilityTimeout = visibilityTimeout;
+    }
+
+    /**
+     * Set the maximum time for which the visibility of a message is extended, measured from the start of its
+     * processing.
+     */
+    public void setMaxExtension(Duration maxExtension) {
+        Assert.isTrue(maxExtension != null && !maxExtension.isNegative(), "'maxExtension' must not be negative");
+        this.maxExtension = maxExtension;
+    }
+
+    public void start() {
+        synchronized (this.monitor) {
+            if (this.heartbeat == null) {
+                Duration interval = this.visibilityTimeout.dividedBy(2);
+                this.heartbeat = this.taskScheduler.scheduleAtFixedRate(this::extendVisibility, Instant.now().plus(interval), interval);
+            }
+        }
+    }
+
+    public void stop() {
+        synchronized (this.monitor) {
+            if (this.heartbeat != null) {
+                this.heartbeat.cancel(false);
+                this.heartbeat = null;
+            }
+        }
+    }
+
+    public void track(Collection<? extends Message<?>> messages) {
+        Instant now = Instant.now();
+        for (Message<?> message : messages) {
+            this.inFlight.put(message.getHeaders().getId(), new InFlightMessage(message, now));
+        }
+    }
+
+    public void untrack(Collection<? extends Message<?>> messages) {
+        for (Message<?> message : messages) {
+            this.inFlight.remove(message.getHeaders().getId());
+        }
+    }
+
+    public int getInFlight() {
+        return this.inFlight.size();
+    }
+
+    void extendVisibility() {
+        Instant deadline = Instant.now().minus(this.maxExtension);
+        List<Message<?>> messages = new ArrayList<>(this.inFlight.size());
+        for (Iterator<InFlightMessage> it = this.inFlight.values().iterator(); it.hasNext(); ) {
+            InFlightMessage inFlightMessage = it.next();
+            if (inFlightMessage.since().isBefore(deadline)) {
+                LOGGER.warn("Message {} is still being processed after {}, its visibility will no longer be extended",
+                        inFlightMessage.message().getHeaders().getId(), this.maxExtension);
+                it.remove();
+            } else {
+                messages.add(inFlightMessage.message());
+            }
+        }
+        if (!messages.isEmpty()) {
+            this.batchOperations.changeMessageVisibility(messages, this.visibilityTimeout);
+        }
+    }
+
+    private record InFlightMessage(Message<?> message, Instant since) {
+    }
+}
@@ -0,0 +1,261 @@
+package de.idealo.spring.stream.binder.sqs.metrics;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.messaging.Message;
+import org.springframework.util.Assert;
+
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageResponse;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+
+import de.idealo.spring.stream.binder.sqs.DelegatingSqsAsyncClient;
+
+/**
+ * Registers the metrics of the bindings with a {@link MeterRegistry}, tagged with the name of the binding and the
+ * queue. All meters are created once per binding, so that recording only costs a clock read and an update.
+ */
+public class MicrometerSqsMetricsFactory implements SqsMetricsFactory {
+
+    public static final String METRIC_PREFIX = "sqs.binder.";
+
+    private final MeterRegistry meterRegistry;
+
+    public MicrometerSqsMetricsFactory(MeterRegistry meterRegistry) {
+        Assert.notNull(meterRegistry, "'meterRegistry' must not be null");
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public SqsConsumerMetrics consumerMetrics(String binding, String queue) {
+        return new MicrometerConsumerMetrics(this.meterRegistry, Tags.of("binding", binding, "queue", queue));
+    }
+
+    @Override
+    public SqsProducerMetrics producerMetrics(String binding, String queue) {
+        return new MicrometerProducerMetrics(this.meterRegistry, Tags.of("binding", binding, "queue", queue));
+    }
+
+    private static class MicrometerConsumerMetrics implements SqsConsumerMetrics {
+
+        private final Timer pollTimer;
+
+        private final DistributionSummary messagesPerReceive;
+
+        private final Counter emptyReceives;
+
+        private final Timer conversionTimer;
+
+        private final Timer handlerTimer;
+
+        private final Timer acknowledgementTimer;
+
+        private final DistributionSummary dwellTime;
+
+        private final DistributionSummary lag;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private final Map<UUID, Long> inFlightSentTimestamps = new ConcurrentHashMap<>();
+
+        MicrometerConsumerMetrics(MeterRegistry meterRegistry, Tags tags) {
+            this.pollTimer = Timer.builder(METRIC_PREFIX + "consumer.poll")
+                    .description("Latency of ReceiveMessage requests")
+                    .tags(tags)
+                    .register(meterRegistry);
+            this.messagesPerReceive = DistributionSummary.builder(METRIC_PREFIX + "consumer.receive.messages")
+                    .description("Number of messages returned per ReceiveMessage request")
+                    .tags(tags)
+                    .register(meterRegistry);
+            this.emptyReceives = Counter.builder(METRIC_PREFIX + "consumer.receive.empty")
+                    .description("Number of ReceiveMessage requests which returned no messages")
+                    .tags(tags)
+                    .register(meterRegistry);
+            this.conversionTimer = Timer.builder(METRIC_PREFIX + "consumer.conversion")
+                    .description("Time to convert a received message, including SNS unwrapping")
+                    .tags(tags)
+                    .register(meterRegistry);
+            this.handlerTimer = Timer.builder(METRIC_PREFIX + "consumer.handler")
+                    .description("Time the consumer takes to process a message or batch")
+                    .tags(tags)
+                    .register(meterRegistry);
+            this.acknowledgementTimer = Timer.builder(METRIC_PREFIX + "consumer.ack")
+                    .description("Latency of DeleteMessage and DeleteMessageBatch requests")
+                    .tags(tags)
+                    .register(meterRegistry);
+            Gauge.builder(METRIC_PREFIX + "consumer.inflight", this.inFlight, AtomicInteger::get)
+                    .description("Number of messages currently being processed")
+                    .tags(tags)
+                    .register(meterRegistry);
+            this.dwellTime = DistributionSummary.builder(METRIC_PREFIX + "consumer.dwell")
+                    .description("Time a message waited in the queue until it was received for the first time")
+                    .baseUnit("milliseconds")
+                    .tags(tags)
+                    .register(meterRegistry);
+            this.lag = DistributionSummary.builder(METRIC_PREFIX + "consumer.lag")
+                    .description("Time from sending a message until its processing completed")
+                    .baseUnit("milliseconds")
+                    .tags(tags)
+                    .register(meterRegistry);
+            Gauge.builder(METRIC_PREFIX + "consumer.inflight.oldest.age", this, MicrometerConsumerMetrics::oldestInFlightAge)
+                    .description("Time since the oldest message currently being processed was sent")
+                    .baseUnit("milliseconds")
+                    .tags(tags)
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public SqsAsyncClient instrument(SqsAsyncClient sqsAsyncClient) {
+            return new DelegatingSqsAsyncClient(sqsAsyncClient) {
+                @Override
+                public CompletableFuture<ReceiveMessageResponse> receiveMessage(ReceiveMessageRequest request) {
+                    long start = System.nanoTime();
+                    return super.receiveMessage(request).whenComplete((response, throwable) -> {
+                        pollTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        if (response != null) {
+                            int messages = response.hasMessages() ? response.messages().size() : 0;
+                            messagesPerReceive.record(messages);
+                            if (messages == 0) {
+                                emptyReceives.increment();
+                            }
+                        }
+                    });
+                }
+
+                @Override
+                public CompletableFuture<DeleteMessageResponse> deleteMessage(DeleteMessageRequest request) {
+                    long start = System.nanoTime();
+                    return super.deleteMessage(request)
+                            .whenComplete((response, throwable) -> acknowledgementTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+                }
+
+                @Override
+                public CompletableFuture<DeleteMessageBatchResponse> deleteMessageBatch(DeleteMessageBatchRequest request) {
+                    long start = System.nanoTime();
+                    return super.deleteMessageBatch(request)
+                            .whenComplete((response, throwable) -> acknowledgementTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+                }
+            };
+        }
+
+        @Override
+        public void recordConversion(long nanos) {
+            this.conversionTimer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void recordHandler(long nanos) {
+            this.handlerTimer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void processingStarted(Collection<? extends Message<?>> messages) {
+            this.inFlight.addAndGet(messages.size());
+            for (Message<?> message : messages) {
+                long sentTimestamp = timestamp(message, SqsHeaders.MessageSystemAttributes.SQS_SENT_TIMESTAMP);
+                if (sentTimestamp <= 0) {
+                    continue;
+                }
+                long firstReceiveTimestamp = timestamp(message, SqsHeaders.MessageSystemAttributes.SQS_APPROXIMATE_FIRST_RECEIVE_TIMESTAMP);
+                if (firstReceiveTimestamp >= sentTimestamp) {
+                    this.dwellTime.record(firstReceiveTimestamp - sentTimestamp);
+                }
+                this.inFlightSentTimestamps.put(message.getHeaders().getId(), sentTimestamp);
+            }
+        }
+
+        @Override
+        public void processingCompleted(Collection<? extends Message<?>> messages) {
+            this.inFlight.addAndGet(-messages.size());
+            long now = System.currentTimeMillis();
+            for (Message<?> message : messages) {
+                Long sentTimestamp = this.inFlightSentTimestamps.remove(message.getHeaders().getId());
+                if (sentTimestamp != null) {
+                    this.lag.record(Math.max(0, now - sentTimestamp));
+                }
+            }
+        }
+
+        private double oldestInFlightAge() {
+            long oldest = Long.MAX_VALUE;
+            for (Long sentTimestamp : this.inFlightSentTimestamps.values()) {
+                oldest = Math.min(oldest, sentTimestamp);
+            }
+            return oldest == Long.MAX_VALUE ? 0 : Math.max(0, System.currentTimeMillis() - oldest);
+        }
+
+        private static long timestamp(Message<?> message, String header) {
+            Object value = message.getHeaders().get(header);
+            if (value instanceof Number number) {
+                return number.longValue();
+            }
+            if (value instanceof String text) {
+                try {
+                    return Long.parseLong(text);
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static class MicrometerProducerMetrics implements SqsProducerMetrics {
+
+        private final Timer sendTimer;
+
+        private final DistributionSummary batchSize;
+
+        MicrometerProducerMetrics(MeterRegistry meterRegistry, Tags tags) {
+            this.sendTimer = Timer.builder(METRIC_PREFIX + "producer.send")
+                    .description("Latency of SendMessage and SendMessageBatch requests")
+                    .tags(tags)
+                    .register(meterRegistry);
+            this.batchSize = DistributionSummary.builder(METRIC_PREFIX + "producer.batch.size")
+                    .description("Number of messages per SendMessageBatch request")
+                    .tags(tags)
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public SqsAsyncClient instrument(SqsAsyncClient sqsAsyncClient) {
+            return new DelegatingSqsAsyncClient(sqsAsyncClient) {
+                @Override
+                public CompletableFuture<SendMessageResponse> sendMessage(SendMessageRequest request) {
+                    long start = System.nanoTime();
+                    return super.sendMessage(request)
+                            .whenComplete((response, throwable) -> sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+                }
+
+                @Override
+                public CompletableFuture<SendMessageBatchResponse> sendMessageBatch(SendMessageBatchRequest request) {
+                    long start = System.nanoTime();
+                    batchSize.record(request.entries().size());
+                    return super.sendMessageBatch(request)
+                            .whenComplete((response, throwable) -> sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+                }
+            };
+        }
+    }
+}
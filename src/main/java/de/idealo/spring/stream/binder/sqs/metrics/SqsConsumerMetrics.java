@@ -0,0 +1,42 @@
+package de.idealo.spring.stream.binder.sqs.metrics;
+
+import java.util.Collection;
+
+import org.springframework.messaging.Message;
+
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+
+/**
+ * Records the metrics of a consumer binding. Receives and acknowledgements are recorded by the client returned
+ * from {@link #instrument(SqsAsyncClient)}, everything else by the inbound channel adapter.
+ */
+public interface SqsConsumerMetrics {
+
+    SqsConsumerMetrics NOOP = new SqsConsumerMetrics() {
+    };
+
+    /**
+     * @return a client which records the latency and size of receives and the latency of acknowledgements
+     */
+    default SqsAsyncClient instrument(SqsAsyncClient sqsAsyncClient) {
+        return sqsAsyncClient;
+    }
+
+    default void recordConversion(long nanos) {
+    }
+
+    default void recordHandler(long nanos) {
+    }
+
+    /**
+     * Called once the messages have been received and are about to be processed.
+     */
+    default void processingStarted(Collection<? extends Message<?>> messages) {
+    }
+
+    /**
+     * Called once processing of the messages completed, regardless of its outcome.
+     */
+    default void processingCompleted(Collection<? extends Message<?>> messages) {
+    }
+}
@@ -0,0 +1,24 @@
+package de.idealo.spring.stream.binder.sqs.metrics;
+
+/**
+ * Creates the metrics of a binding. Implementations must not require Micrometer on the classpath of callers, so
+ * that the binder works without it.
+ */
+public interface SqsMetricsFactory {
+
+    SqsMetricsFactory NOOP = new SqsMetricsFactory() {
+        @Override
+        public SqsConsumerMetrics consumerMetrics(String binding, String queue) {
+            return SqsConsumerMetrics.NOOP;
+        }
+
+        @Override
+        public SqsProducerMetrics producerMetrics(String binding, String queue) {
+            return SqsProducerMetrics.NOOP;
+        }
+    };
+
+    SqsConsumerMetrics consumerMetrics(String binding, String queue);
+
+    SqsProducerMetrics producerMetrics(String binding, String queue);
+}
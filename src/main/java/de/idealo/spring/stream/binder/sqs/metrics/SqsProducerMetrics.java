@@ -0,0 +1,19 @@
+package de.idealo.spring.stream.binder.sqs.metrics;
+
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+
+/**
+ * Records the metrics of a producer binding through the client used by its message handler.
+ */
+public interface SqsProducerMetrics {
+
+    SqsProducerMetrics NOOP = new SqsProducerMetrics() {
+    };
+
+    /**
+     * @return a client which records the latency of sends and the size of batches
+     */
+    default SqsAsyncClient instrument(SqsAsyncClient sqsAsyncClient) {
+        return sqsAsyncClient;
+    }
+}
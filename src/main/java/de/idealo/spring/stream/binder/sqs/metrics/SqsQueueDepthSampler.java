@@ -0,0 +1,226 @@
+package de.idealo.spring.stream.binder.sqs.metrics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.util.Assert;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+
+import de.idealo.spring.stream.binder.sqs.SqsMessageHandlerBinder;
+import de.idealo.spring.stream.binder.sqs.inbound.SqsInboundChannelAdapter;
+import de.idealo.spring.stream.binder.sqs.provisioning.SqsQueueMetadataCache;
+
+/**
+ * Publishes the approximate number of visible, in flight and delayed messages of every queue bound by the binder as
+ * gauges, tagged with the {@code queue}. All three values are fetched with one GetQueueAttributes request per queue
+ * and sampling interval, so reading the gauges never calls SQS.
+ * <p>
+ * Queues are discovered from the adapters of the binder on every sampling, so bindings which are started later are
+ * picked up as well. The interval is randomly moved by up to {@code jitter}, so that many instances do not poll the
+ * same queue at the same time. Until the first successful sampling of a queue its gauges report {@code NaN}.
+ */
+public class SqsQueueDepthSampler implements SmartLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqsQueueDepthSampler.class);
+
+    private final SqsMessageHandlerBinder binder;
+
+    private final MeterRegistry meterRegistry;
+
+    private final TaskScheduler taskScheduler;
+
+    private final Map<String, QueueDepth> queueDepths = new ConcurrentHashMap<>();
+
+    private final Object monitor = new Object();
+
+    private Duration interval = Duration.ofSeconds(15);
+
+    private double jitter = 0.1;
+
+    private ScheduledFuture<?> scheduledSampling;
+
+    private volatile boolean running;
+
+    public SqsQueueDepthSampler(SqsMessageHandlerBinder binder, MeterRegistry meterRegistry, TaskScheduler taskScheduler) {
+        Assert.notNull(binder, "'binder' must not be null");
+        Assert.notNull(meterRegistry, "'meterRegistry' must not be null");
+        Assert.notNull(taskScheduler, "'taskScheduler' must not be null");
+        this.binder = binder;
+        this.meterRegistry = meterRegistry;
+        this.taskScheduler = taskScheduler;
+    }
+
+    public void setInterval(Duration interval) {
+        Assert.isTrue(interval != null && interval.toMillis() > 0, "'interval' must be positive");
+        this.interval = interval;
+    }
+
+    /**
+     * Set the share of the interval, between 0 and 1, by which each sampling is randomly moved.
+     */
+    public void setJitter(double jitter) {
+        Assert.isTrue(jitter >= 0.0 && jitter <= 1.0, "'jitter' must be between 0 and 1");
+        this.jitter = jitter;
+    }
+
+    @Override
+    public void start() {
+        synchronized (this.monitor) {
+            if (!this.running) {
+                this.running = true;
+                // spread the first sampling of many instances over a whole interval
+                scheduleSampling(Duration.ofMillis(ThreadLocalRandom.current().nextLong(this.interval.toMillis())));
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        synchronized (this.monitor) {
+            this.running = false;
+            if (this.scheduledSampling != null) {
+                this.scheduledSampling.cancel(false);
+                this.scheduledSampling = null;
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    private void scheduleSampling(Duration delay) {
+        this.scheduledSampling = this.taskScheduler.schedule(this::sampleAndReschedule, Instant.now().plus(delay));
+    }
+
+    private void sampleAndReschedule() {
+        try {
+            sample();
+        } finally {
+            synchronized (this.monitor) {
+                if (this.running) {
+                    scheduleSampling(nextDelay());
+                }
+            }
+        }
+    }
+
+    Duration nextDelay() {
+        long intervalMillis = this.interval.toMillis();
+        long jitterMillis = Math.round(intervalMillis * this.jitter * (2 * ThreadLocalRandom.current().nextDouble() - 1));
+        return Duration.ofMillis(Math.max(1, intervalMillis + jitterMillis));
+    }
+
+    /**
+     * Request the depth of all bound queues. The gauges are updated once the responses arrive.
+     */
+    CompletableFuture<Void> sample() {
+        SqsAsyncClient sqsAsyncClient = this.binder.getSqsAsyncClient();
+        return CompletableFuture.allOf(this.binder.getAdapters().stream()
+                .map(SqsInboundChannelAdapter::getQueues)
+                .flatMap(Arrays::stream)
+                .distinct()
+                .map(queue -> this.queueDepths.computeIfAbsent(queue, QueueDepth::new).sample(sqsAsyncClient))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    private class QueueDepth {
+
+        private final String queue;
+
+        private volatile CompletableFuture<String> queueUrl;
+
+        private volatile double visible = Double.NaN;
+
+        private volatile double notVisible = Double.NaN;
+
+        private volatile double delayed = Double.NaN;
+
+        QueueDepth(String queue) {
+            this.queue = queue;
+            Tags tags = Tags.of("queue", queue);
+            Gauge.builder(MicrometerSqsMetricsFactory.METRIC_PREFIX + "queue.messages.visible", this, depth -> depth.visible)
+                    .description("Approximate number of messages available for retrieval from the queue")
+                    .tags(tags)
+                    .register(meterRegistry);
+            Gauge.builder(MicrometerSqsMetricsFactory.METRIC_PREFIX + "queue.messages.notvisible", this, depth -> depth.notVisible)
+                    .description("Approximate number of messages which are in flight")
+                    .tags(tags)
+                    .register(meterRegistry);
+            Gauge.builder(MicrometerSqsMetricsFactory.METRIC_PREFIX + "queue.messages.delayed", this, depth -> depth.delayed)
+                    .description("Approximate number of delayed messages which are not available yet")
+                    .tags(tags)
+                    .register(meterRegistry);
+        }
+
+        CompletableFuture<Void> sample(SqsAsyncClient sqsAsyncClient) {
+            return resolveQueueUrl(sqsAsyncClient)
+                    .thenCompose(url -> sqsAsyncClient.getQueueAttributes(GetQueueAttributesRequest.builder()
+                            .queueUrl(url)
+                            .attributeNames(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES,
+                                    QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE,
+                                    QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_DELAYED)
+                            .build()))
+                    .thenAccept(this::update)
+                    .exceptionally(throwable -> {
+                        SqsQueueMetadataCache metadataCache = binder.getQueueMetadataCache();
+                        if (metadataCache != null) {
+                            metadataCache.invalidateIfNotExists(this.queue, throwable);
+                        }
+                        LOGGER.debug("Failed to sample the depth of queue '{}'", this.queue, throwable);
+                        return null;
+                    });
+        }
+
+        private CompletableFuture<String> resolveQueueUrl(SqsAsyncClient sqsAsyncClient) {
+            SqsQueueMetadataCache metadataCache = binder.getQueueMetadataCache();
+            if (metadataCache != null) {
+                return metadataCache.resolveQueueUrl(this.queue);
+            }
+            CompletableFuture<String> url = this.queueUrl;
+            if (url == null || url.isCompletedExceptionally()) {
+                url = this.queue.startsWith("http")
+                        ? CompletableFuture.completedFuture(this.queue)
+                        : sqsAsyncClient.getQueueUrl(GetQueueUrlRequest.builder().queueName(this.queue).build())
+                                .thenApply(GetQueueUrlResponse::queueUrl);
+                this.queueUrl = url;
+            }
+            return url;
+        }
+
+        private void update(GetQueueAttributesResponse response) {
+            Map<QueueAttributeName, String> attributes = response.attributes();
+            this.visible = parse(attributes.get(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES));
+            this.notVisible = parse(attributes.get(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE));
+            this.delayed = parse(attributes.get(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_DELAYED));
+        }
+
+        private static double parse(String value) {
+            try {
+                return value != null ? Double.parseDouble(value) : Double.NaN;
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package de.idealo.spring.stream.binder.sqs.outbound;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.integration.aws.support.AwsHeaders;
+import org.springframework.integration.aws.support.SqsHeaderMapper;
+import org.springframework.integration.expression.ExpressionUtils;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.integration.mapping.HeaderMapper;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.support.ErrorMessage;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.Assert;
+
+import io.awspring.cloud.sqs.QueueAttributesResolver;
+import io.awspring.cloud.sqs.listener.QueueAttributes;
+import io.awspring.cloud.sqs.listener.QueueNotFoundStrategy;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.QueueDoesNotExistException;
+
+import de.idealo.spring.stream.binder.sqs.payload.PayloadCompression;
+import de.idealo.spring.stream.binder.sqs.payload.PayloadStore;
+import de.idealo.spring.stream.binder.sqs.provisioning.SqsQueueMetadataCache;
+
+/**
+ * Base class for the producer message handlers of this binder which send to SQS without blocking on the response.
+ * Takes care of resolving the queue url, building the message body and attributes and of routing send results
+ * and send failures to their channels.
+ */
+public abstract class AbstractSqsMessageHandler extends AbstractMessageHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractSqsMessageHandler.class);
+
+    private final SqsAsyncClient sqsAsyncClient;
+
+    private final String queue;
+
+    private HeaderMapper<Map<String, MessageAttributeValue>> headerMapper = new SqsHeaderMapper();
+
+    private Expression delayExpression;
+
+    private Expression messageGroupIdExpression;
+
+    private Expression messageDeduplicationIdExpression;
+
+    private MessageChannel sendFailureChannel;
+
+    private MessageChannel resultChannel;
+
+    private String resultChannelName;
+
+    private EvaluationContext evaluationContext;
+
+    private final SqsMessageBodyEncoder bodyEncoder = new SqsMessageBodyEncoder();
+
+    private SqsQueueMetadataCache queueMetadataCache;
+
+    private volatile CompletableFuture<String> queueUrl;
+
+    protected AbstractSqsMessageHandler(SqsAsyncClient sqsAsyncClient, String queue) {
+        Assert.notNull(sqsAsyncClient, "'sqsAsyncClient' must not be null");
+        Assert.hasText(queue, "'queue' must not be empty");
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.queue = queue;
+    }
+
+    /**
+     * Set the url of the queue if it is already known, so that it does not have to be resolved again. The url is
+     * resolved from the queue name once a send fails because the queue does not exist.
+     */
+    public void setQueueUrl(String queueUrl) {
+        Assert.hasText(queueUrl, "'queueUrl' must not be empty");
+        this.queueUrl = CompletableFuture.completedFuture(queueUrl);
+    }
+
+    /**
+     * Resolve the url of the queue through the given cache, which is shared with the other components of the binder.
+     */
+    public void setQueueMetadataCache(SqsQueueMetadataCache queueMetadataCache) {
+        this.queueMetadataCache = queueMetadataCache;
+    }
+
+    public void setHeaderMapper(HeaderMapper<Map<String, MessageAttributeValue>> headerMapper) {
+        Assert.notNull(headerMapper, "'headerMapper' must not be null");
+        this.headerMapper = headerMapper;
+    }
+
+    public void setDelayExpressionString(String delayExpression) {
+        setDelayExpression(EXPRESSION_PARSER.parseExpression(delayExpression));
+    }
+
+    public void setDelayExpression(Expression delayExpression) {
+        this.delayExpression = delayExpression;
+    }
+
+    public void setMessageGroupIdExpressionString(String messageGroupIdExpression) {
+        setMessageGroupIdExpression(EXPRESSION_PARSER.parseExpression(messageGroupIdExpression));
+    }
+
+    public void setMessageGroupIdExpression(Expression messageGroupIdExpression) {
+        this.messageGroupIdExpression = messageGroupIdExpression;
+    }
+
+    public void setMessageDeduplicationIdExpressionString(String messageDeduplicationIdExpression) {
+        setMessageDeduplicationIdExpression(EXPRESSION_PARSER.parseExpression(messageDeduplicationIdExpression));
+    }
+
+    public void setMessageDeduplicationIdExpression(Expression messageDeduplicationIdExpression) {
+        this.messageDeduplicationIdExpression = messageDeduplicationIdExpression;
+    }
+
+    /**
+     * Set the channel which receives an {@link ErrorMessage} for every message that could not be sent.
+     * Failures are only logged if no channel is set.
+     */
+    public void setSendFailureChannel(MessageChannel sendFailureChannel) {
+        this.sendFailureChannel = sendFailureChannel;
+    }
+
+    /**
+     * Set the channel which receives every successfully sent message, enriched with the
+     * {@link AwsHeaders#MESSAGE_ID} (and for FIFO queues {@link AwsHeaders#SEQUENCE_NUMBER}) assigned by SQS.
+     */
+    public void setResultChannel(MessageChannel resultChannel) {
+        this.resultChannel = resultChannel;
+    }
+
+    /**
+     * Set the name of the channel bean which receives every successfully sent message.
+     * The channel is resolved lazily on the first successful send.
+     */
+    public void setResultChannelName(String resultChannelName) {
+        this.resultChannelName = resultChannelName;
+    }
+
+    /**
+     * Replace the body of messages larger than the threshold, accounted the way SQS does, with a reference to the
+     * payload stored in the given store.
+     */
+    public void setPayloadStore(PayloadStore payloadStore, int payloadOffloadThreshold) {
+        this.bodyEncoder.setPayloadStore(payloadStore, payloadOffloadThreshold);
+    }
+
+    /**
+     * Compress the body of messages whose payload is larger than the threshold with the given codec, as long as that
+     * makes the body smaller. Bodies which are still too large are offloaded to the payload store afterwards.
+     */
+    public void setCompression(PayloadCompression compression, int compressionThreshold) {
+        this.bodyEncoder.setCompression(compression, compressionThreshold);
+    }
+
+    @Override
+    protected void onInit() {
+        super.onInit();
+        this.evaluationContext = ExpressionUtils.createStandardEvaluationContext(getBeanFactory());
+    }
+
+    protected SqsAsyncClient getSqsAsyncClient() {
+        return this.sqsAsyncClient;
+    }
+
+    protected String getQueue() {
+        return this.queue;
+    }
+
+    protected CompletableFuture<String> resolveQueueUrl() {
+        CompletableFuture<String> resolved = this.queueUrl;
+        if (resolved == null || resolved.isCompletedExceptionally()) {
+            resolved = this.queueMetadataCache != null
+                    ? this.queueMetadataCache.resolveQueueUrl(this.queue)
+                    : QueueAttributesResolver.builder()
+                            .sqsAsyncClient(this.sqsAsyncClient)
+                            .queueName(this.queue)
+                            .queueNotFoundStrategy(QueueNotFoundStrategy.FAIL)
+                            .queueAttributeNames(Collections.emptyList())
+                            .build()
+                            .resolveQueueAttributes()
+                            .thenApply(QueueAttributes::getQueueUrl);
+            this.queueUrl = resolved;
+        }
+        return resolved;
+    }
+
+    protected Integer evaluateDelay(Message<?> message) {
+        return this.delayExpression != null ? this.delayExpression.getValue(this.evaluationContext, message, Integer.class) : null;
+    }
+
+    protected String evaluateMessageGroupId(Message<?> message) {
+        return this.messageGroupIdExpression != null ? this.messageGroupIdExpression.getValue(this.evaluationContext, message, String.class) : null;
+    }
+
+    protected String evaluateMessageDeduplicationId(Message<?> message) {
+        return this.messageDeduplicationIdExpression != null ? this.messageDeduplicationIdExpression.getValue(this.evaluationContext, message, String.class) : null;
+    }
+
+    protected Map<String, MessageAttributeValue> mapMessageAttributes(Message<?> message) {
+        Map<String, MessageAttributeValue> messageAttributes = new HashMap<>();
+        this.headerMapper.fromHeaders(message.getHeaders(), messageAttributes);
+        return messageAttributes;
+    }
+
+    /**
+     * @return the body to send, which is compressed or a reference into the payload store if the message required it
+     */
+    protected String encodeBody(Message<?> message, String body, Map<String, MessageAttributeValue> messageAttributes) {
+        return this.bodyEncoder.encode(message, body, messageAttributes);
+    }
+
+    protected void sendResult(Message<?> message, String messageId, String sequenceNumber) {
+        MessageChannel channel = this.resultChannel;
+        if (channel == null && this.resultChannelName != null) {
+            channel = getChannelResolver().resolveDestination(this.resultChannelName);
+            this.resultChannel = channel;
+        }
+        if (channel == null) {
+            return;
+        }
+
+        MessageBuilder<?> result = MessageBuilder.fromMessage(message).setHeader(AwsHeaders.MESSAGE_ID, messageId);
+        if (sequenceNumber != null) {
+            result.setHeader(AwsHeaders.SEQUENCE_NUMBER, sequenceNumber);
+        }
+        channel.send(result.build());
+    }
+
+    protected void sendFailure(Message<?> message, Throwable cause) {
+        invalidateQueueUrl(cause);
+        MessageDeliveryException exception =
+                new MessageDeliveryException(message, "Failed to send message to SQS queue '" + this.queue + "'", cause);
+        if (this.sendFailureChannel != null) {
+            this.sendFailureChannel.send(new ErrorMessage(exception));
+        } else {
+            LOGGER.error("Failed to send message to SQS queue '{}'", this.queue, exception);
+        }
+    }
+
+    /**
+     * Forget the url of the queue if it does not exist anymore, e.g. because it has been recreated, so that it is
+     * resolved again on the next send.
+     */
+    private void invalidateQueueUrl(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        if (cause instanceof QueueDoesNotExistException) {
+            this.queueUrl = null;
+            if (this.queueMetadataCache != null) {
+                this.queueMetadataCache.invalidate(this.queue);
+            }
+        }
+    }
+
+    protected static String toMessageBody(Object payload) {
+        if (payload instanceof String body) {
+            return body;
+        }
+        if (payload instanceof byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        return String.valueOf(payload);
+    }
+
+    /**
+     * Calculate the size of a message the way SQS accounts for it: the UTF-8 encoded body plus the names,
+     * types and values of all message attributes.
+     */
+    protected static int messageSize(String body, Map<String, MessageAttributeValue> messageAttributes) {
+        int size = utf8Length(body);
+        for (Map.Entry<String, MessageAttributeValue> attribute : messageAttributes.entrySet()) {
+            MessageAttributeValue value = attribute.getValue();
+            size += utf8Length(attribute.getKey()) + utf8Length(value.dataType());
+            if (value.stringValue() != null) {
+                size += utf8Length(value.stringValue());
+            }
+            if (value.binaryValue() != null) {
+                size += value.binaryValue().asByteArrayUnsafe().length;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Count the UTF-8 encoded bytes of the value without encoding it.
+     */
+    public static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,165 @@
+package de.idealo.spring.stream.binder.sqs.outbound;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.integration.support.management.ManageableLifecycle;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.util.Assert;
+
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+/**
+ * Sends every message with its own SendMessage request without waiting for the response.
+ * The number of messages and bytes in flight is bounded by a window; the calling thread only blocks
+ * once that window is exhausted and continues as soon as an outstanding send completes. On stop, the handler waits up
+ * to the shutdown timeout for the outstanding sends to complete.
+ * <p>
+ * Since messages of the same message group could overtake each other, FIFO queues are not supported.
+ */
+public class SqsAsyncMessageHandler extends AbstractSqsMessageHandler implements ManageableLifecycle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqsAsyncMessageHandler.class);
+
+    private int maxInFlight = 100;
+
+    private int maxInFlightBytes = 10 * 1024 * 1024;
+
+    private Semaphore inFlightMessages;
+
+    private Semaphore inFlightBytes;
+
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+    private volatile boolean running;
+
+    public SqsAsyncMessageHandler(SqsAsyncClient sqsAsyncClient, String queue) {
+        super(sqsAsyncClient, queue);
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        Assert.isTrue(maxInFlight > 0, "'maxInFlight' must be greater than zero");
+        this.maxInFlight = maxInFlight;
+    }
+
+    public void setMaxInFlightBytes(int maxInFlightBytes) {
+        Assert.isTrue(maxInFlightBytes > 0, "'maxInFlightBytes' must be greater than zero");
+        this.maxInFlightBytes = maxInFlightBytes;
+    }
+
+    public void setShutdownTimeout(Duration shutdownTimeout) {
+        Assert.isTrue(shutdownTimeout != null && !shutdownTimeout.isNegative(), "'shutdownTimeout' must not be negative");
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    /**
+     * @return the number of messages which have been handed to the client but not completed yet
+     */
+    public int getInFlightCount() {
+        return this.inFlightMessages != null ? this.maxInFlight - this.inFlightMessages.availablePermits() : 0;
+    }
+
+    @Override
+    protected void onInit() {
+        super.onInit();
+        Assert.isTrue(!getQueue().endsWith(".fifo"), () -> "Asynchronous sends do not keep the order of FIFO queue '" + getQueue()
+                + "', enable batching instead");
+        this.inFlightMessages = new Semaphore(this.maxInFlight);
+        this.inFlightBytes = new Semaphore(this.maxInFlightBytes);
+    }
+
+    @Override
+    public void start() {
+        this.running = true;
+    }
+
+    /**
+     * Wait until all outstanding sends have completed, at most for the shutdown timeout.
+     */
+    @Override
+    public void stop() {
+        this.running = false;
+        if (this.inFlightMessages == null) {
+            return;
+        }
+        try {
+            // holding every permit means that no send is outstanding, they are returned for a later restart
+            if (this.inFlightMessages.tryAcquire(this.maxInFlight, this.shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                this.inFlightMessages.release(this.maxInFlight);
+            } else {
+                LOGGER.warn("Stopped with {} messages for queue '{}' still in flight after {}", getInFlightCount(), getQueue(), this.shutdownTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    @Override
+    protected void handleMessageInternal(Message<?> message) {
+        Map<String, MessageAttributeValue> messageAttributes = mapMessageAttributes(message);
+        String body = encodeBody(message, toMessageBody(message.getPayload()), messageAttributes);
+
+        SendMessageRequest.Builder request = SendMessageRequest.builder()
+                .messageBody(body)
+                .delaySeconds(evaluateDelay(message))
+                .messageGroupId(evaluateMessageGroupId(message))
+                .messageDeduplicationId(evaluateMessageDeduplicationId(message));
+        if (!messageAttributes.isEmpty()) {
+            request.messageAttributes(messageAttributes);
+        }
+
+        // a single message larger than the whole window must still be able to pass on its own
+        int size = Math.min(messageSize(body, messageAttributes), this.maxInFlightBytes);
+        acquire(message, size);
+
+        try {
+            resolveQueueUrl()
+                    .thenCompose(url -> getSqsAsyncClient().sendMessage(request.queueUrl(url).build()))
+                    .whenComplete((response, throwable) -> {
+                        release(size);
+                        if (throwable != null) {
+                            sendFailure(message, throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                        } else {
+                            sendResult(message, response.messageId(), response.sequenceNumber());
+                        }
+                    });
+        } catch (RuntimeException e) {
+            release(size);
+            throw e;
+        }
+    }
+
+    private void acquire(Message<?> message, int size) {
+        try {
+            this.inFlightMessages.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessageDeliveryException(message, "Interrupted while waiting for the in-flight window", e);
+        }
+        try {
+            this.inFlightBytes.acquire(size);
+        } catch (InterruptedException e) {
+            this.inFlightMessages.release();
+            Thread.currentThread().interrupt();
+            throw new MessageDeliveryException(message, "Interrupted while waiting for the in-flight window", e);
+        }
+    }
+
+    private void release(int size) {
+        this.inFlightBytes.release(size);
+        this.inFlightMessages.release();
+    }
+}
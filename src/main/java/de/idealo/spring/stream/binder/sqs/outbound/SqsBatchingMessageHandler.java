@@ -0,0 +1,308 @@
+package de.idealo.spring.stream.binder.sqs.outbound;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.integration.support.management.ManageableLifecycle;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.util.Assert;
+
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+
+/**
+ * Coalesces outbound messages into SendMessageBatch requests. A batch is sent as soon as it holds
+ * {@code batchSize} entries or would exceed {@code batchMaxBytes}, otherwise once the linger time has passed.
+ * Entries of a partially failed batch are retried on their own, messages that could not be sent at all
+ * are reported to the send failure channel.
+ * <p>
+ * For FIFO queues, batches are sent one after the other in the order they were formed, and the failed entries of a
+ * batch are retried before the next batch is sent, so that retries do not overtake later messages of their group.
+ * The calling thread blocks once {@code maxInFlight} messages wait for their batch to be sent.
+ */
+public class SqsBatchingMessageHandler extends AbstractSqsMessageHandler implements ManageableLifecycle {
+
+    public static final int MAX_BATCH_SIZE = 10;
+
+    public static final int MAX_BATCH_BYTES = 262144;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqsBatchingMessageHandler.class);
+
+    private static final Duration RETRY_BACKOFF = Duration.ofMillis(100);
+
+    private final Object monitor = new Object();
+
+    private final AtomicLong entryIds = new AtomicLong();
+
+    private int batchSize = MAX_BATCH_SIZE;
+
+    private int batchMaxBytes = MAX_BATCH_BYTES;
+
+    private Duration lingerTime = Duration.ofMillis(10);
+
+    private int maxRetries = 3;
+
+    private int maxInFlight = 100;
+
+    private volatile boolean running;
+
+    private List<BatchEntry> pendingEntries = new ArrayList<>();
+
+    private int pendingBytes;
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    private boolean fifo;
+
+    private CompletableFuture<Void> lastSend = CompletableFuture.completedFuture(null);
+
+    private Semaphore inFlightMessages;
+
+    public SqsBatchingMessageHandler(SqsAsyncClient sqsAsyncClient, String queue) {
+        super(sqsAsyncClient, queue);
+    }
+
+    public void setBatchSize(int batchSize) {
+        Assert.isTrue(batchSize > 0 && batchSize <= MAX_BATCH_SIZE, "'batchSize' must be between 1 and " + MAX_BATCH_SIZE);
+        this.batchSize = batchSize;
+    }
+
+    public void setBatchMaxBytes(int batchMaxBytes) {
+        Assert.isTrue(batchMaxBytes > 0 && batchMaxBytes <= MAX_BATCH_BYTES, "'batchMaxBytes' must be between 1 and " + MAX_BATCH_BYTES);
+        this.batchMaxBytes = batchMaxBytes;
+    }
+
+    public void setLingerTime(Duration lingerTime) {
+        Assert.isTrue(lingerTime != null && !lingerTime.isNegative(), "'lingerTime' must not be negative");
+        this.lingerTime = lingerTime;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        Assert.isTrue(maxRetries >= 0, "'maxRetries' must not be negative");
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Set the maximum number of messages for FIFO queues which are pending or chained for sending. Default is 100.
+     */
+    public void setMaxInFlight(int maxInFlight) {
+        Assert.isTrue(maxInFlight > 0, "'maxInFlight' must be greater than zero");
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    protected void onInit() {
+        super.onInit();
+        this.fifo = getQueue().endsWith(".fifo");
+        this.inFlightMessages = new Semaphore(this.maxInFlight);
+    }
+
+    @Override
+    public void start() {
+        this.running = true;
+    }
+
+    @Override
+    public void stop() {
+        this.running = false;
+        flush();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    @Override
+    protected void handleMessageInternal(Message<?> message) {
+        BatchEntry entry = toBatchEntry(message);
+        List<List<BatchEntry>> batches = new ArrayList<>(2);
+        if (this.fifo) {
+            acquire(message);
+        }
+
+        synchronized (this.monitor) {
+            if (!this.pendingEntries.isEmpty() && this.pendingBytes + entry.size > this.batchMaxBytes) {
+                batches.add(drainPendingEntries());
+            }
+            this.pendingEntries.add(entry);
+            this.pendingBytes += entry.size;
+
+            if (this.pendingEntries.size() >= this.batchSize || this.pendingBytes >= this.batchMaxBytes) {
+                batches.add(drainPendingEntries());
+            } else if (this.scheduledFlush == null) {
+                this.scheduledFlush = getTaskScheduler().schedule(this::flush, Instant.now().plus(this.lingerTime));
+            }
+            if (this.fifo) {
+                batches.forEach(this::sendInOrder);
+                return;
+            }
+        }
+
+        batches.forEach(batch -> sendBatch(batch, 0));
+    }
+
+    /**
+     * Send all pending messages right away, regardless of the linger time.
+     */
+    public void flush() {
+        List<BatchEntry> batch;
+        synchronized (this.monitor) {
+            if (this.pendingEntries.isEmpty()) {
+                return;
+            }
+            batch = drainPendingEntries();
+            if (this.fifo) {
+                sendInOrder(batch);
+                return;
+            }
+        }
+        sendBatch(batch, 0);
+    }
+
+    /**
+     * Sends the batch once the previous one, including its retries, has completed. Called while holding the
+     * monitor, so that batches are chained in the order they were drained. The permits of its messages are released
+     * once the batch has completed.
+     */
+    private void sendInOrder(List<BatchEntry> batch) {
+        this.lastSend = this.lastSend
+                .thenCompose(previous -> sendBatch(batch, 0))
+                .exceptionally(throwable -> {
+                    LOGGER.warn("Failed to send batch of {} messages to queue '{}'", batch.size(), getQueue(), throwable);
+                    return null;
+                })
+                .whenComplete((result, throwable) -> this.inFlightMessages.release(batch.size()));
+    }
+
+    private void acquire(Message<?> message) {
+        try {
+            this.inFlightMessages.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessageDeliveryException(message, "Interrupted while waiting for the in-flight window", e);
+        }
+    }
+
+    private List<BatchEntry> drainPendingEntries() {
+        if (this.scheduledFlush != null) {
+            this.scheduledFlush.cancel(false);
+            this.scheduledFlush = null;
+        }
+        List<BatchEntry> batch = this.pendingEntries;
+        this.pendingEntries = new ArrayList<>(this.batchSize);
+        this.pendingBytes = 0;
+        return batch;
+    }
+
+    /**
+     * @return a future which completes once the batch has been sent and its failed entries have been retried
+     */
+    private CompletableFuture<Void> sendBatch(List<BatchEntry> batch, int attempt) {
+        return resolveQueueUrl()
+                .thenCompose(url -> getSqsAsyncClient().sendMessageBatch(SendMessageBatchRequest.builder()
+                        .queueUrl(url)
+                        .entries(batch.stream().map(entry -> entry.requestEntry).toList())
+                        .build()))
+                .handle((response, throwable) -> {
+                    if (throwable != null) {
+                        Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                        batch.forEach(entry -> sendFailure(entry.message, cause));
+                        return CompletableFuture.<Void>completedFuture(null);
+                    }
+                    return handleResponse(batch, response, attempt);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Void> handleResponse(List<BatchEntry> batch, SendMessageBatchResponse response, int attempt) {
+        Map<String, BatchEntry> entriesById = new HashMap<>();
+        batch.forEach(entry -> entriesById.put(entry.requestEntry.id(), entry));
+
+        if (response.hasSuccessful()) {
+            for (SendMessageBatchResultEntry successfulEntry : response.successful()) {
+                BatchEntry entry = entriesById.get(successfulEntry.id());
+                if (entry != null) {
+                    sendResult(entry.message, successfulEntry.messageId(), successfulEntry.sequenceNumber());
+                }
+            }
+        }
+
+        if (!response.hasFailed() || response.failed().isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<BatchEntry> retries = new ArrayList<>();
+        for (BatchResultErrorEntry failedEntry : response.failed()) {
+            BatchEntry entry = entriesById.get(failedEntry.id());
+            if (entry == null) {
+                continue;
+            }
+            if (!Boolean.TRUE.equals(failedEntry.senderFault()) && attempt < this.maxRetries) {
+                retries.add(entry);
+            } else {
+                sendFailure(entry.message, new IllegalStateException(
+                        "SendMessageBatch entry failed with code '" + failedEntry.code() + "': " + failedEntry.message()));
+            }
+        }
+
+        if (retries.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        LOGGER.debug("Retrying {} failed entries for queue '{}' (attempt {})", retries.size(), getQueue(), attempt + 1);
+        CompletableFuture<Void> retried = new CompletableFuture<>();
+        getTaskScheduler().schedule(() -> sendBatch(retries, attempt + 1).whenComplete((result, throwable) -> retried.complete(null)),
+                Instant.now().plus(RETRY_BACKOFF.multipliedBy(1L << attempt)));
+        return retried;
+    }
+
+    private BatchEntry toBatchEntry(Message<?> message) {
+        Map<String, MessageAttributeValue> messageAttributes = mapMessageAttributes(message);
+        String body = encodeBody(message, toMessageBody(message.getPayload()), messageAttributes);
+
+        SendMessageBatchRequestEntry.Builder builder = SendMessageBatchRequestEntry.builder()
+                .id(Long.toString(this.entryIds.getAndIncrement()))
+                .messageBody(body)
+                .delaySeconds(evaluateDelay(message))
+                .messageGroupId(evaluateMessageGroupId(message))
+                .messageDeduplicationId(evaluateMessageDeduplicationId(message));
+        if (!messageAttributes.isEmpty()) {
+            builder.messageAttributes(messageAttributes);
+        }
+
+        return new BatchEntry(message, builder.build(), messageSize(body, messageAttributes));
+    }
+
+    private static final class BatchEntry {
+
+        private final Message<?> message;
+
+        private final SendMessageBatchRequestEntry requestEntry;
+
+        private final int size;
+
+        private BatchEntry(Message<?> message, SendMessageBatchRequestEntry requestEntry, int size) {
+            this.message = message;
+            this.requestEntry = requestEntry;
+            this.size = size;
+        }
+    }
+}
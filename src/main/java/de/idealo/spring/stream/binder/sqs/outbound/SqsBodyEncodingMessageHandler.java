@@ -0,0 +1,55 @@
+package de.idealo.spring.stream.binder.sqs.outbound;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.integration.aws.outbound.SqsMessageHandler;
+import org.springframework.messaging.Message;
+
+import software.amazon.awssdk.awscore.AwsRequest;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+
+import de.idealo.spring.stream.binder.sqs.payload.PayloadCompression;
+import de.idealo.spring.stream.binder.sqs.payload.PayloadStore;
+
+/**
+ * A {@link SqsMessageHandler} which compresses and offloads large bodies like the handlers derived from
+ * {@link AbstractSqsMessageHandler} do. The body is replaced after all expressions have been evaluated against the
+ * original message, so that e.g. a deduplication id derived from the content still refers to the payload.
+ */
+public class SqsBodyEncodingMessageHandler extends SqsMessageHandler {
+
+    private final SqsMessageBodyEncoder bodyEncoder = new SqsMessageBodyEncoder();
+
+    public SqsBodyEncodingMessageHandler(SqsAsyncClient amazonSqs) {
+        super(amazonSqs);
+    }
+
+    /**
+     * @see AbstractSqsMessageHandler#setCompression(PayloadCompression, int)
+     */
+    public void setCompression(PayloadCompression compression, int compressionThreshold) {
+        this.bodyEncoder.setCompression(compression, compressionThreshold);
+    }
+
+    /**
+     * @see AbstractSqsMessageHandler#setPayloadStore(PayloadStore, int)
+     */
+    public void setPayloadStore(PayloadStore payloadStore, int payloadOffloadThreshold) {
+        this.bodyEncoder.setPayloadStore(payloadStore, payloadOffloadThreshold);
+    }
+
+    @Override
+    protected AwsRequest messageToAwsRequest(Message<?> message) {
+        SendMessageRequest request = (SendMessageRequest) super.messageToAwsRequest(message);
+        Map<String, MessageAttributeValue> messageAttributes = new HashMap<>(request.messageAttributes());
+        String body = this.bodyEncoder.encode(message, request.messageBody(), messageAttributes);
+        // the body itself is returned if it is sent as it is
+        if (body == request.messageBody()) {
+            return request;
+        }
+        return request.toBuilder().messageBody(body).messageAttributes(messageAttributes).build();
+    }
+}
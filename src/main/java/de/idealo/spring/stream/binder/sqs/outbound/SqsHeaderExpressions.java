@@ -0,0 +1,91 @@
+package de.idealo.spring.stream.binder.sqs.outbound;
+
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.integration.expression.FunctionExpression;
+import org.springframework.messaging.Message;
+import org.springframework.util.Assert;
+
+/**
+ * Expressions which read the SQS send parameters of an outbound message from its headers without evaluating SpEL.
+ */
+public final class SqsHeaderExpressions {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final byte[] SEPARATOR = { 0 };
+
+    private SqsHeaderExpressions() {}
+
+    /**
+     * @return an expression returning the value of the header, or {@code null} if it is absent
+     */
+    public static Expression header(String headerName) {
+        Assert.hasText(headerName, "'headerName' must not be empty");
+        return new FunctionExpression<Message<?>>(message -> message.getHeaders().get(headerName));
+    }
+
+    /**
+     * @return an expression returning the value of the header, or the value of the fallback if it is absent
+     */
+    public static Expression headerOrElse(String headerName, Expression fallback) {
+        Assert.hasText(headerName, "'headerName' must not be empty");
+        Assert.notNull(fallback, "'fallback' must not be null");
+        return new FunctionExpression<Message<?>>(message -> {
+            Object value = message.getHeaders().get(headerName);
+            return value != null ? value : fallback.getValue(message);
+        });
+    }
+
+    /**
+     * @return an expression returning the value of the header, or the value of the SpEL fallback if it is absent
+     */
+    public static Expression headerOrElse(String headerName, Expression fallback, EvaluationContext evaluationContext) {
+        Assert.hasText(headerName, "'headerName' must not be empty");
+        Assert.notNull(fallback, "'fallback' must not be null");
+        return new FunctionExpression<Message<?>>(message -> {
+            Object value = message.getHeaders().get(headerName);
+            return value != null ? value : fallback.getValue(evaluationContext, message);
+        });
+    }
+
+    /**
+     * @return an expression returning the 64 bit FNV-1a hash of the payload and the given headers as hex string
+     */
+    public static Expression contentHash(String... headerNames) {
+        Assert.noNullElements(headerNames, "'headerNames' must not contain null elements");
+        return new FunctionExpression<Message<?>>(message -> {
+            long hash = fnv1a64(FNV_OFFSET_BASIS, bytes(message.getPayload()));
+            for (String headerName : headerNames) {
+                // separators keep moving a value from one header to the next from producing the same hash
+                hash = fnv1a64(hash, headerName.getBytes(StandardCharsets.UTF_8));
+                hash = fnv1a64(hash, SEPARATOR);
+                Object value = message.getHeaders().get(headerName);
+                if (value != null) {
+                    hash = fnv1a64(hash, bytes(value));
+                }
+                hash = fnv1a64(hash, SEPARATOR);
+            }
+            return Long.toHexString(hash);
+        });
+    }
+
+    static long fnv1a64(long hash, byte[] bytes) {
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static byte[] bytes(Object value) {
+        if (value instanceof byte[] bytes) {
+            return bytes;
+        }
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+}
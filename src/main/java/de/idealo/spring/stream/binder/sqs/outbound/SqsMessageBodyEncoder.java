@@ -0,0 +1,96 @@
+package de.idealo.spring.stream.binder.sqs.outbound;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.util.Assert;
+
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+
+import de.idealo.spring.stream.binder.sqs.SqsHeaders;
+import de.idealo.spring.stream.binder.sqs.payload.PayloadCompression;
+import de.idealo.spring.stream.binder.sqs.payload.PayloadStore;
+
+/**
+ * Compresses and offloads message bodies before they are sent, in that order, so that only bodies which are still
+ * too large after compression are offloaded. Both steps mark the message with an attribute, see
+ * {@link SqsHeaders#CONTENT_ENCODING} and {@link SqsHeaders#CLAIM_CHECK}.
+ */
+final class SqsMessageBodyEncoder {
+
+    private PayloadCompression compression;
+
+    private int compressionThreshold;
+
+    private PayloadStore payloadStore;
+
+    private int payloadOffloadThreshold;
+
+    void setCompression(PayloadCompression compression, int compressionThreshold) {
+        Assert.notNull(compression, "'compression' must not be null");
+        Assert.state(compression.isAvailable(), () -> compression + " compression requires org.lz4:lz4-java on the classpath");
+        Assert.isTrue(compressionThreshold >= 0, "'compressionThreshold' must not be negative");
+        this.compression = compression;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    void setPayloadStore(PayloadStore payloadStore, int payloadOffloadThreshold) {
+        Assert.notNull(payloadStore, "'payloadStore' must not be null");
+        Assert.isTrue(payloadOffloadThreshold >= 0, "'payloadOffloadThreshold' must not be negative");
+        this.payloadStore = payloadStore;
+        this.payloadOffloadThreshold = payloadOffloadThreshold;
+    }
+
+    /**
+     * @return the body to send, which is the body itself if neither compression nor offloading applies
+     */
+    String encode(Message<?> message, String body, Map<String, MessageAttributeValue> messageAttributes) {
+        if (this.compression == null && this.payloadStore == null) {
+            return body;
+        }
+        String encoded = body;
+        byte[] payload = null;
+        if (this.compression != null && AbstractSqsMessageHandler.utf8Length(body) > this.compressionThreshold) {
+            payload = body.getBytes(StandardCharsets.UTF_8);
+            String compressed = compress(message, payload);
+            // the base64 alphabet is ASCII, so the length of the body is its size in bytes
+            if (compressed.length() < payload.length) {
+                encoded = compressed;
+                payload = null;
+                messageAttributes.put(SqsHeaders.CONTENT_ENCODING, MessageAttributeValue.builder()
+                        .dataType("String")
+                        .stringValue(this.compression.getContentEncoding())
+                        .build());
+            }
+        }
+        if (this.payloadStore != null && AbstractSqsMessageHandler.messageSize(encoded, messageAttributes) > this.payloadOffloadThreshold) {
+            encoded = offload(message, payload != null ? payload : encoded.getBytes(StandardCharsets.UTF_8), messageAttributes);
+        }
+        return encoded;
+    }
+
+    private String compress(Message<?> message, byte[] payload) {
+        try {
+            return this.compression.compress(payload);
+        } catch (IOException e) {
+            throw new MessageDeliveryException(message, "Failed to compress payload of " + payload.length + " bytes", e);
+        }
+    }
+
+    private String offload(Message<?> message, byte[] payload, Map<String, MessageAttributeValue> messageAttributes) {
+        String reference;
+        try {
+            reference = this.payloadStore.store(payload);
+        } catch (IOException e) {
+            throw new MessageDeliveryException(message, "Failed to offload payload of " + payload.length + " bytes", e);
+        }
+        messageAttributes.put(SqsHeaders.CLAIM_CHECK, MessageAttributeValue.builder()
+                .dataType("Number")
+                .stringValue(Integer.toString(payload.length))
+                .build());
+        return reference;
+    }
+}
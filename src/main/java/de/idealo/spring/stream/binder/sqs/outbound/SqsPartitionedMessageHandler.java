@@ -0,0 +1,84 @@
+package de.idealo.spring.stream.binder.sqs.outbound;
+
+import java.util.List;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cloud.stream.binder.BinderHeaders;
+import org.springframework.context.Lifecycle;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.integration.support.management.ManageableLifecycle;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.util.Assert;
+
+/**
+ * Routes every message to the handler of the queue of its partition, which Spring Cloud Stream computes from the
+ * {@code partitionKeyExpression} of the binding and sets as {@link BinderHeaders#PARTITION_HEADER}. Messages with
+ * the same partition key are therefore always sent to the same queue.
+ */
+public class SqsPartitionedMessageHandler extends AbstractMessageHandler implements ManageableLifecycle {
+
+    private final List<MessageHandler> partitionHandlers;
+
+    private volatile boolean running;
+
+    /**
+     * @param partitionHandlers the handlers sending to the queues of the partitions, in the order of the partitions
+     */
+    public SqsPartitionedMessageHandler(List<? extends MessageHandler> partitionHandlers) {
+        Assert.notEmpty(partitionHandlers, "'partitionHandlers' must not be empty");
+        this.partitionHandlers = List.copyOf(partitionHandlers);
+    }
+
+    @Override
+    protected void onInit() {
+        super.onInit();
+        for (MessageHandler partitionHandler : this.partitionHandlers) {
+            if (partitionHandler instanceof InitializingBean initializingBean) {
+                try {
+                    initializingBean.afterPropertiesSet();
+                } catch (Exception e) {
+                    throw new IllegalStateException("Failed to initialize partition handler " + partitionHandler, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        for (MessageHandler partitionHandler : this.partitionHandlers) {
+            if (partitionHandler instanceof Lifecycle lifecycle) {
+                lifecycle.start();
+            }
+        }
+        this.running = true;
+    }
+
+    @Override
+    public void stop() {
+        this.running = false;
+        for (MessageHandler partitionHandler : this.partitionHandlers) {
+            if (partitionHandler instanceof Lifecycle lifecycle) {
+                lifecycle.stop();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    @Override
+    protected void handleMessageInternal(Message<?> message) {
+        Integer partition = message.getHeaders().get(BinderHeaders.PARTITION_HEADER, Integer.class);
+        if (partition == null) {
+            throw new MessageDeliveryException(message, "Message has no '" + BinderHeaders.PARTITION_HEADER + "' header");
+        }
+        if (partition < 0 || partition >= this.partitionHandlers.size()) {
+            throw new MessageDeliveryException(message, "Partition " + partition + " is out of range, there are " + this.partitionHandlers.size() + " partitions");
+        }
+        this.partitionHandlers.get(partition).handleMessage(message);
+    }
+}
@@ -0,0 +1,41 @@
+package de.idealo.spring.stream.binder.sqs.payload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.springframework.util.Assert;
+
+/**
+ * Stores payloads as files in a directory, intended for tests and for producers and consumers sharing a file system.
+ * The reference of a payload is the name of its file.
+ */
+public class FileSystemPayloadStore implements PayloadStore {
+
+    private final Path directory;
+
+    public FileSystemPayloadStore(Path directory) {
+        Assert.notNull(directory, "'directory' must not be null");
+        this.directory = directory;
+    }
+
+    @Override
+    public String store(byte[] payload) throws IOException {
+        Files.createDirectories(this.directory);
+        String reference = UUID.randomUUID().toString();
+        Files.write(this.directory.resolve(reference), payload);
+        return reference;
+    }
+
+    @Override
+    public InputStream retrieve(String reference) throws IOException {
+        Path file = this.directory.resolve(reference).normalize();
+        // the reference is read from the message, so it must not point outside of the directory
+        if (!file.getParent().equals(this.directory.normalize())) {
+            throw new IOException("Invalid payload reference '" + reference + "'");
+        }
+        return Files.newInputStream(file);
+    }
+}
@@ -0,0 +1,25 @@
+package de.idealo.spring.stream.binder.sqs.payload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+/**
+ * Keeps the references to lz4-java out of {@link PayloadCompression}, so that the library stays optional.
+ */
+final class Lz4Streams {
+
+    private Lz4Streams() {}
+
+    static OutputStream compressing(OutputStream out) throws IOException {
+        // the default block size of 4 MB would allocate far more than a message can hold
+        return new LZ4FrameOutputStream(out, LZ4FrameOutputStream.BLOCKSIZE.SIZE_64KB);
+    }
+
+    static InputStream decompressing(InputStream in) throws IOException {
+        return new LZ4FrameInputStream(in);
+    }
+}
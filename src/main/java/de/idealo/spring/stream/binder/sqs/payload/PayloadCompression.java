@@ -0,0 +1,172 @@
+package de.idealo.spring.stream.binder.sqs.payload;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * The codecs with which message bodies are compressed. A compressed body is the base64 encoding of the compressed
+ * UTF-8 bytes, marked with the {@link #getContentEncoding() content encoding} of its codec.
+ * <p>
+ * Compression and decompression go through a buffer per thread which is reused for every message, so that only the
+ * resulting body is allocated.
+ */
+public enum PayloadCompression {
+
+    GZIP("gzip"),
+
+    /**
+     * The LZ4 frame format, which compresses less than gzip at a fraction of its CPU cost. Requires
+     * {@code org.lz4:lz4-java} on the classpath.
+     */
+    LZ4("lz4");
+
+    private static final boolean LZ4_PRESENT = ClassUtils.isPresent("net.jpountz.lz4.LZ4FrameOutputStream", PayloadCompression.class.getClassLoader());
+
+    private static final ThreadLocal<PooledBuffer> BUFFERS = ThreadLocal.withInitial(PooledBuffer::new);
+
+    private final String contentEncoding;
+
+    PayloadCompression(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    public String getContentEncoding() {
+        return this.contentEncoding;
+    }
+
+    /**
+     * @return whether the libraries required by the codec are on the classpath
+     */
+    public boolean isAvailable() {
+        return this != LZ4 || LZ4_PRESENT;
+    }
+
+    public static PayloadCompression forContentEncoding(String contentEncoding) {
+        for (PayloadCompression compression : values()) {
+            if (compression.contentEncoding.equalsIgnoreCase(contentEncoding)) {
+                return compression;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported content encoding '" + contentEncoding + "'");
+    }
+
+    /**
+     * @return the base64 encoded compressed payload
+     */
+    public String compress(byte[] payload) throws IOException {
+        assertAvailable();
+        PooledBuffer buffer = BUFFERS.get();
+        try {
+            try (OutputStream compressing = compressing(buffer)) {
+                compressing.write(payload);
+            }
+            ByteBuffer encoded = Base64.getEncoder().encode(buffer.asByteBuffer());
+            return new String(encoded.array(), 0, encoded.remaining(), StandardCharsets.ISO_8859_1);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * @return the payload of a body created by {@link #compress(byte[])}
+     */
+    public String decompress(String body) throws IOException {
+        return decompress(new ByteArrayInputStream(Base64.getDecoder().decode(body.getBytes(StandardCharsets.ISO_8859_1))), Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Decode and decompress the body while it is read from the stream, without buffering the body itself.
+     *
+     * @return the payload of a body created by {@link #compress(byte[])}
+     * @throws IOException if the payload is larger than {@code maxSize} bytes
+     */
+    public String decompress(InputStream body, int maxSize) throws IOException {
+        return decompress(body, maxSize, true);
+    }
+
+    private String decompress(InputStream body, int maxSize, boolean encoded) throws IOException {
+        assertAvailable();
+        PooledBuffer buffer = BUFFERS.get();
+        try {
+            try (InputStream decompressing = decompressing(encoded ? Base64.getDecoder().wrap(body) : body)) {
+                buffer.readFrom(decompressing, maxSize);
+            }
+            return buffer.toString(StandardCharsets.UTF_8);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private void assertAvailable() {
+        Assert.state(isAvailable(), () -> name() + " compression requires org.lz4:lz4-java on the classpath");
+    }
+
+    private OutputStream compressing(OutputStream out) throws IOException {
+        return switch (this) {
+            case GZIP -> new GZIPOutputStream(out);
+            case LZ4 -> Lz4Streams.compressing(out);
+        };
+    }
+
+    private InputStream decompressing(InputStream in) throws IOException {
+        return switch (this) {
+            case GZIP -> new GZIPInputStream(in);
+            case LZ4 -> Lz4Streams.decompressing(in);
+        };
+    }
+
+    /**
+     * A buffer which is reused across messages, unless a message made it grow beyond {@link #MAX_RETAINED_SIZE}.
+     */
+    private static final class PooledBuffer extends ByteArrayOutputStream {
+
+        private static final int INITIAL_SIZE = 16 * 1024;
+
+        private static final int MAX_RETAINED_SIZE = 1024 * 1024;
+
+        private static final int READ_SIZE = 8 * 1024;
+
+        PooledBuffer() {
+            super(INITIAL_SIZE);
+        }
+
+        ByteBuffer asByteBuffer() {
+            return ByteBuffer.wrap(this.buf, 0, this.count);
+        }
+
+        void readFrom(InputStream in, int maxSize) throws IOException {
+            int read;
+            do {
+                if (this.count > maxSize) {
+                    throw new IOException("Payload exceeds the maximum size of " + maxSize + " bytes");
+                }
+                if (this.buf.length - this.count < READ_SIZE) {
+                    this.buf = Arrays.copyOf(this.buf, Math.max(this.buf.length * 2, this.count + READ_SIZE));
+                }
+                read = in.read(this.buf, this.count, this.buf.length - this.count);
+                if (read > 0) {
+                    this.count += read;
+                }
+            } while (read >= 0);
+        }
+
+        void release() {
+            reset();
+            if (this.buf.length > MAX_RETAINED_SIZE) {
+                this.buf = new byte[INITIAL_SIZE];
+            }
+        }
+    }
+}
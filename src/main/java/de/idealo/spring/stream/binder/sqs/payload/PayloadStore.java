@@ -0,0 +1,27 @@
+package de.idealo.spring.stream.binder.sqs.payload;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stores message bodies which are too large to be sent through SQS, following the claim-check pattern: the producer
+ * replaces the body with the reference returned by {@link #store(byte[])}, and the consumer reads the body back
+ * with {@link #retrieve(String)}.
+ * <p>
+ * Stored payloads are not deleted by the binder, since a message may be consumed by more than one subscriber or be
+ * redelivered. Expire them with the means of the store, e.g. a lifecycle rule of the S3 bucket.
+ */
+public interface PayloadStore {
+
+    /**
+     * Store the payload.
+     *
+     * @return the reference which identifies the payload within this store, at most a few hundred characters long
+     */
+    String store(byte[] payload) throws IOException;
+
+    /**
+     * Open the payload stored under the given reference. The caller closes the stream.
+     */
+    InputStream retrieve(String reference) throws IOException;
+}
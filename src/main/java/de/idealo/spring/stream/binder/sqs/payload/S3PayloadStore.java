@@ -0,0 +1,72 @@
+package de.idealo.spring.stream.binder.sqs.payload;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+import org.springframework.util.Assert;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+
+/**
+ * Stores payloads as objects of an S3 bucket, optionally below a key prefix. The reference of a payload is an
+ * {@code s3://bucket/key} URI. Payloads are streamed from S3 while they are read, instead of being downloaded first.
+ * <p>
+ * Requires {@code software.amazon.awssdk:s3} on the classpath.
+ */
+public class S3PayloadStore implements PayloadStore {
+
+    private static final String SCHEME = "s3://";
+
+    private final S3Client s3Client;
+
+    private final String bucket;
+
+    private String keyPrefix = "";
+
+    public S3PayloadStore(S3Client s3Client, String bucket) {
+        Assert.notNull(s3Client, "'s3Client' must not be null");
+        Assert.hasText(bucket, "'bucket' must not be empty");
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+    }
+
+    public void setKeyPrefix(String keyPrefix) {
+        Assert.notNull(keyPrefix, "'keyPrefix' must not be null");
+        this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public String store(byte[] payload) throws IOException {
+        String key = this.keyPrefix + UUID.randomUUID();
+        try {
+            this.s3Client.putObject(PutObjectRequest.builder().bucket(this.bucket).key(key).build(), RequestBody.fromBytes(payload));
+        } catch (SdkException e) {
+            throw new IOException("Failed to store payload in S3 bucket '" + this.bucket + "'", e);
+        }
+        return SCHEME + this.bucket + "/" + key;
+    }
+
+    @Override
+    public InputStream retrieve(String reference) throws IOException {
+        int separator = reference.indexOf('/', SCHEME.length());
+        if (!reference.startsWith(SCHEME) || separator < 0) {
+            throw new IOException("Invalid payload reference '" + reference + "'");
+        }
+        String bucket = reference.substring(SCHEME.length(), separator);
+        String key = reference.substring(separator + 1);
+        // the reference is read from the message, so it must not point to objects this store did not write
+        if (!bucket.equals(this.bucket) || !key.startsWith(this.keyPrefix)) {
+            throw new IOException("Invalid payload reference '" + reference + "'");
+        }
+        try {
+            return this.s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(key).build());
+        } catch (SdkException e) {
+            throw new IOException("Failed to retrieve payload '" + reference + "' from S3", e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package de.idealo.spring.stream.binder.sqs.properties;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("spring.cloud.stream.sqs.binder")
+public class SqsBinderConfigurationProperties {
+
+    /**
+     * Whether the depth of every bound queue should be sampled and published as gauges, if a
+     * {@code MeterRegistry} is available. Default is true.
+     */
+    private boolean queueDepthEnabled = true;
+
+    /**
+     * How often the depth of the bound queues is sampled with one GetQueueAttributes request per queue.
+     * Default is 15 seconds.
+     */
+    private Duration queueDepthInterval = Duration.ofSeconds(15);
+
+    /**
+     * The share of the interval, between 0 and 1, by which each sampling is randomly moved so that many instances
+     * do not poll the same queue at the same time. Default is 0.1.
+     */
+    private double queueDepthJitter = 0.1;
+
+    /**
+     * The maximum time the health indicator waits for the reachability check of a queue. Default is 5 seconds.
+     */
+    private Duration healthCheckTimeout = Duration.ofSeconds(5);
+
+    /**
+     * How long the health indicator caches the reachability of a queue before it is refreshed in the background.
+     * Zero disables caching. Default is 30 seconds.
+     */
+    private Duration healthCheckCacheTtl = Duration.ofSeconds(30);
+
+    public boolean isQueueDepthEnabled() {
+        return queueDepthEnabled;
+    }
+
+    public void setQueueDepthEnabled(boolean queueDepthEnabled) {
+        this.queueDepthEnabled = queueDepthEnabled;
+    }
+
+    public Duration getQueueDepthInterval() {
+        return queueDepthInterval;
+    }
+
+    public void setQueueDepthInterval(Duration queueDepthInterval) {
+        this.queueDepthInterval = queueDepthInterval;
+    }
+
+    public double getQueueDepthJitter() {
+        return queueDepthJitter;
+    }
+
+    public void setQueueDepthJitter(double queueDepthJitter) {
+        this.queueDepthJitter = queueDepthJitter;
+    }
+
+    public Duration getHealthCheckTimeout() {
+        return healthCheckTimeout;
+    }
+
+    public void setHealthCheckTimeout(Duration healthCheckTimeout) {
+        this.healthCheckTimeout = healthCheckTimeout;
+    }
+
+    public Duration getHealthCheckCacheTtl() {
+        return healthCheckCacheTtl;
+    }
+
+    public void setHealthCheckCacheTtl(Duration healthCheckCacheTtl) {
+        this.healthCheckCacheTtl = healthCheckCacheTtl;
+    }
+}
@@ -3,6 +3,9 @@ package de.idealo.spring.stream.binder.sqs.properties;
 
 import java.time.Duration;
 
+import io.awspring.cloud.sqs.listener.BackPressureMode;
+import io.awspring.cloud.sqs.listener.acknowledgement.AcknowledgementOrdering;
+
 public class SqsConsumerProperties {
 
     /**
@@ -23,6 +26,12 @@ public class SqsConsumerProperties {
      */
     private Integer visibilityTimeout = 30;
 
+    /**
+     * Whether the visibility timeout configured on the queue is used instead of {@code visibilityTimeout}.
+     * Default is false.
+     */
+    private boolean useQueueVisibilityTimeout = false;
+
     /**
      * The duration in seconds that the system will wait for new messages to arrive when polling.
      * The value should be between 1 and 20. Default is 10.
@@ -45,6 +54,211 @@ public class SqsConsumerProperties {
      */
     private boolean snsFanout = true;
 
+    /**
+     * How messages that are not SNS notifications are handled if snsFanout is enabled.
+     * {@link SnsFanoutMode#STRICT} rejects them, {@link SnsFanoutMode#AUTO} passes them through unchanged.
+     * Defaults to STRICT.
+     */
+    private SnsFanoutMode snsFanoutMode = SnsFanoutMode.STRICT;
+
+    /**
+     * The headers that are mapped from an SNS notification envelope when it is unwrapped: the
+     * {@code sns_messageId}, {@code sns_topicArn} and {@code sns_timestamp} headers as well as one header per
+     * SNS message attribute. Simple patterns like {@code sns_*} or {@code !internal*} are supported.
+     * Default is none, so that parsing stops as soon as the message has been found.
+     */
+    private String[] snsHeaderPatterns = new String[0];
+
+    /**
+     * The maximum number of messages that are processed concurrently by the listener container of a binding.
+     * Must not be less than maxMessagesPerPoll. Default is the binding's {@code concurrency} multiplied by
+     * maxMessagesPerPoll.
+     *
+     * {@link io.awspring.cloud.sqs.listener.SqsContainerOptionsBuilder#maxConcurrentMessages(int)}
+     */
+    private Integer maxConcurrentMessages;
+
+    /**
+     * The maximum number of seconds the listener container waits for free capacity of maxMessagesPerPoll messages
+     * before polling for fewer messages. Default is 10 seconds.
+     *
+     * {@link io.awspring.cloud.sqs.listener.SqsContainerOptionsBuilder#maxDelayBetweenPolls(Duration)}
+     */
+    private Integer maxDelayBetweenPolls;
+
+    /**
+     * How the listener container adapts its polling to the number of messages in flight.
+     * Default is {@link BackPressureMode#AUTO}.
+     *
+     * {@link io.awspring.cloud.sqs.listener.SqsContainerOptionsBuilder#backPressureMode(BackPressureMode)}
+     */
+    private BackPressureMode backPressureMode;
+
+    /**
+     * Whether the binding's {@code concurrency} should create that many independent listener containers, as in
+     * earlier versions, instead of one container processing concurrency times maxMessagesPerPoll messages
+     * concurrently. Default is false.
+     */
+    private boolean legacyConcurrency = false;
+
+    /**
+     * Whether the number of messages processed concurrently should be scaled between adaptiveMinConcurrency and
+     * adaptiveMaxConcurrency, based on the queue depth, the ratio of empty receives and the processing latency.
+     * Replaces the concurrency based limits of the listener container. Default is false.
+     */
+    private boolean adaptiveConcurrency = false;
+
+    /**
+     * The lower bound for the number of messages processed concurrently in adaptive mode. Default is 1.
+     */
+    private Integer adaptiveMinConcurrency = 1;
+
+    /**
+     * The upper bound for the number of messages processed concurrently in adaptive mode. Default is 100.
+     */
+    private Integer adaptiveMaxConcurrency = 100;
+
+    /**
+     * The number of milliseconds between two evaluations of the concurrency limit in adaptive mode.
+     * Default is 10000 milliseconds.
+     */
+    private Long adaptiveSampleInterval = 10000L;
+
+    /**
+     * Whether the visibility of messages should be extended while they are being processed, so that
+     * {@code visibilityTimeout} can be short and messages of a crashed consumer are redelivered quickly.
+     * Default is false.
+     */
+    private boolean visibilityExtension = false;
+
+    /**
+     * The maximum number of seconds for which the visibility of a message is extended while it is being processed.
+     * Default is 3600 seconds.
+     */
+    private int maxVisibilityExtension = 3600;
+
+    /**
+     * Whether messages which failed to be processed should be redelivered after an exponential backoff, computed
+     * from their approximate receive count, instead of after the visibility timeout. Default is false.
+     */
+    private boolean failureBackoff = false;
+
+    /**
+     * The backoff in seconds after the first failed delivery of a message. Default is 1 second.
+     */
+    private int backoffInitialInterval = 1;
+
+    /**
+     * The factor by which the backoff grows with every further delivery. Default is 2.
+     */
+    private double backoffMultiplier = 2.0;
+
+    /**
+     * The maximum backoff in seconds. Must not exceed 43200 seconds (12 hours). Default is 900 seconds.
+     */
+    private int backoffMaxInterval = 900;
+
+    /**
+     * The share of the backoff, between 0 and 1, by which it is randomly reduced. Default is 0.2.
+     */
+    private double backoffJitter = 0.2;
+
+    /**
+     * The number of receives after which a message is forwarded to {@code deadLetterQueue} instead of being passed
+     * to the consumer. Only used if {@code deadLetterQueue} is set. Default is 5.
+     */
+    private int maxReceiveCount = 5;
+
+    /**
+     * The name or url of the queue which receives messages exceeding {@code maxReceiveCount}. Default is none,
+     * leaving dead letter handling to the redrive policy of the queue.
+     */
+    private String deadLetterQueue;
+
+    /**
+     * Whether messages should be processed on virtual threads instead of the threads of the listener container.
+     * Requires Java 21 or later. Default is false.
+     */
+    private boolean virtualThreads = false;
+
+    /**
+     * The name of a {@link org.springframework.core.task.TaskExecutor} bean which processes the messages of this
+     * binding instead of the threads of the listener container, e.g. to isolate bindings from each other.
+     * Default is none.
+     */
+    private String taskExecutor;
+
+    /**
+     * The maximum number of message groups processed concurrently. Messages within a group are strictly processed
+     * one after the other in the order of the queue, and groups take turns so that a hot group does not starve the
+     * others. If a message fails, the remaining messages of its group are released for redelivery. Intended for
+     * FIFO queues, messages without a message group id are treated as a group of their own. Not supported in batch
+     * mode, including batch windows: the binding fails to start if both are set. Default is none, leaving the
+     * ordering to the listener container.
+     */
+    private Integer messageGroupConcurrency;
+
+    /**
+     * The name of a {@link de.idealo.spring.stream.binder.sqs.payload.PayloadStore} bean from which the bodies of
+     * messages offloaded by the producer are read. Default is none, passing such messages on with the reference as
+     * payload.
+     */
+    private String payloadStore;
+
+    /**
+     * The maximum size in bytes of a payload read from the {@code payloadStore}, after decompression. Messages with
+     * larger payloads fail conversion. Default is 67108864 (64 MB).
+     */
+    private Integer maxRetrievedPayloadSize = 64 * 1024 * 1024;
+
+    /**
+     * The number of milliseconds after which pending acknowledgements are executed as DeleteMessageBatch requests.
+     * Default is the container default, which is 1 second for standard queues and immediate for FIFO queues.
+     *
+     * {@link io.awspring.cloud.sqs.listener.SqsContainerOptionsBuilder#acknowledgementInterval(Duration)}
+     */
+    private Long acknowledgementInterval;
+
+    /**
+     * The number of pending acknowledgements after which they are executed as DeleteMessageBatch requests.
+     * Default is the container default, which is 10 for standard queues and 0 for FIFO queues.
+     *
+     * {@link io.awspring.cloud.sqs.listener.SqsContainerOptionsBuilder#acknowledgementThreshold(int)}
+     */
+    private Integer acknowledgementThreshold;
+
+    /**
+     * The order in which messages are acknowledged. Default is the container default, which is PARALLEL for
+     * standard queues and ORDERED for FIFO queues.
+     *
+     * {@link io.awspring.cloud.sqs.listener.SqsContainerOptionsBuilder#acknowledgementOrdering(AcknowledgementOrdering)}
+     */
+    private AcknowledgementOrdering acknowledgementOrdering;
+
+    /**
+     * Whether every message should be acknowledged right after it has been processed instead of collecting
+     * acknowledgements into batches. Overrides acknowledgementInterval and acknowledgementThreshold.
+     * Default is false.
+     */
+    private boolean immediateAcknowledgement = false;
+
+    /**
+     * The maximum number of messages which are aggregated across polls into one batch in batch mode.
+     * A value of 0 disables windowing, every poll is then passed to the consumer as a batch of its own. Default is 0.
+     */
+    private Integer batchWindowSize = 0;
+
+    /**
+     * The maximum accumulated payload size in bytes of a batch window. Default is no limit.
+     */
+    private Long batchWindowMaxBytes = Long.MAX_VALUE;
+
+    /**
+     * The number of milliseconds a batch window stays open for further messages before it is passed to the
+     * consumer, even if it is not full. Default is 2000 milliseconds.
+     */
+    private Long batchWindowTimeout = 2000L;
+
     /**
      * @deprecated
      * This property was renamed. Use {@link SqsConsumerProperties#getMaxMessagesPerPoll()} instead.
@@ -107,6 +321,14 @@ public class SqsConsumerProperties {
         this.visibilityTimeout = visibilityTimeout;
     }
 
+    public boolean isUseQueueVisibilityTimeout() {
+        return useQueueVisibilityTimeout;
+    }
+
+    public void setUseQueueVisibilityTimeout(boolean useQueueVisibilityTimeout) {
+        this.useQueueVisibilityTimeout = useQueueVisibilityTimeout;
+    }
+
     public boolean isSnsFanout() {
         return snsFanout;
     }
@@ -116,6 +338,254 @@ public class SqsConsumerProperties {
     }
 
 
+    public SnsFanoutMode getSnsFanoutMode() {
+        return snsFanoutMode;
+    }
+
+    public void setSnsFanoutMode(SnsFanoutMode snsFanoutMode) {
+        this.snsFanoutMode = snsFanoutMode;
+    }
+
+    public String[] getSnsHeaderPatterns() {
+        return snsHeaderPatterns;
+    }
+
+    public void setSnsHeaderPatterns(String[] snsHeaderPatterns) {
+        this.snsHeaderPatterns = snsHeaderPatterns;
+    }
+
+    public Integer getMaxConcurrentMessages() {
+        return maxConcurrentMessages;
+    }
+
+    public void setMaxConcurrentMessages(Integer maxConcurrentMessages) {
+        this.maxConcurrentMessages = maxConcurrentMessages;
+    }
+
+    public Integer getMaxDelayBetweenPolls() {
+        return maxDelayBetweenPolls;
+    }
+
+    public void setMaxDelayBetweenPolls(Integer maxDelayBetweenPolls) {
+        this.maxDelayBetweenPolls = maxDelayBetweenPolls;
+    }
+
+    public BackPressureMode getBackPressureMode() {
+        return backPressureMode;
+    }
+
+    public void setBackPressureMode(BackPressureMode backPressureMode) {
+        this.backPressureMode = backPressureMode;
+    }
+
+    public boolean isLegacyConcurrency() {
+        return legacyConcurrency;
+    }
+
+    public void setLegacyConcurrency(boolean legacyConcurrency) {
+        this.legacyConcurrency = legacyConcurrency;
+    }
+
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    public void setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+    }
+
+    public Integer getAdaptiveMinConcurrency() {
+        return adaptiveMinConcurrency;
+    }
+
+    public void setAdaptiveMinConcurrency(Integer adaptiveMinConcurrency) {
+        this.adaptiveMinConcurrency = adaptiveMinConcurrency;
+    }
+
+    public Integer getAdaptiveMaxConcurrency() {
+        return adaptiveMaxConcurrency;
+    }
+
+    public void setAdaptiveMaxConcurrency(Integer adaptiveMaxConcurrency) {
+        this.adaptiveMaxConcurrency = adaptiveMaxConcurrency;
+    }
+
+    public Long getAdaptiveSampleInterval() {
+        return adaptiveSampleInterval;
+    }
+
+    public void setAdaptiveSampleInterval(Long adaptiveSampleInterval) {
+        this.adaptiveSampleInterval = adaptiveSampleInterval;
+    }
+
+    public boolean isVisibilityExtension() {
+        return visibilityExtension;
+    }
+
+    public void setVisibilityExtension(boolean visibilityExtension) {
+        this.visibilityExtension = visibilityExtension;
+    }
+
+    public int getMaxVisibilityExtension() {
+        return maxVisibilityExtension;
+    }
+
+    public void setMaxVisibilityExtension(int maxVisibilityExtension) {
+        this.maxVisibilityExtension = maxVisibilityExtension;
+    }
+
+    public boolean isFailureBackoff() {
+        return failureBackoff;
+    }
+
+    public void setFailureBackoff(boolean failureBackoff) {
+        this.failureBackoff = failureBackoff;
+    }
+
+    public int getBackoffInitialInterval() {
+        return backoffInitialInterval;
+    }
+
+    public void setBackoffInitialInterval(int backoffInitialInterval) {
+        this.backoffInitialInterval = backoffInitialInterval;
+    }
+
+    public double getBackoffMultiplier() {
+        return backoffMultiplier;
+    }
+
+    public void setBackoffMultiplier(double backoffMultiplier) {
+        this.backoffMultiplier = backoffMultiplier;
+    }
+
+    public int getBackoffMaxInterval() {
+        return backoffMaxInterval;
+    }
+
+    public void setBackoffMaxInterval(int backoffMaxInterval) {
+        this.backoffMaxInterval = backoffMaxInterval;
+    }
+
+    public double getBackoffJitter() {
+        return backoffJitter;
+    }
+
+    public void setBackoffJitter(double backoffJitter) {
+        this.backoffJitter = backoffJitter;
+    }
+
+    public Integer getMessageGroupConcurrency() {
+        return messageGroupConcurrency;
+    }
+
+    public void setMessageGroupConcurrency(Integer messageGroupConcurrency) {
+        this.messageGroupConcurrency = messageGroupConcurrency;
+    }
+
+    public String getPayloadStore() {
+        return payloadStore;
+    }
+
+    public void setPayloadStore(String payloadStore) {
+        this.payloadStore = payloadStore;
+    }
+
+    public Integer getMaxRetrievedPayloadSize() {
+        return maxRetrievedPayloadSize;
+    }
+
+    public void setMaxRetrievedPayloadSize(Integer maxRetrievedPayloadSize) {
+        this.maxRetrievedPayloadSize = maxRetrievedPayloadSize;
+    }
+
+    public int getMaxReceiveCount() {
+        return maxReceiveCount;
+    }
+
+    public void setMaxReceiveCount(int maxReceiveCount) {
+        this.maxReceiveCount = maxReceiveCount;
+    }
+
+    public String getDeadLetterQueue() {
+        return deadLetterQueue;
+    }
+
+    public void setDeadLetterQueue(String deadLetterQueue) {
+        this.deadLetterQueue = deadLetterQueue;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public String getTaskExecutor() {
+        return taskExecutor;
+    }
+
+    public void setTaskExecutor(String taskExecutor) {
+        this.taskExecutor = taskExecutor;
+    }
+
+    public Long getAcknowledgementInterval() {
+        return acknowledgementInterval;
+    }
+
+    public void setAcknowledgementInterval(Long acknowledgementInterval) {
+        this.acknowledgementInterval = acknowledgementInterval;
+    }
+
+    public Integer getAcknowledgementThreshold() {
+        return acknowledgementThreshold;
+    }
+
+    public void setAcknowledgementThreshold(Integer acknowledgementThreshold) {
+        this.acknowledgementThreshold = acknowledgementThreshold;
+    }
+
+    public AcknowledgementOrdering getAcknowledgementOrdering() {
+        return acknowledgementOrdering;
+    }
+
+    public void setAcknowledgementOrdering(AcknowledgementOrdering acknowledgementOrdering) {
+        this.acknowledgementOrdering = acknowledgementOrdering;
+    }
+
+    public boolean isImmediateAcknowledgement() {
+        return immediateAcknowledgement;
+    }
+
+    public void setImmediateAcknowledgement(boolean immediateAcknowledgement) {
+        this.immediateAcknowledgement = immediateAcknowledgement;
+    }
+
+    public Integer getBatchWindowSize() {
+        return batchWindowSize;
+    }
+
+    public void setBatchWindowSize(Integer batchWindowSize) {
+        this.batchWindowSize = batchWindowSize;
+    }
+
+    public Long getBatchWindowMaxBytes() {
+        return batchWindowMaxBytes;
+    }
+
+    public void setBatchWindowMaxBytes(Long batchWindowMaxBytes) {
+        this.batchWindowMaxBytes = batchWindowMaxBytes;
+    }
+
+    public Long getBatchWindowTimeout() {
+        return batchWindowTimeout;
+    }
+
+    public void setBatchWindowTimeout(Long batchWindowTimeout) {
+        this.batchWindowTimeout = batchWindowTimeout;
+    }
+
     public Integer getMaxMessagesPerPoll() {
         return maxMessagesPerPoll;
     }
@@ -139,4 +609,17 @@ public class SqsConsumerProperties {
     public void setListenerShutdownTimeout(final Long listenerShutdownTimeout) {
         this.listenerShutdownTimeout = listenerShutdownTimeout;
     }
+
+    public enum SnsFanoutMode {
+
+        /**
+         * Every message is expected to be an SNS notification, other messages are rejected.
+         */
+        STRICT,
+
+        /**
+         * Decide per message whether it is an SNS notification; other messages are passed through unchanged.
+         */
+        AUTO
+    }
 }
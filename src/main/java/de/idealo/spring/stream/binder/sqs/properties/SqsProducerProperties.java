@@ -1,4 +1,283 @@
 package de.idealo.spring.stream.binder.sqs.properties;
 
+import de.idealo.spring.stream.binder.sqs.payload.PayloadCompression;
+
 public class SqsProducerProperties {
+
+    /**
+     * Whether outbound messages should be aggregated into SendMessageBatch requests instead of being sent
+     * with one SendMessage request each. Default is false.
+     */
+    private boolean batchingEnabled = false;
+
+    /**
+     * The maximum number of messages that are combined into one SendMessageBatch request.
+     * Must be a number between 1 and 10. Default is 10.
+     */
+    private Integer batchSize = 10;
+
+    /**
+     * The maximum accumulated size in bytes of all messages combined into one SendMessageBatch request.
+     * Must not exceed the SQS limit of 262144 bytes (256 KB). Default is 262144.
+     */
+    private Integer batchMaxBytes = 262144;
+
+    /**
+     * The number of milliseconds a batch is kept open for further messages before it is sent, even if it is not full.
+     * Default is 10 milliseconds.
+     */
+    private Long batchLingerTime = 10L;
+
+    /**
+     * How often the failed entries of a partially failed SendMessageBatch request are retried before they are
+     * reported to the error channel of the binding. Entries that failed due to a sender fault are never retried.
+     * Default is 3.
+     */
+    private Integer batchMaxRetries = 3;
+
+    /**
+     * Whether messages should be sent without blocking the calling thread until SQS has accepted them.
+     * Failed sends are reported to the error channel of the binding. Has no effect if batching is enabled,
+     * as batches are always sent asynchronously. Not supported for FIFO queues, whose order the concurrent sends
+     * would not keep; enable batching for them instead. Default is false.
+     */
+    private boolean async = false;
+
+    /**
+     * The maximum number of messages that may be in flight when sending asynchronously, or that may wait for their
+     * batch to be sent to a FIFO queue. The calling thread blocks once this limit is reached. Default is 100.
+     */
+    private Integer maxInFlight = 100;
+
+    /**
+     * The maximum accumulated size in bytes of all messages that may be in flight when sending asynchronously.
+     * The calling thread blocks once this limit is reached. Default is 10485760 (10 MB).
+     */
+    private Integer maxInFlightBytes = 10485760;
+
+    /**
+     * The name of a channel bean which receives every successfully sent message when sending asynchronously or
+     * in batches. The SQS message id is available in the {@code aws_messageId} header. Default is none.
+     */
+    private String resultChannel;
+
+    /**
+     * SpEL expression evaluated against the outbound message to determine the delay in seconds, e.g.
+     * {@code headers['priority'] == 'low' ? 60 : 0}. Only used for messages without a {@code sqs_delay} header.
+     * Default is none.
+     */
+    private String delayExpression;
+
+    /**
+     * SpEL expression evaluated against the outbound message to determine the message group id for FIFO queues,
+     * e.g. {@code headers['tenant']} or {@code #jsonPath(payload, '$.customerId')}.
+     * Only used for messages without a {@code sqs_groupId} header. Default is none.
+     */
+    private String groupIdExpression;
+
+    /**
+     * SpEL expression evaluated against the outbound message to determine the deduplication id for FIFO queues.
+     * Only used for messages without a {@code sqs_deduplicationId} header. Default is none.
+     */
+    private String deduplicationIdExpression;
+
+    /**
+     * Whether the message group id for FIFO queues should be derived from the partition key of the binding, as
+     * configured with {@code partitionKeyExpression} or {@code partitionKeyExtractorName}, so that load is spread
+     * over as many groups as there are keys. Only used for messages without a {@code sqs_groupId} header and if no
+     * {@code groupIdExpression} is set. Default is false.
+     */
+    private boolean groupIdFromPartitionKey = false;
+
+    /**
+     * Whether the deduplication id for FIFO queues should be derived from a 64 bit FNV-1a hash of the payload and
+     * the {@code deduplicationHeaders}, so that resending the same message is deduplicated by SQS. Only used for
+     * messages without a {@code sqs_deduplicationId} header and if no {@code deduplicationIdExpression} is set.
+     * Default is false.
+     */
+    private boolean deduplicationIdFromContent = false;
+
+    /**
+     * The headers which are included in the hash of {@code deduplicationIdFromContent} in addition to the payload.
+     * Default is none.
+     */
+    private String[] deduplicationHeaders = new String[0];
+
+    /**
+     * The name of a {@link de.idealo.spring.stream.binder.sqs.payload.PayloadStore} bean to which the bodies of
+     * messages larger than {@code payloadOffloadThreshold} are written, sending only a reference to them through SQS.
+     * Default is none, failing to send messages larger than the SQS limit.
+     */
+    private String payloadStore;
+
+    /**
+     * The size in bytes, including message attributes, above which a message is offloaded to the
+     * {@code payloadStore}. SQS bills requests in chunks of 64 KB, so a lower threshold can reduce costs.
+     * Default is 262144, the maximum message size of SQS.
+     */
+    private Integer payloadOffloadThreshold = 262144;
+
+    /**
+     * The codec with which the payloads of messages larger than {@code compressionThreshold} are compressed, one of
+     * {@code GZIP} or {@code LZ4}. The compressed payload is sent base64 encoded, with the codec in the
+     * {@code sqs_contentEncoding} message attribute, and decompressed by the consumer. Default is none.
+     */
+    private PayloadCompression compression;
+
+    /**
+     * The size in bytes above which payloads are compressed, if a {@code compression} is set. Default is 1024.
+     */
+    private Integer compressionThreshold = 1024;
+
+    public boolean isBatchingEnabled() {
+        return batchingEnabled;
+    }
+
+    public void setBatchingEnabled(boolean batchingEnabled) {
+        this.batchingEnabled = batchingEnabled;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public Integer getBatchMaxBytes() {
+        return batchMaxBytes;
+    }
+
+    public void setBatchMaxBytes(Integer batchMaxBytes) {
+        this.batchMaxBytes = batchMaxBytes;
+    }
+
+    public Long getBatchLingerTime() {
+        return batchLingerTime;
+    }
+
+    public void setBatchLingerTime(Long batchLingerTime) {
+        this.batchLingerTime = batchLingerTime;
+    }
+
+    public Integer getBatchMaxRetries() {
+        return batchMaxRetries;
+    }
+
+    public void setBatchMaxRetries(Integer batchMaxRetries) {
+        this.batchMaxRetries = batchMaxRetries;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public Integer getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(Integer maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public Integer getMaxInFlightBytes() {
+        return maxInFlightBytes;
+    }
+
+    public void setMaxInFlightBytes(Integer maxInFlightBytes) {
+        this.maxInFlightBytes = maxInFlightBytes;
+    }
+
+    public String getResultChannel() {
+        return resultChannel;
+    }
+
+    public void setResultChannel(String resultChannel) {
+        this.resultChannel = resultChannel;
+    }
+
+    public String getDelayExpression() {
+        return delayExpression;
+    }
+
+    public void setDelayExpression(String delayExpression) {
+        this.delayExpression = delayExpression;
+    }
+
+    public String getGroupIdExpression() {
+        return groupIdExpression;
+    }
+
+    public void setGroupIdExpression(String groupIdExpression) {
+        this.groupIdExpression = groupIdExpression;
+    }
+
+    public String getDeduplicationIdExpression() {
+        return deduplicationIdExpression;
+    }
+
+    public void setDeduplicationIdExpression(String deduplicationIdExpression) {
+        this.deduplicationIdExpression = deduplicationIdExpression;
+    }
+
+    public boolean isGroupIdFromPartitionKey() {
+        return groupIdFromPartitionKey;
+    }
+
+    public void setGroupIdFromPartitionKey(boolean groupIdFromPartitionKey) {
+        this.groupIdFromPartitionKey = groupIdFromPartitionKey;
+    }
+
+    public boolean isDeduplicationIdFromContent() {
+        return deduplicationIdFromContent;
+    }
+
+    public void setDeduplicationIdFromContent(boolean deduplicationIdFromContent) {
+        this.deduplicationIdFromContent = deduplicationIdFromContent;
+    }
+
+    public String[] getDeduplicationHeaders() {
+        return deduplicationHeaders;
+    }
+
+    public void setDeduplicationHeaders(String[] deduplicationHeaders) {
+        this.deduplicationHeaders = deduplicationHeaders;
+    }
+
+    public String getPayloadStore() {
+        return payloadStore;
+    }
+
+    public void setPayloadStore(String payloadStore) {
+        this.payloadStore = payloadStore;
+    }
+
+    public Integer getPayloadOffloadThreshold() {
+        return payloadOffloadThreshold;
+    }
+
+    public void setPayloadOffloadThreshold(Integer payloadOffloadThreshold) {
+        this.payloadOffloadThreshold = payloadOffloadThreshold;
+    }
+
+    public PayloadCompression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(PayloadCompression compression) {
+        this.compression = compression;
+    }
+
+    public Integer getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public void setCompressionThreshold(Integer compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
 }
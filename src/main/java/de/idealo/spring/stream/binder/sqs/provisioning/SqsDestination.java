@@ -1,14 +1,41 @@
 package de.idealo.spring.stream.binder.sqs.provisioning;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.springframework.cloud.stream.provisioning.ConsumerDestination;
 import org.springframework.cloud.stream.provisioning.ProducerDestination;
 
+/**
+ * A queue, or for partitioned bindings a set of queues, one per partition. The queue of a partition is named after
+ * the destination with the partition index appended, keeping the {@code .fifo} suffix of FIFO queues, e.g.
+ * {@code orders-0.fifo} and {@code orders-1.fifo} for the destination {@code orders.fifo}.
+ * <p>
+ * The metadata of the queues is resolved in the background while the destination is provisioned, and shared by the
+ * components of its bindings through {@link #getMetadata(String)}.
+ */
 public class SqsDestination implements ConsumerDestination, ProducerDestination {
 
+    private static final String FIFO_SUFFIX = ".fifo";
+
     private final String name;
 
+    private final List<String> queues;
+
+    private final Map<String, CompletableFuture<SqsQueueMetadata>> metadata = new ConcurrentHashMap<>();
+
     public SqsDestination(String name) {
+        this(name, List.of(name));
+    }
+
+    /**
+     * @param queues the queues a consumer of the destination binds to
+     */
+    public SqsDestination(String name, List<String> queues) {
         this.name = name;
+        this.queues = List.copyOf(queues);
     }
 
     @Override
@@ -16,9 +43,42 @@ public class SqsDestination implements ConsumerDestination, ProducerDestination
         return name;
     }
 
+    /**
+     * @return the queues a consumer of the destination binds to
+     */
+    public List<String> getQueues() {
+        return queues;
+    }
+
+    /**
+     * @param queue the queue of the destination or of one of its partitions
+     * @return the metadata of the queue, which may still be resolving, or {@code null} if it is not resolved
+     */
+    public CompletableFuture<SqsQueueMetadata> getMetadata(String queue) {
+        return this.metadata.get(queue);
+    }
+
+    void setMetadata(String queue, CompletableFuture<SqsQueueMetadata> metadata) {
+        this.metadata.put(queue, metadata);
+    }
+
     @Override
     public String getNameForPartition(int partition) {
-        throw new UnsupportedOperationException("Partitioning is not supported for SQS");
+        return partitionName(name, partition);
+    }
+
+    /**
+     * @param name the name or the url of the destination
+     * @return the name or the url of the queue of the partition
+     */
+    public static String partitionName(String name, int partition) {
+        if (partition < 0) {
+            throw new IllegalArgumentException("Partition must not be negative, but was " + partition);
+        }
+        if (name.endsWith(FIFO_SUFFIX)) {
+            return name.substring(0, name.length() - FIFO_SUFFIX.length()) + "-" + partition + FIFO_SUFFIX;
+        }
+        return name + "-" + partition;
     }
 
 }
@@ -0,0 +1,15 @@
+package de.idealo.spring.stream.binder.sqs.provisioning;
+
+import java.time.Duration;
+
+/**
+ * The url and the attributes of a queue which the binder needs, resolved once when the destination is provisioned
+ * and shared by all components of its bindings.
+ *
+ * @param queueUrl the url of the queue
+ * @param fifo whether the queue is a FIFO queue
+ * @param visibilityTimeout the default visibility timeout of the queue, or {@code null} if it is unknown
+ * @param redrivePolicy the redrive policy of the queue as JSON, or {@code null} if it has none
+ */
+public record SqsQueueMetadata(String queueUrl, boolean fifo, Duration visibilityTimeout, String redrivePolicy) {
+}
@@ -0,0 +1,144 @@
+package de.idealo.spring.stream.binder.sqs.provisioning;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.springframework.util.Assert;
+
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+import software.amazon.awssdk.services.sqs.model.QueueDoesNotExistException;
+
+/**
+ * Resolves the {@link SqsQueueMetadata} of queues with one GetQueueUrl and one GetQueueAttributes request and keeps
+ * them in a cache bounded to {@code maxSize} queues, evicting the least recently used ones. Failed resolutions are
+ * not cached, and queues which turn out not to exist anymore are evicted, so that they are resolved again on the
+ * next access.
+ */
+public class SqsQueueMetadataCache {
+
+    private final SqsAsyncClient sqsAsyncClient;
+
+    private final Map<String, CompletableFuture<SqsQueueMetadata>> cache;
+
+    public SqsQueueMetadataCache(SqsAsyncClient sqsAsyncClient) {
+        this(sqsAsyncClient, 256);
+    }
+
+    public SqsQueueMetadataCache(SqsAsyncClient sqsAsyncClient, int maxSize) {
+        Assert.notNull(sqsAsyncClient, "'sqsAsyncClient' must not be null");
+        Assert.isTrue(maxSize > 0, "'maxSize' must be greater than 0");
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<SqsQueueMetadata>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * @param queue the name or the url of the queue
+     */
+    public CompletableFuture<SqsQueueMetadata> resolve(String queue) {
+        CompletableFuture<SqsQueueMetadata> metadata;
+        synchronized (this.cache) {
+            metadata = this.cache.get(queue);
+            if (metadata != null && !metadata.isCompletedExceptionally()) {
+                return metadata;
+            }
+            metadata = new CompletableFuture<>();
+            this.cache.put(queue, metadata);
+        }
+        CompletableFuture<SqsQueueMetadata> resolved = metadata;
+        request(queue).whenComplete((result, throwable) -> {
+            if (throwable != null) {
+                invalidate(queue, resolved);
+                resolved.completeExceptionally(throwable);
+            } else {
+                resolved.complete(result);
+            }
+        });
+        return resolved;
+    }
+
+    /**
+     * @param queue the name or the url of the queue
+     */
+    public CompletableFuture<String> resolveQueueUrl(String queue) {
+        return resolve(queue).thenApply(SqsQueueMetadata::queueUrl);
+    }
+
+    /**
+     * @param queue the name or the url of the queue
+     * @return the metadata of the queue if it has been resolved already, without requesting it otherwise
+     */
+    public SqsQueueMetadata getIfResolved(String queue) {
+        CompletableFuture<SqsQueueMetadata> metadata;
+        synchronized (this.cache) {
+            metadata = this.cache.get(queue);
+        }
+        return metadata != null && metadata.isDone() && !metadata.isCompletedExceptionally() ? metadata.join() : null;
+    }
+
+    /**
+     * Evict the queue, for example after a request failed with a {@link QueueDoesNotExistException}.
+     */
+    public void invalidate(String queue) {
+        synchronized (this.cache) {
+            this.cache.remove(queue);
+        }
+    }
+
+    /**
+     * Evict the queue if the throwable, or its cause, is a {@link QueueDoesNotExistException}.
+     *
+     * @return whether the queue has been evicted
+     */
+    public boolean invalidateIfNotExists(String queue, Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        if (cause instanceof QueueDoesNotExistException) {
+            invalidate(queue);
+            return true;
+        }
+        return false;
+    }
+
+    private void invalidate(String queue, CompletableFuture<SqsQueueMetadata> metadata) {
+        synchronized (this.cache) {
+            this.cache.remove(queue, metadata);
+        }
+    }
+
+    private CompletableFuture<SqsQueueMetadata> request(String queue) {
+        try {
+            CompletableFuture<String> queueUrl = queue.startsWith("http")
+                    ? CompletableFuture.completedFuture(queue)
+                    : this.sqsAsyncClient.getQueueUrl(GetQueueUrlRequest.builder().queueName(queue).build()).thenApply(GetQueueUrlResponse::queueUrl);
+            return queueUrl.thenCompose(url -> this.sqsAsyncClient.getQueueAttributes(GetQueueAttributesRequest.builder()
+                            .queueUrl(url)
+                            .attributeNames(QueueAttributeName.FIFO_QUEUE, QueueAttributeName.VISIBILITY_TIMEOUT, QueueAttributeName.REDRIVE_POLICY)
+                            .build())
+                    .thenApply(response -> toMetadata(url, response)));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static SqsQueueMetadata toMetadata(String queueUrl, GetQueueAttributesResponse response) {
+        Map<QueueAttributeName, String> attributes = response.attributes();
+        String fifo = attributes.get(QueueAttributeName.FIFO_QUEUE);
+        String visibilityTimeout = attributes.get(QueueAttributeName.VISIBILITY_TIMEOUT);
+        return new SqsQueueMetadata(queueUrl,
+                fifo != null ? Boolean.parseBoolean(fifo) : queueUrl.endsWith(".fifo"),
+                visibilityTimeout != null ? Duration.ofSeconds(Long.parseLong(visibilityTimeout)) : null,
+                attributes.get(QueueAttributeName.REDRIVE_POLICY));
+    }
+}
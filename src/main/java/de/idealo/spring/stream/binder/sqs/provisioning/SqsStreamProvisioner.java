@@ -1,22 +1,92 @@
 package de.idealo.spring.stream.binder.sqs.provisioning;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
 import org.springframework.cloud.stream.binder.ExtendedProducerProperties;
 import org.springframework.cloud.stream.provisioning.ConsumerDestination;
 import org.springframework.cloud.stream.provisioning.ProducerDestination;
 import org.springframework.cloud.stream.provisioning.ProvisioningProvider;
+import org.springframework.util.CollectionUtils;
+
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 
 import de.idealo.spring.stream.binder.sqs.properties.SqsConsumerProperties;
 import de.idealo.spring.stream.binder.sqs.properties.SqsProducerProperties;
 
+/**
+ * Provisions {@link SqsDestination}s. If created with a {@link SqsAsyncClient}, the resolution of the url and the
+ * attributes of every queue of the destination, including the queues of its partitions, is started right away in
+ * the {@link SqsQueueMetadataCache} and stored on the destination, see {@link SqsDestination#getMetadata(String)}. Provisioning does not wait for
+ * the resolution, and queues which cannot be resolved are still provisioned, leaving the resolution to the components.
+ * <p>
+ * Partitioned producers send to one queue per partition, see {@link SqsDestination#getNameForPartition(int)}.
+ * Partitioned consumers bind to the queues of the partitions in their {@code instanceIndexList}, or else to the
+ * queue of the partition matching their {@code instanceIndex}. The queues of the partitions must exist.
+ */
 public class SqsStreamProvisioner implements ProvisioningProvider<ExtendedConsumerProperties<SqsConsumerProperties>, ExtendedProducerProperties<SqsProducerProperties>> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqsStreamProvisioner.class);
+
+    private final SqsQueueMetadataCache metadataCache;
+
+    public SqsStreamProvisioner() {
+        this.metadataCache = null;
+    }
+
+    public SqsStreamProvisioner(SqsAsyncClient sqsAsyncClient) {
+        this.metadataCache = new SqsQueueMetadataCache(sqsAsyncClient);
+    }
+
+    /**
+     * @return the cache of the resolved queue metadata, or {@code null} if queues are not resolved
+     */
+    public SqsQueueMetadataCache getMetadataCache() {
+        return metadataCache;
+    }
+
     @Override
     public ProducerDestination provisionProducerDestination(String name, ExtendedProducerProperties<SqsProducerProperties> properties) {
-        return new SqsDestination(name);
+        SqsDestination destination = new SqsDestination(name);
+        if (properties.isPartitioned() && properties.getPartitionCount() > 1) {
+            for (int partition = 0; partition < properties.getPartitionCount(); partition++) {
+                resolve(destination, destination.getNameForPartition(partition));
+            }
+        } else {
+            resolve(destination, name);
+        }
+        return destination;
     }
 
     @Override
     public ConsumerDestination provisionConsumerDestination(String name, String group, ExtendedConsumerProperties<SqsConsumerProperties> properties) {
-        return new SqsDestination(name);
+        SqsDestination destination;
+        if (properties.isPartitioned()) {
+            List<Integer> partitions = CollectionUtils.isEmpty(properties.getInstanceIndexList())
+                    ? List.of(properties.getInstanceIndex())
+                    : properties.getInstanceIndexList();
+            destination = new SqsDestination(name, partitions.stream().map(partition -> SqsDestination.partitionName(name, partition)).toList());
+        } else {
+            destination = new SqsDestination(name);
+        }
+        for (String queue : destination.getQueues()) {
+            resolve(destination, queue);
+        }
+        return destination;
+    }
+
+    private void resolve(SqsDestination destination, String queue) {
+        if (this.metadataCache != null) {
+            CompletableFuture<SqsQueueMetadata> metadata = this.metadataCache.resolve(queue);
+            metadata.whenComplete((resolved, throwable) -> {
+                if (throwable != null) {
+                    LOGGER.warn("Failed to resolve queue '{}' during provisioning", queue, throwable);
+                }
+            });
+            destination.setMetadata(queue, metadata);
+        }
     }
 }
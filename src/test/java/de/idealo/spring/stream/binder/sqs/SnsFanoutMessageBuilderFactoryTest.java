@@ -0,0 +1,198 @@
+package de.idealo.spring.stream.binder.sqs;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.support.MessageBuilder;
+
+class SnsFanoutMessageBuilderFactoryTest {
+
+    private static final String NOTIFICATION = """
+            {
+              "Type" : "Notification",
+              "MessageId" : "22b80b92-fdea-4c2c-8f9d-bdfb0c7bf324",
+              "TopicArn" : "arn:aws:sns:us-west-2:123456789012:MyTopic",
+              "Subject" : "My First Message",
+              "Message" : "{\\"id\\":1}",
+              "Timestamp" : "2012-05-02T00:54:06.655Z",
+              "SignatureVersion" : "1",
+              "Signature" : "EXAMPLEw6JRN...",
+              "SigningCertURL" : "https://sns.us-west-2.amazonaws.com/SimpleNotificationService.pem",
+              "MessageAttributes" : { "key" : { "Type" : "String", "Value" : "value" } }
+            }
+            """;
+
+    private final SnsFanoutMessageBuilderFactory factory = new SnsFanoutMessageBuilderFactory();
+
+    private final SnsFanoutMessageBuilderFactory mappingFactory = new SnsFanoutMessageBuilderFactory(new String[] { "*" });
+
+    @Test
+    void shouldUnwrapNotificationMessage() {
+        Message<String> message = MessageBuilder.withPayload(NOTIFICATION).setHeader("foo", "bar").build();
+
+        Message<?> result = factory.fromMessage(message).build();
+
+        assertThat(result.getPayload()).isEqualTo("{\"id\":1}");
+        assertThat(result.getHeaders()).containsEntry("foo", "bar");
+    }
+
+    @Test
+    void shouldUnwrapNotificationMessageFromBytes() {
+        Message<byte[]> message = MessageBuilder.withPayload(NOTIFICATION.getBytes(StandardCharsets.UTF_8)).build();
+
+        Message<?> result = factory.fromMessage(message).build();
+
+        assertThat(result.getPayload()).isEqualTo("{\"id\":1}");
+    }
+
+    @Test
+    void shouldFindTypeAfterMessage() {
+        Message<String> message = MessageBuilder.withPayload("{\"Message\":\"payload\",\"Signature\":{\"nested\":[1,2]},\"Type\":\"Notification\"}").build();
+
+        Message<?> result = factory.fromMessage(message).build();
+
+        assertThat(result.getPayload()).isEqualTo("payload");
+    }
+
+    @Test
+    void shouldRejectPayloadWithoutType() {
+        Message<String> message = MessageBuilder.withPayload("{\"Message\":\"payload\"}").build();
+
+        assertThatThrownBy(() -> factory.fromMessage(message))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("does not contain a Type attribute");
+    }
+
+    @Test
+    void shouldRejectOtherTypes() {
+        Message<String> message = MessageBuilder.withPayload("{\"Type\":\"SubscriptionConfirmation\",\"Message\":\"payload\"}").build();
+
+        assertThatThrownBy(() -> factory.fromMessage(message))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("is not a valid notification");
+    }
+
+    @Test
+    void shouldRejectNotificationWithoutMessage() {
+        Message<String> message = MessageBuilder.withPayload("{\"Type\":\"Notification\"}").build();
+
+        assertThatThrownBy(() -> factory.fromMessage(message))
+                .isInstanceOf(MessageConversionException.class)
+                .hasMessageContaining("does not contain a message");
+    }
+
+    @Test
+    void shouldBoundPayloadInErrorMessage() {
+        String payload = "not json " + "x".repeat(10_000);
+        Message<String> message = MessageBuilder.withPayload(payload).build();
+
+        assertThatThrownBy(() -> factory.fromMessage(message))
+                .isInstanceOf(MessagingException.class)
+                .satisfies(e -> assertThat(e.getMessage()).hasSizeLessThan(1_000));
+    }
+
+    @Test
+    void shouldMapEnvelopeFieldsToHeaders() {
+        Message<String> message = MessageBuilder.withPayload(NOTIFICATION).build();
+
+        Message<?> result = mappingFactory.fromMessage(message).build();
+
+        assertThat(result.getHeaders())
+                .containsEntry(SqsHeaders.SNS_MESSAGE_ID, "22b80b92-fdea-4c2c-8f9d-bdfb0c7bf324")
+                .containsEntry(SqsHeaders.SNS_TOPIC_ARN, "arn:aws:sns:us-west-2:123456789012:MyTopic")
+                .containsEntry(SqsHeaders.SNS_TIMESTAMP, "2012-05-02T00:54:06.655Z")
+                .containsEntry("key", "value");
+    }
+
+    @Test
+    void shouldConvertTypedMessageAttributes() {
+        Message<String> message = MessageBuilder.withPayload("{\"Type\":\"Notification\",\"Message\":\"payload\",\"MessageAttributes\":{"
+                + "\"count\":{\"Type\":\"Number\",\"Value\":\"42\"},"
+                + "\"ratio\":{\"Type\":\"Number\",\"Value\":\"0.5\"},"
+                + "\"data\":{\"Type\":\"Binary\",\"Value\":\"AQI=\"}}}").build();
+
+        Message<?> result = mappingFactory.fromMessage(message).build();
+
+        assertThat(result.getHeaders())
+                .containsEntry("count", 42L)
+                .containsEntry("ratio", 0.5d)
+                .containsEntry("data", new byte[] { 1, 2 });
+    }
+
+    @Test
+    void shouldOnlyMapAllowedHeaders() {
+        SnsFanoutMessageBuilderFactory restrictedFactory = new SnsFanoutMessageBuilderFactory(new String[] { "!sns_timestamp", "sns_*" });
+
+        Message<?> result = restrictedFactory.fromMessage(MessageBuilder.withPayload(NOTIFICATION).build()).build();
+
+        assertThat(result.getHeaders())
+                .containsKeys(SqsHeaders.SNS_MESSAGE_ID, SqsHeaders.SNS_TOPIC_ARN)
+                .doesNotContainKeys(SqsHeaders.SNS_TIMESTAMP, "key");
+    }
+
+    @Test
+    void shouldNotMapHeadersWithoutPatterns() {
+        SnsFanoutMessageBuilderFactory restrictedFactory = new SnsFanoutMessageBuilderFactory(new String[0]);
+
+        Message<?> result = restrictedFactory.fromMessage(MessageBuilder.withPayload(NOTIFICATION).build()).build();
+
+        assertThat(result.getPayload()).isEqualTo("{\"id\":1}");
+        assertThat(result.getHeaders()).doesNotContainKeys(SqsHeaders.SNS_MESSAGE_ID, "key");
+    }
+
+    @Test
+    void shouldStopParsingOnceMessageIsFoundWithoutPatterns() {
+        // the envelope is truncated after the message, which is only noticed if the parser reads on
+        Message<String> message = MessageBuilder.withPayload("{\"Type\":\"Notification\",\"Message\":\"payload\",\"MessageId\":").build();
+
+        Message<?> result = factory.fromMessage(message).build();
+
+        assertThat(result.getPayload()).isEqualTo("payload");
+        assertThatThrownBy(() -> mappingFactory.fromMessage(message)).isInstanceOf(MessagingException.class);
+    }
+
+    @Test
+    void shouldPreferSqsHeadersOverEnvelopeHeaders() {
+        Message<String> message = MessageBuilder.withPayload(NOTIFICATION).setHeader("key", "sqs").build();
+
+        Message<?> result = mappingFactory.fromMessage(message).build();
+
+        assertThat(result.getHeaders()).containsEntry("key", "sqs");
+    }
+
+    @Test
+    void shouldPassRawMessagesThroughInAutoDetectMode() {
+        SnsFanoutMessageBuilderFactory autoDetectFactory = new SnsFanoutMessageBuilderFactory();
+        autoDetectFactory.setAutoDetect(true);
+
+        assertThat(autoDetectFactory.fromMessage(MessageBuilder.withPayload("plain text").build()).build().getPayload()).isEqualTo("plain text");
+        assertThat(autoDetectFactory.fromMessage(MessageBuilder.withPayload("{\"id\":1}").build()).build().getPayload()).isEqualTo("{\"id\":1}");
+        assertThat(autoDetectFactory.fromMessage(MessageBuilder.withPayload("{\"Type\":\"Other\"}").build()).build().getPayload()).isEqualTo("{\"Type\":\"Other\"}");
+        assertThat(autoDetectFactory.fromMessage(MessageBuilder.withPayload("{\"Type\": broken").build()).build().getPayload()).isEqualTo("{\"Type\": broken");
+    }
+
+    @Test
+    void shouldUnwrapNotificationsInAutoDetectMode() {
+        SnsFanoutMessageBuilderFactory autoDetectFactory = new SnsFanoutMessageBuilderFactory();
+        autoDetectFactory.setAutoDetect(true);
+
+        Message<?> result = autoDetectFactory.fromMessage(MessageBuilder.withPayload(NOTIFICATION.getBytes(StandardCharsets.UTF_8)).build()).build();
+
+        assertThat(result.getPayload()).isEqualTo("{\"id\":1}");
+    }
+
+    @Test
+    void shouldDetectEnvelopeCandidates() {
+        assertThat(SnsFanoutMessageBuilderFactory.isEnvelopeCandidate("  {\"Type\":\"Notification\"}")).isTrue();
+        assertThat(SnsFanoutMessageBuilderFactory.isEnvelopeCandidate(" {\"Type\":1}".getBytes(StandardCharsets.UTF_8))).isTrue();
+        assertThat(SnsFanoutMessageBuilderFactory.isEnvelopeCandidate("{\"id\":1}")).isFalse();
+        assertThat(SnsFanoutMessageBuilderFactory.isEnvelopeCandidate("\"Type\"")).isFalse();
+        assertThat(SnsFanoutMessageBuilderFactory.isEnvelopeCandidate("")).isFalse();
+    }
+}
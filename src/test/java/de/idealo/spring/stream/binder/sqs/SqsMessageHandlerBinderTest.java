@@ -1,24 +1,58 @@
 package de.idealo.spring.stream.binder.sqs;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
+import org.springframework.cloud.stream.binder.ExtendedProducerProperties;
+import org.springframework.cloud.stream.provisioning.ProducerDestination;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.integration.support.utils.IntegrationUtils;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import io.awspring.cloud.sqs.listener.SqsContainerOptions;
+import io.awspring.cloud.sqs.listener.acknowledgement.AcknowledgementOrdering;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
 
+import de.idealo.spring.stream.binder.sqs.inbound.SqsInboundChannelAdapter;
 import de.idealo.spring.stream.binder.sqs.properties.SqsConsumerProperties;
 import de.idealo.spring.stream.binder.sqs.properties.SqsExtendedBindingProperties;
+import de.idealo.spring.stream.binder.sqs.properties.SqsProducerProperties;
 import de.idealo.spring.stream.binder.sqs.provisioning.SqsDestination;
 import de.idealo.spring.stream.binder.sqs.provisioning.SqsStreamProvisioner;
 
 @ExtendWith(MockitoExtension.class)
 class SqsMessageHandlerBinderTest {
 
+    private static final String QUEUE_URL = "https://sqs.eu-central-1.amazonaws.com/1234567890/queue1";
+
     @Mock
     private SqsAsyncClient amazonSQS;
 
@@ -39,4 +73,151 @@ class SqsMessageHandlerBinderTest {
         assertThat(sqsMessageHandlerBinder.getAdapters().get(0).getQueues()).containsExactly(queueName);
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldBindPartitionedConsumerToQueuesOfItsPartitions() throws Exception {
+        ExtendedConsumerProperties<SqsConsumerProperties> properties = new ExtendedConsumerProperties<>(new SqsConsumerProperties());
+        properties.setPartitioned(true);
+        properties.setInstanceIndexList(List.of(0, 2));
+
+        SqsDestination destination = (SqsDestination) new SqsStreamProvisioner().provisionConsumerDestination("queue1.fifo", "group", properties);
+        sqsMessageHandlerBinder.createConsumerEndpoint(destination, "group", properties);
+
+        assertThat(destination.getNameForPartition(1)).isEqualTo("queue1-1.fifo");
+        assertThat(sqsMessageHandlerBinder.getAdapters().get(0).getQueues()).containsExactly("queue1-0.fifo", "queue1-2.fifo");
+    }
+
+    @Test
+    void shouldNotResolveQueueUrlPerSendOfSyncProducer() throws Exception {
+        when(amazonSQS.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(CompletableFuture.completedFuture(GetQueueUrlResponse.builder().queueUrl(QUEUE_URL).build()));
+        when(amazonSQS.getQueueAttributes(any(GetQueueAttributesRequest.class))).thenReturn(CompletableFuture.completedFuture(GetQueueAttributesResponse.builder().build()));
+        when(amazonSQS.sendMessage(any(SendMessageRequest.class))).thenReturn(CompletableFuture.completedFuture(SendMessageResponse.builder().messageId("id").build()));
+        SqsStreamProvisioner provisioner = new SqsStreamProvisioner(amazonSQS);
+        SqsMessageHandlerBinder binder = new SqsMessageHandlerBinder(amazonSQS, provisioner, new SqsExtendedBindingProperties());
+        GenericApplicationContext applicationContext = new GenericApplicationContext();
+        applicationContext.registerBean(IntegrationUtils.INTEGRATION_CONVERSION_SERVICE_BEAN_NAME, ConversionService.class, DefaultConversionService::new);
+        applicationContext.refresh();
+        binder.setApplicationContext(applicationContext);
+        ExtendedProducerProperties<SqsProducerProperties> properties = new ExtendedProducerProperties<>(new SqsProducerProperties());
+
+        ProducerDestination destination = provisioner.provisionProducerDestination("queue1", properties);
+        MessageHandler messageHandler = binder.createProducerMessageHandler(destination, properties, null);
+        ((InitializingBean) messageHandler).afterPropertiesSet();
+        for (int i = 0; i < 3; i++) {
+            messageHandler.handleMessage(MessageBuilder.withPayload("message " + i).build());
+        }
+
+        ArgumentCaptor<SendMessageRequest> requests = ArgumentCaptor.forClass(SendMessageRequest.class);
+        verify(amazonSQS, times(3)).sendMessage(requests.capture());
+        assertThat(requests.getAllValues()).extracting(SendMessageRequest::queueUrl).containsOnly(QUEUE_URL);
+        verify(amazonSQS, times(1)).getQueueUrl(any(GetQueueUrlRequest.class));
+    }
+
+    @Test
+    void shouldDefaultVisibilityTimeoutToThirtySeconds() throws Exception {
+        sqsMessageHandlerBinder.createConsumerEndpoint(new SqsDestination("queue1"), "group", new ExtendedConsumerProperties<>(new SqsConsumerProperties()));
+
+        SqsContainerOptions containerOptions = (SqsContainerOptions) ReflectionTestUtils.getField(sqsMessageHandlerBinder.getAdapters().get(0), "sqsContainerOptions");
+        assertThat(containerOptions.getMessageVisibility()).isEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void shouldLeaveVisibilityTimeoutToQueueOnlyIfRequested() throws Exception {
+        SqsConsumerProperties consumerProperties = new SqsConsumerProperties();
+        consumerProperties.setUseQueueVisibilityTimeout(true);
+
+        sqsMessageHandlerBinder.createConsumerEndpoint(new SqsDestination("queue1"), "group", new ExtendedConsumerProperties<>(consumerProperties));
+
+        SqsContainerOptions containerOptions = (SqsContainerOptions) ReflectionTestUtils.getField(sqsMessageHandlerBinder.getAdapters().get(0), "sqsContainerOptions");
+        assertThat(containerOptions.getMessageVisibility()).isNull();
+    }
+
+    @Test
+    void shouldMapConcurrencyToMaxConcurrentMessages() throws Exception {
+        SqsConsumerProperties consumerProperties = new SqsConsumerProperties();
+        consumerProperties.setMaxMessagesPerPoll(5);
+        ExtendedConsumerProperties<SqsConsumerProperties> properties = new ExtendedConsumerProperties<>(consumerProperties);
+        properties.setConcurrency(20);
+
+        sqsMessageHandlerBinder.createConsumerEndpoint(new SqsDestination("queue1"), "group", properties);
+
+        SqsInboundChannelAdapter adapter = sqsMessageHandlerBinder.getAdapters().get(0);
+        SqsContainerOptions containerOptions = (SqsContainerOptions) ReflectionTestUtils.getField(adapter, "sqsContainerOptions");
+        assertThat(containerOptions.getMaxConcurrentMessages()).isEqualTo(100);
+        assertThat(ReflectionTestUtils.getField(adapter, "concurrency")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectMaxConcurrentMessagesBelowMaxMessagesPerPoll() {
+        SqsConsumerProperties consumerProperties = new SqsConsumerProperties();
+        consumerProperties.setMaxMessagesPerPoll(10);
+        consumerProperties.setMaxConcurrentMessages(5);
+
+        assertThatThrownBy(() -> sqsMessageHandlerBinder.createConsumerEndpoint(new SqsDestination("queue1"), "group", new ExtendedConsumerProperties<>(consumerProperties)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("'maxConcurrentMessages' (5) must not be less than 'maxMessagesPerPoll' (10)");
+    }
+
+    @Test
+    void shouldRequestSystemAttributesForLagMetrics() throws Exception {
+        sqsMessageHandlerBinder.createConsumerEndpoint(new SqsDestination("queue1"), "group", new ExtendedConsumerProperties<>(new SqsConsumerProperties()));
+
+        SqsContainerOptions containerOptions = (SqsContainerOptions) ReflectionTestUtils.getField(sqsMessageHandlerBinder.getAdapters().get(0), "sqsContainerOptions");
+        assertThat(containerOptions.getMessageSystemAttributeNames()).containsAnyOf(
+                "All", MessageSystemAttributeName.SENT_TIMESTAMP.toString());
+    }
+
+    @Test
+    void shouldCreateContainerPerConcurrencyInLegacyMode() throws Exception {
+        SqsConsumerProperties consumerProperties = new SqsConsumerProperties();
+        consumerProperties.setLegacyConcurrency(true);
+        ExtendedConsumerProperties<SqsConsumerProperties> properties = new ExtendedConsumerProperties<>(consumerProperties);
+        properties.setConcurrency(3);
+
+        sqsMessageHandlerBinder.createConsumerEndpoint(new SqsDestination("queue1"), "group", properties);
+
+        SqsInboundChannelAdapter adapter = sqsMessageHandlerBinder.getAdapters().get(0);
+        SqsContainerOptions containerOptions = (SqsContainerOptions) ReflectionTestUtils.getField(adapter, "sqsContainerOptions");
+        assertThat(containerOptions.getMaxConcurrentMessages()).isEqualTo(10);
+        assertThat(ReflectionTestUtils.getField(adapter, "concurrency")).isEqualTo(3);
+    }
+
+    @Test
+    void shouldPassAcknowledgementPropertiesToContainerOptions() throws Exception {
+        SqsConsumerProperties consumerProperties = new SqsConsumerProperties();
+        consumerProperties.setAcknowledgementInterval(500L);
+        consumerProperties.setAcknowledgementThreshold(5);
+        consumerProperties.setAcknowledgementOrdering(AcknowledgementOrdering.ORDERED);
+
+        sqsMessageHandlerBinder.createConsumerEndpoint(new SqsDestination("queue1"), "group", new ExtendedConsumerProperties<>(consumerProperties));
+
+        SqsContainerOptions containerOptions = (SqsContainerOptions) ReflectionTestUtils.getField(sqsMessageHandlerBinder.getAdapters().get(0), "sqsContainerOptions");
+        assertThat(containerOptions.getAcknowledgementInterval()).isEqualTo(Duration.ofMillis(500));
+        assertThat(containerOptions.getAcknowledgementThreshold()).isEqualTo(5);
+        assertThat(containerOptions.getAcknowledgementOrdering()).isEqualTo(AcknowledgementOrdering.ORDERED);
+    }
+
+    @Test
+    void shouldConfigureImmediateAcknowledgement() throws Exception {
+        SqsConsumerProperties consumerProperties = new SqsConsumerProperties();
+        consumerProperties.setAcknowledgementInterval(500L);
+        consumerProperties.setImmediateAcknowledgement(true);
+
+        sqsMessageHandlerBinder.createConsumerEndpoint(new SqsDestination("queue1"), "group", new ExtendedConsumerProperties<>(consumerProperties));
+
+        SqsContainerOptions containerOptions = (SqsContainerOptions) ReflectionTestUtils.getField(sqsMessageHandlerBinder.getAdapters().get(0), "sqsContainerOptions");
+        assertThat(containerOptions.getAcknowledgementInterval()).isEqualTo(Duration.ZERO);
+        assertThat(containerOptions.getAcknowledgementThreshold()).isZero();
+    }
+
+    @Test
+    void shouldFailClearlyIfVirtualThreadsAreUnavailable() {
+        assumeTrue(Runtime.version().feature() < 21);
+        SqsConsumerProperties consumerProperties = new SqsConsumerProperties();
+        consumerProperties.setVirtualThreads(true);
+
+        assertThatThrownBy(() -> sqsMessageHandlerBinder.createConsumerEndpoint(new SqsDestination("queue1"), "group", new ExtendedConsumerProperties<>(consumerProperties)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("Java 21");
+    }
+
+}
@@ -3,8 +3,11 @@ package de.idealo.spring.stream.binder.sqs.health;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -164,4 +167,35 @@ class SqsBinderHealthIndicatorTest {
         assertThat(health.getStatus()).isEqualTo(Status.DOWN);
         assertThat(health.getDetails()).containsKey("https://sqs.eu-central-1.amazonaws.com/12345678901/queue1");
     }
+
+    @Test
+    void reportsCachedReachabilityWithinCacheTtl() {
+        when(adapter.getQueues()).thenReturn(new String[] { "queue1" });
+        when(adapter.isRunning(any())).thenReturn(true);
+        when(amazonSQS.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(CompletableFuture.completedFuture(GetQueueUrlResponse.builder().queueUrl("http://queue.url").build()));
+
+        for (int i = 0; i < 3; i++) {
+            Health.Builder builder = new Health.Builder();
+            healthIndicator.doHealthCheck(builder);
+            assertThat(builder.build().getStatus()).isEqualTo(Status.UP);
+        }
+
+        verify(amazonSQS, times(1)).getQueueUrl(any(GetQueueUrlRequest.class));
+    }
+
+    @Test
+    void reportsFalseIfReachabilityCheckTimesOut() {
+        when(adapter.getQueues()).thenReturn(new String[] { "queue1", "queue2" });
+        when(adapter.isRunning(any())).thenReturn(true);
+        when(amazonSQS.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(new CompletableFuture<>());
+        healthIndicator.setTimeout(Duration.ofMillis(50));
+
+        Health.Builder builder = new Health.Builder();
+
+        healthIndicator.doHealthCheck(builder);
+
+        Health health = builder.build();
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health.getDetails()).containsKeys("queue1", "queue2");
+    }
 }
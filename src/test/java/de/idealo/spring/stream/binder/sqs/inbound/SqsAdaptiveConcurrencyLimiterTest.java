@@ -0,0 +1,182 @@
+package de.idealo.spring.stream.binder.sqs.inbound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+
+import io.awspring.cloud.sqs.listener.BatchAwareBackPressureHandler;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+
+@ExtendWith(MockitoExtension.class)
+class SqsAdaptiveConcurrencyLimiterTest {
+
+    @Mock
+    private SqsAsyncClient amazonSQS;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    private SqsAdaptiveConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new SqsAdaptiveConcurrencyLimiter(amazonSQS, taskScheduler, 2, 20);
+        limiter.setRequiredSamples(2);
+    }
+
+    @Test
+    void shouldScaleUpWithBacklogAfterConsecutiveSamples() {
+        receive(1);
+        limiter.evaluate(1000);
+        assertThat(limiter.getLimit()).isEqualTo(2);
+
+        receive(1);
+        limiter.evaluate(1000);
+        assertThat(limiter.getLimit()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldNotExceedMaxConcurrency() {
+        for (int i = 0; i < 50; i++) {
+            receive(1);
+            limiter.evaluate(1000);
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    void shouldScaleDownOnEmptyReceives() {
+        for (int i = 0; i < 10; i++) {
+            receive(1);
+            limiter.evaluate(1000);
+        }
+        int scaledUpLimit = limiter.getLimit();
+
+        receive(0);
+        limiter.evaluate(1000);
+        receive(0);
+        limiter.evaluate(1000);
+
+        assertThat(limiter.getLimit()).isLessThan(scaledUpLimit);
+    }
+
+    @Test
+    void shouldScaleDownOnDegradedLatency() {
+        for (int i = 0; i < 10; i++) {
+            receive(1);
+            process(1_000_000);
+            limiter.evaluate(1000);
+        }
+        int scaledUpLimit = limiter.getLimit();
+
+        for (int i = 0; i < 2; i++) {
+            receive(1);
+            process(10_000_000);
+            limiter.evaluate(1000);
+        }
+
+        assertThat(limiter.getLimit()).isLessThan(scaledUpLimit);
+    }
+
+    @Test
+    void shouldRequestNoMoreMessagesThanLimitLeaves() throws Exception {
+        BatchAwareBackPressureHandler backPressureHandler = limiter.createBackPressureHandler(10, Duration.ofMillis(50));
+
+        assertThat(backPressureHandler.requestBatch()).isEqualTo(2);
+        assertThat(backPressureHandler.requestBatch()).isZero();
+
+        backPressureHandler.release(1);
+
+        assertThat(backPressureHandler.requestBatch()).isEqualTo(1);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRequestMoreMessagesOnceLimitIsRaised() throws Exception {
+        BatchAwareBackPressureHandler backPressureHandler = limiter.createBackPressureHandler(10, Duration.ofMillis(50));
+        assertThat(backPressureHandler.requestBatch()).isEqualTo(2);
+
+        for (int i = 0; i < 2; i++) {
+            receive(1);
+            limiter.evaluate(1000);
+        }
+
+        assertThat(backPressureHandler.requestBatch()).isEqualTo(limiter.getLimit() - 2);
+    }
+
+    @Test
+    void shouldDrainOnceAllPermitsAreReleased() throws Exception {
+        BatchAwareBackPressureHandler backPressureHandler = limiter.createBackPressureHandler(10, Duration.ofMillis(50));
+        int permits = backPressureHandler.requestBatch();
+
+        assertThat(backPressureHandler.drain(Duration.ofMillis(10))).isFalse();
+
+        backPressureHandler.release(permits);
+
+        assertThat(backPressureHandler.drain(Duration.ofMillis(10))).isTrue();
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void shouldSampleDepthOfObservedQueues() {
+        when(amazonSQS.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(CompletableFuture.completedFuture(ReceiveMessageResponse.builder().build()));
+        when(amazonSQS.getQueueAttributes(any(GetQueueAttributesRequest.class))).thenReturn(CompletableFuture.completedFuture(
+                GetQueueAttributesResponse.builder().attributes(Map.of(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES, "0")).build()));
+        limiter.setRequiredSamples(1);
+        for (int i = 0; i < 5; i++) {
+            receive(1);
+            limiter.evaluate(1000);
+        }
+        int scaledUpLimit = limiter.getLimit();
+
+        limiter.observe(amazonSQS).receiveMessage(ReceiveMessageRequest.builder().queueUrl("queue1").build());
+        limiter.sample();
+
+        assertThat(limiter.getLimit()).isLessThan(scaledUpLimit);
+    }
+
+    private void receive(int messages) {
+        SqsAsyncClient observed = limiter.observe(new SqsAsyncClient() {
+            @Override
+            public String serviceName() {
+                return "sqs";
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public CompletableFuture<ReceiveMessageResponse> receiveMessage(ReceiveMessageRequest request) {
+                ReceiveMessageResponse.Builder response = ReceiveMessageResponse.builder();
+                if (messages > 0) {
+                    response.messages(Message.builder().body("message").build());
+                }
+                return CompletableFuture.completedFuture(response.build());
+            }
+        });
+        observed.receiveMessage(ReceiveMessageRequest.builder().queueUrl("queue").build());
+    }
+
+    private void process(long processingNanos) {
+        limiter.record(1, processingNanos);
+    }
+}
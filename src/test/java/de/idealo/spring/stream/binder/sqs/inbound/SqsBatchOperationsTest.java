@@ -0,0 +1,93 @@
+package de.idealo.spring.stream.binder.sqs.inbound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityBatchResponse;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+
+@ExtendWith(MockitoExtension.class)
+class SqsBatchOperationsTest {
+
+    @Mock
+    private SqsAsyncClient amazonSQS;
+
+    @Captor
+    private ArgumentCaptor<DeleteMessageBatchRequest> deleteRequestCaptor;
+
+    @Captor
+    private ArgumentCaptor<ChangeMessageVisibilityBatchRequest> visibilityRequestCaptor;
+
+    @Test
+    void shouldDeleteMessagesInChunksPerQueue() {
+        when(amazonSQS.deleteMessageBatch(any(DeleteMessageBatchRequest.class))).thenReturn(CompletableFuture.completedFuture(DeleteMessageBatchResponse.builder().build()));
+        List<Message<?>> messages = new ArrayList<>(messages("queue1", 12));
+        messages.addAll(messages("queue2", 3));
+
+        CompletableFuture<Void> result = new SqsBatchOperations(amazonSQS).deleteMessages(messages);
+
+        assertThat(result).isCompleted();
+        verify(amazonSQS, times(3)).deleteMessageBatch(deleteRequestCaptor.capture());
+        assertThat(deleteRequestCaptor.getAllValues())
+                .extracting(DeleteMessageBatchRequest::queueUrl, request -> request.entries().size())
+                .containsExactly(
+                        tuple("queue1", 10),
+                        tuple("queue1", 2),
+                        tuple("queue2", 3));
+    }
+
+    @Test
+    void shouldChangeVisibilityOfMessages() {
+        when(amazonSQS.changeMessageVisibilityBatch(any(ChangeMessageVisibilityBatchRequest.class))).thenReturn(CompletableFuture.completedFuture(ChangeMessageVisibilityBatchResponse.builder().build()));
+
+        new SqsBatchOperations(amazonSQS).changeMessageVisibility(messages("queue1", 2), Duration.ofSeconds(30));
+
+        verify(amazonSQS).changeMessageVisibilityBatch(visibilityRequestCaptor.capture());
+        assertThat(visibilityRequestCaptor.getValue().entries())
+                .allSatisfy(entry -> assertThat(entry.visibilityTimeout()).isEqualTo(30))
+                .extracting(entry -> entry.receiptHandle())
+                .containsExactly("queue1-0", "queue1-1");
+    }
+
+    @Test
+    void shouldCompleteIfRequestFails() {
+        when(amazonSQS.deleteMessageBatch(any(DeleteMessageBatchRequest.class))).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("boom")));
+
+        CompletableFuture<Void> result = new SqsBatchOperations(amazonSQS).deleteMessages(messages("queue1", 1));
+
+        assertThat(result).isCompleted();
+    }
+
+    private static List<Message<?>> messages(String queueUrl, int count) {
+        List<Message<?>> messages = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            messages.add(MessageBuilder.withPayload("message")
+                    .setHeader(SqsHeaders.SQS_QUEUE_URL_HEADER, queueUrl)
+                    .setHeader(SqsHeaders.SQS_RECEIPT_HANDLE_HEADER, queueUrl + "-" + i)
+                    .build());
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,146 @@
+package de.idealo.spring.stream.binder.sqs.inbound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.TaskScheduler;
+
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResultEntry;
+
+@ExtendWith(MockitoExtension.class)
+class SqsDeadLetterForwarderTest {
+
+    @Mock
+    private SqsAsyncClient amazonSQS;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @Captor
+    private ArgumentCaptor<SendMessageBatchRequest> sendRequestCaptor;
+
+    @Captor
+    private ArgumentCaptor<DeleteMessageBatchRequest> deleteRequestCaptor;
+
+    @Test
+    void shouldDetectExhaustedMessages() {
+        SqsDeadLetterForwarder forwarder = new SqsDeadLetterForwarder(amazonSQS, taskScheduler, "dlq", 3);
+
+        assertThat(forwarder.isExhausted(message(0, "3"))).isFalse();
+        assertThat(forwarder.isExhausted(message(0, "4"))).isTrue();
+        assertThat(forwarder.isExhausted(MessageBuilder.withPayload("no header").build())).isFalse();
+    }
+
+    @Test
+    void shouldForwardSourceMessageAndDeleteOnlySentMessages() {
+        when(amazonSQS.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(CompletableFuture.completedFuture(GetQueueUrlResponse.builder().queueUrl("dlq-url").build()));
+        when(amazonSQS.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(CompletableFuture.completedFuture(SendMessageBatchResponse.builder()
+                .successful(SendMessageBatchResultEntry.builder().id("0").build())
+                .failed(BatchResultErrorEntry.builder().id("1").message("failed").build())
+                .build()));
+        when(amazonSQS.deleteMessageBatch(any(DeleteMessageBatchRequest.class))).thenReturn(CompletableFuture.completedFuture(DeleteMessageBatchResponse.builder().build()));
+        SqsDeadLetterForwarder forwarder = new SqsDeadLetterForwarder(amazonSQS, taskScheduler, "dlq", 3);
+
+        forwarder.forward(List.of(message(0, "4"), message(1, "4")));
+        CompletableFuture<Void> result = forwarder.flush();
+
+        assertThat(result).isCompleted();
+        verify(amazonSQS).sendMessageBatch(sendRequestCaptor.capture());
+        assertThat(sendRequestCaptor.getValue().queueUrl()).isEqualTo("dlq-url");
+        assertThat(sendRequestCaptor.getValue().entries().get(0).messageBody()).isEqualTo("body-0");
+        assertThat(sendRequestCaptor.getValue().entries().get(0).messageAttributes()).containsKey("tenant");
+        verify(amazonSQS).deleteMessageBatch(deleteRequestCaptor.capture());
+        assertThat(deleteRequestCaptor.getValue().queueUrl()).isEqualTo("source-url");
+        assertThat(deleteRequestCaptor.getValue().entries()).singleElement().extracting("receiptHandle").isEqualTo("receipt-0");
+    }
+
+    @Test
+    void shouldSendFullBatchesRightAway() {
+        when(amazonSQS.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(CompletableFuture.completedFuture(SendMessageBatchResponse.builder().build()));
+        SqsDeadLetterForwarder forwarder = new SqsDeadLetterForwarder(amazonSQS, taskScheduler, "https://sqs.eu-central-1.amazonaws.com/12345678901/dlq", 3);
+        List<Message<?>> messages = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            messages.add(message(i, "4"));
+        }
+
+        forwarder.forward(messages);
+
+        verify(amazonSQS, never()).getQueueUrl(any(GetQueueUrlRequest.class));
+        verify(amazonSQS, times(2)).sendMessageBatch(sendRequestCaptor.capture());
+        assertThat(sendRequestCaptor.getAllValues()).extracting(request -> request.entries().size()).containsExactly(10, 2);
+    }
+
+    @Test
+    void shouldForwardToFifoQueueWithStableDeduplicationIds() {
+        when(amazonSQS.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(CompletableFuture.completedFuture(SendMessageBatchResponse.builder().build()));
+        SqsDeadLetterForwarder forwarder = new SqsDeadLetterForwarder(amazonSQS, taskScheduler, "https://sqs.eu-central-1.amazonaws.com/12345678901/dlq.fifo", 3);
+        Message<?> withDeduplicationId = MessageBuilder.fromMessage(message(0, "4"))
+                .setHeader(SqsHeaders.MessageSystemAttributes.SQS_MESSAGE_GROUP_ID_HEADER, "group-0")
+                .setHeader(SqsHeaders.MessageSystemAttributes.SQS_MESSAGE_DEDUPLICATION_ID_HEADER, "deduplication-0")
+                .build();
+        Message<?> withoutDeduplicationId = MessageBuilder.fromMessage(message(1, "4"))
+                .setHeader(SqsHeaders.MessageSystemAttributes.SQS_MESSAGE_GROUP_ID_HEADER, "group-1")
+                .build();
+
+        forwarder.forward(List.of(withDeduplicationId, withoutDeduplicationId));
+        forwarder.flush();
+
+        verify(amazonSQS).sendMessageBatch(sendRequestCaptor.capture());
+        assertThat(sendRequestCaptor.getValue().entries())
+                .extracting(SendMessageBatchRequestEntry::messageGroupId, SendMessageBatchRequestEntry::messageDeduplicationId)
+                .containsExactly(tuple("group-0", "deduplication-0"), tuple("group-1", "message-1"));
+    }
+
+    @Test
+    void shouldNotForwardToFifoQueueWithoutMessageGroupId() {
+        SqsDeadLetterForwarder forwarder = new SqsDeadLetterForwarder(amazonSQS, taskScheduler, "https://sqs.eu-central-1.amazonaws.com/12345678901/dlq.fifo", 3);
+
+        forwarder.forward(List.of(message(0, "4")));
+        forwarder.flush();
+
+        verify(amazonSQS, never()).sendMessageBatch(any(SendMessageBatchRequest.class));
+    }
+
+    private static Message<?> message(int index, String receiveCount) {
+        software.amazon.awssdk.services.sqs.model.Message source = software.amazon.awssdk.services.sqs.model.Message.builder()
+                .messageId("message-" + index)
+                .body("body-" + index)
+                .messageAttributes(Map.of("tenant", MessageAttributeValue.builder().dataType("String").stringValue("a").build()))
+                .build();
+        return MessageBuilder.withPayload("payload-" + index)
+                .setHeader(SqsHeaders.MessageSystemAttributes.SQS_APPROXIMATE_RECEIVE_COUNT, receiveCount)
+                .setHeader(SqsHeaders.SQS_SOURCE_DATA_HEADER, source)
+                .setHeader(SqsHeaders.SQS_QUEUE_URL_HEADER, "source-url")
+                .setHeader(SqsHeaders.SQS_RECEIPT_HANDLE_HEADER, "receipt-" + index)
+                .build();
+    }
+}
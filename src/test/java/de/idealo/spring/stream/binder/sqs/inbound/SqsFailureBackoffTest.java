@@ -0,0 +1,121 @@
+package de.idealo.spring.stream.binder.sqs.inbound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.TaskScheduler;
+
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+
+@ExtendWith(MockitoExtension.class)
+class SqsFailureBackoffTest {
+
+    @Mock
+    private SqsBatchOperations batchOperations;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @Mock
+    private ScheduledFuture<?> scheduledFlush;
+
+    @Captor
+    private ArgumentCaptor<List<Message<?>>> messagesCaptor;
+
+    @Captor
+    private ArgumentCaptor<Function<Message<?>, Duration>> backoffCaptor;
+
+    @Test
+    void shouldGrowBackoffExponentiallyUpToMaxInterval() {
+        SqsFailureBackoff backoff = new SqsFailureBackoff(batchOperations, taskScheduler);
+        backoff.setInitialInterval(Duration.ofSeconds(2));
+        backoff.setMultiplier(3);
+        backoff.setMaxInterval(Duration.ofSeconds(60));
+        backoff.setJitter(0);
+
+        assertThat(backoff.backoff(1)).isEqualTo(Duration.ofSeconds(2));
+        assertThat(backoff.backoff(2)).isEqualTo(Duration.ofSeconds(6));
+        assertThat(backoff.backoff(3)).isEqualTo(Duration.ofSeconds(18));
+        assertThat(backoff.backoff(5)).isEqualTo(Duration.ofSeconds(60));
+    }
+
+    @Test
+    void shouldReduceBackoffByJitter() {
+        SqsFailureBackoff backoff = new SqsFailureBackoff(batchOperations, taskScheduler);
+        backoff.setInitialInterval(Duration.ofSeconds(10));
+        backoff.setJitter(0.5);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(backoff.backoff(1)).isBetween(Duration.ofSeconds(5), Duration.ofSeconds(10));
+        }
+    }
+
+    @Test
+    void shouldComputeBackoffFromReceiveCountHeader() {
+        SqsFailureBackoff backoff = new SqsFailureBackoff(batchOperations, taskScheduler);
+        backoff.setJitter(0);
+
+        assertThat(backoff.backoff(message(0, "3"))).isEqualTo(Duration.ofSeconds(4));
+        assertThat(backoff.backoff(MessageBuilder.withPayload("no header").build())).isEqualTo(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void shouldCollectFailuresUntilFlush() {
+        SqsFailureBackoff backoff = new SqsFailureBackoff(batchOperations, taskScheduler);
+        backoff.setJitter(0);
+        doReturn(scheduledFlush).when(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+
+        backoff.onFailure(List.of(message(0, "1")));
+        backoff.onFailure(List.of(message(1, "2")));
+
+        verify(taskScheduler).schedule(any(Runnable.class), any(Instant.class));
+        verify(batchOperations, never()).changeMessageVisibility(anyList(), any(Function.class));
+
+        backoff.flush();
+
+        verify(scheduledFlush).cancel(false);
+        verify(batchOperations).changeMessageVisibility(messagesCaptor.capture(), backoffCaptor.capture());
+        assertThat(messagesCaptor.getValue()).hasSize(2);
+        assertThat(messagesCaptor.getValue()).extracting(backoffCaptor.getValue()).containsExactly(Duration.ofSeconds(1), Duration.ofSeconds(2));
+    }
+
+    @Test
+    void shouldSendFullBatchRightAway() {
+        SqsFailureBackoff backoff = new SqsFailureBackoff(batchOperations, taskScheduler);
+        List<Message<?>> messages = new ArrayList<>();
+        for (int i = 0; i < SqsBatchOperations.MAX_BATCH_SIZE; i++) {
+            messages.add(message(i, "1"));
+        }
+
+        backoff.onFailure(messages);
+
+        verify(batchOperations).changeMessageVisibility(eq(messages), any(Function.class));
+        verify(taskScheduler, never()).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    private static Message<?> message(int index, String receiveCount) {
+        return MessageBuilder.withPayload(Integer.toString(index))
+                .setHeader(SqsHeaders.MessageSystemAttributes.SQS_APPROXIMATE_RECEIVE_COUNT, receiveCount)
+                .build();
+    }
+}
@@ -1,22 +1,58 @@
 package de.idealo.spring.stream.binder.sqs.inbound;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import io.awspring.cloud.sqs.config.SqsMessageListenerContainerFactory;
+import io.awspring.cloud.sqs.listener.AsyncMessageListener;
+import io.awspring.cloud.sqs.listener.MessageListener;
 import io.awspring.cloud.sqs.listener.SqsMessageListenerContainer;
+import io.awspring.cloud.sqs.listener.acknowledgement.AcknowledgementCallback;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+
+import de.idealo.spring.stream.binder.sqs.SqsBatchProcessingException;
+import de.idealo.spring.stream.binder.sqs.SqsHeaders;
+import de.idealo.spring.stream.binder.sqs.payload.FileSystemPayloadStore;
+import de.idealo.spring.stream.binder.sqs.payload.PayloadCompression;
+import de.idealo.spring.stream.binder.sqs.payload.PayloadStore;
+import de.idealo.spring.stream.binder.sqs.provisioning.SqsQueueMetadataCache;
 
 @ExtendWith(MockitoExtension.class)
 class SqsInboundChannelAdapterTest {
@@ -32,6 +68,18 @@ class SqsInboundChannelAdapterTest {
     @Mock
     private SqsMessageListenerContainer listenerContainer;
 
+    @Mock
+    private AcknowledgementCallback<Object> acknowledgementCallback;
+
+    @Captor
+    private ArgumentCaptor<MessageListener<Object>> messageListenerCaptor;
+
+    @Captor
+    private ArgumentCaptor<List<Message<Object>>> acknowledgedCaptor;
+
+    @Captor
+    private ArgumentCaptor<AsyncMessageListener<Object>> asyncMessageListenerCaptor;
+
     @Test
     void shouldDefaultToSingleListenerContainer() {
         SqsInboundChannelAdapter sut = new SqsInboundChannelAdapter(amazonSQS, "test1");
@@ -120,6 +168,36 @@ class SqsInboundChannelAdapterTest {
         verify(listenerContainer, times(2)).isRunning();
     }
 
+    @Test
+    void shouldPollResolvedQueueUrls() {
+        when(amazonSQS.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(CompletableFuture.completedFuture(GetQueueUrlResponse.builder().queueUrl("http://queue.url/test1").build()));
+        when(amazonSQS.getQueueAttributes(any(GetQueueAttributesRequest.class))).thenReturn(CompletableFuture.completedFuture(GetQueueAttributesResponse.builder().build()));
+        SqsInboundChannelAdapter sut = new SqsInboundChannelAdapter(amazonSQS, "test1");
+        sut.setQueueMetadataCache(new SqsQueueMetadataCache(amazonSQS));
+        ReflectionTestUtils.setField(sut, "sqsMessageListenerContainerFactory", listenerContainerFactoryBuilder);
+        when(listenerContainerFactoryBuilder.build()).thenReturn(listenerContainerFactory);
+        when(listenerContainerFactory.createContainer("http://queue.url/test1")).thenReturn(listenerContainer);
+        when(listenerContainer.getQueueNames()).thenReturn(List.of("http://queue.url/test1"));
+        when(listenerContainer.isRunning()).thenReturn(true);
+
+        sut.afterPropertiesSet();
+
+        assertThat(sut.isRunning("test1")).isTrue();
+        assertThat(sut.getQueues()).containsExactly("test1");
+    }
+
+    @Test
+    void shouldRejectMessageGroupConcurrencyWithMessageWindow() {
+        SqsInboundChannelAdapter sut = new SqsInboundChannelAdapter(amazonSQS, "test1");
+        sut.setMessageGroupConcurrency(2);
+        sut.setWindowSize(10);
+        sut.setOutputChannel(new QueueChannel());
+
+        assertThatThrownBy(sut::afterPropertiesSet)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("messageGroupConcurrency");
+    }
+
     @Test
     void shouldReturnQueues() {
         SqsInboundChannelAdapter sut = new SqsInboundChannelAdapter(amazonSQS, "test1", "test2");
@@ -127,4 +205,186 @@ class SqsInboundChannelAdapterTest {
         assertThat(sut.getQueues()).containsExactly("test1", "test2");
     }
 
-}
\ No newline at end of file
+
+    @Test
+    void shouldSendBatchWithParallelHeaders() {
+        QueueChannel outputChannel = new QueueChannel();
+        MessageListener<Object> listener = createBatchListener(outputChannel);
+
+        listener.onMessage(List.of(sqsMessage("first", "1"), sqsMessage("second", "2")));
+
+        Message<?> batch = outputChannel.receive(0);
+        assertThat(batch).isNotNull();
+        assertThat(batch.getPayload()).isEqualTo(List.of("first", "second"));
+        List<Map<String, Object>> batchHeaders = (List<Map<String, Object>>) batch.getHeaders().get(SqsHeaders.BATCH_HEADERS);
+        assertThat(batchHeaders).extracting(headers -> headers.get("Sqs_ReceiptHandle")).containsExactly("1", "2");
+        verify(acknowledgementCallback, never()).onAcknowledge(any(List.class));
+    }
+
+    @Test
+    void shouldRetrieveOffloadedPayloads(@TempDir Path payloadDirectory) throws IOException {
+        FileSystemPayloadStore payloadStore = new FileSystemPayloadStore(payloadDirectory);
+        String reference = payloadStore.store("offloaded".getBytes(StandardCharsets.UTF_8));
+        QueueChannel outputChannel = new QueueChannel();
+        MessageListener<Object> listener = createBatchListener(outputChannel, payloadStore);
+
+        Message<Object> offloaded = MessageBuilder.fromMessage(sqsMessage(reference, "1")).setHeader(SqsHeaders.CLAIM_CHECK, 9).build();
+        listener.onMessage(List.of(offloaded, sqsMessage("inline", "2")));
+
+        Message<?> batch = outputChannel.receive(0);
+        assertThat(batch).isNotNull();
+        assertThat(batch.getPayload()).isEqualTo(List.of("offloaded", "inline"));
+        List<Map<String, Object>> batchHeaders = (List<Map<String, Object>>) batch.getHeaders().get(SqsHeaders.BATCH_HEADERS);
+        assertThat(batchHeaders.get(0)).doesNotContainKey(SqsHeaders.CLAIM_CHECK);
+    }
+
+    @Test
+    void shouldRejectOffloadedPayloadsAboveMaxRetrievedPayloadSizeBeforeReadingThem() throws IOException {
+        PayloadStore payloadStore = mock(PayloadStore.class);
+        QueueChannel outputChannel = new QueueChannel();
+        MessageListener<Object> listener = createBatchListener(outputChannel, payloadStore);
+
+        Message<Object> offloaded = MessageBuilder.fromMessage(sqsMessage("reference", "1")).setHeader(SqsHeaders.CLAIM_CHECK, 100 * 1024 * 1024).build();
+        assertThatThrownBy(() -> listener.onMessage(List.of(offloaded, sqsMessage("inline", "2"))))
+                .isInstanceOf(MessageConversionException.class);
+
+        Message<?> batch = outputChannel.receive(0);
+        assertThat(batch).isNotNull();
+        assertThat(batch.getPayload()).isEqualTo(List.of("inline"));
+        verify(payloadStore, never()).retrieve(any());
+    }
+
+    @Test
+    void shouldDecompressOffloadedPayloadsWhileReadingThem(@TempDir Path payloadDirectory) throws IOException {
+        FileSystemPayloadStore payloadStore = new FileSystemPayloadStore(payloadDirectory);
+        byte[] compressed = PayloadCompression.GZIP.compress("compressed".getBytes(StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8);
+        String reference = payloadStore.store(compressed);
+        QueueChannel outputChannel = new QueueChannel();
+        MessageListener<Object> listener = createBatchListener(outputChannel, payloadStore);
+
+        listener.onMessage(List.of(MessageBuilder.fromMessage(sqsMessage(reference, "1"))
+                .setHeader(SqsHeaders.CLAIM_CHECK, compressed.length)
+                .setHeader(SqsHeaders.CONTENT_ENCODING, "gzip")
+                .build()));
+
+        Message<?> batch = outputChannel.receive(0);
+        assertThat(batch).isNotNull();
+        assertThat(batch.getPayload()).isEqualTo(List.of("compressed"));
+    }
+
+    @Test
+    void shouldDecompressCompressedPayloads() throws IOException {
+        QueueChannel outputChannel = new QueueChannel();
+        MessageListener<Object> listener = createBatchListener(outputChannel);
+        String compressed = PayloadCompression.LZ4.compress("compressed".getBytes(StandardCharsets.UTF_8));
+
+        listener.onMessage(List.of(MessageBuilder.fromMessage(sqsMessage(compressed, "1")).setHeader(SqsHeaders.CONTENT_ENCODING, "lz4").build()));
+
+        Message<?> batch = outputChannel.receive(0);
+        assertThat(batch).isNotNull();
+        assertThat(batch.getPayload()).isEqualTo(List.of("compressed"));
+    }
+
+    @Test
+    void shouldAcknowledgeSucceededMessagesOnPartialBatchFailure() {
+        DirectChannel outputChannel = new DirectChannel();
+        outputChannel.subscribe(message -> {
+            throw new SqsBatchProcessingException("failed", List.of(1));
+        });
+        MessageListener<Object> listener = createBatchListener(outputChannel);
+        Message<Object> first = sqsMessage("first", "1");
+        Message<Object> second = sqsMessage("second", "2");
+        Message<Object> third = sqsMessage("third", "3");
+
+        assertThatThrownBy(() -> listener.onMessage(List.of(first, second, third)))
+                .isInstanceOf(MessagingException.class)
+                .hasRootCauseInstanceOf(SqsBatchProcessingException.class);
+
+        verify(acknowledgementCallback).onAcknowledge(acknowledgedCaptor.capture());
+        assertThat(acknowledgedCaptor.getValue()).containsExactly(first, third);
+    }
+
+    @Test
+    void shouldNotAcknowledgeAnyMessageOnBatchFailure() {
+        DirectChannel outputChannel = new DirectChannel();
+        outputChannel.subscribe(message -> {
+            throw new IllegalStateException("failed");
+        });
+        MessageListener<Object> listener = createBatchListener(outputChannel);
+
+        assertThatThrownBy(() -> listener.onMessage(List.of(sqsMessage("first", "1"), sqsMessage("second", "2"))))
+                .isInstanceOf(MessagingException.class);
+
+        verify(acknowledgementCallback, never()).onAcknowledge(any(List.class));
+    }
+
+    @Test
+    void shouldProcessMessagesOnListenerExecutor() {
+        QueueChannel outputChannel = new QueueChannel();
+        List<Runnable> tasks = new ArrayList<>();
+        SqsInboundChannelAdapter sut = new SqsInboundChannelAdapter(amazonSQS, "test1");
+        ReflectionTestUtils.setField(sut, "sqsMessageListenerContainerFactory", listenerContainerFactoryBuilder);
+        when(listenerContainerFactoryBuilder.build()).thenReturn(listenerContainerFactory);
+        when(listenerContainerFactory.createContainer("test1")).thenReturn(listenerContainer);
+        sut.setOutputChannel(outputChannel);
+        sut.setListenerExecutor(tasks::add);
+        sut.afterPropertiesSet();
+
+        verify(listenerContainerFactoryBuilder, never()).messageListener(any());
+        verify(listenerContainerFactoryBuilder).asyncMessageListener(asyncMessageListenerCaptor.capture());
+        CompletableFuture<Void> result = asyncMessageListenerCaptor.getValue().onMessage(sqsMessage("first", "1"));
+
+        assertThat(result).isNotDone();
+        assertThat(outputChannel.receive(0)).isNull();
+        assertThat(tasks).hasSize(1);
+
+        tasks.get(0).run();
+
+        assertThat(result).isCompleted();
+        assertThat(outputChannel.receive(0).getPayload()).isEqualTo("first");
+    }
+
+    @Test
+    void shouldShutDownOwnedListenerExecutorOnDestroy() {
+        ExecutorService listenerExecutor = Executors.newSingleThreadExecutor();
+        SqsInboundChannelAdapter sut = new SqsInboundChannelAdapter(amazonSQS, "test1");
+        ReflectionTestUtils.setField(sut, "sqsMessageListenerContainerFactory", listenerContainerFactoryBuilder);
+        when(listenerContainerFactoryBuilder.build()).thenReturn(listenerContainerFactory);
+        when(listenerContainerFactory.createContainer("test1")).thenReturn(listenerContainer);
+        sut.setOwnedListenerExecutor(listenerExecutor);
+        sut.afterPropertiesSet();
+
+        sut.doStop();
+        assertThat(listenerExecutor.isShutdown()).isFalse();
+
+        sut.destroy();
+        assertThat(listenerExecutor.isShutdown()).isTrue();
+    }
+
+    private MessageListener<Object> createBatchListener(MessageChannel outputChannel) {
+        return createBatchListener(outputChannel, null);
+    }
+
+    private MessageListener<Object> createBatchListener(MessageChannel outputChannel, PayloadStore payloadStore) {
+        SqsInboundChannelAdapter sut = new SqsInboundChannelAdapter(amazonSQS, "test1");
+        if (payloadStore != null) {
+            sut.setPayloadStore(payloadStore);
+        }
+        ReflectionTestUtils.setField(sut, "sqsMessageListenerContainerFactory", listenerContainerFactoryBuilder);
+        when(listenerContainerFactoryBuilder.build()).thenReturn(listenerContainerFactory);
+        when(listenerContainerFactory.createContainer("test1")).thenReturn(listenerContainer);
+
+        sut.setOutputChannel(outputChannel);
+        sut.afterPropertiesSet();
+
+        verify(listenerContainerFactoryBuilder).messageListener(messageListenerCaptor.capture());
+        return messageListenerCaptor.getValue();
+    }
+
+    private Message<Object> sqsMessage(Object payload, String receiptHandle) {
+        return MessageBuilder.withPayload(payload)
+                .setHeader("Sqs_ReceiptHandle", receiptHandle)
+                .setHeader("AcknowledgementCallback", acknowledgementCallback)
+                .build();
+    }
+}
@@ -0,0 +1,94 @@
+package de.idealo.spring.stream.binder.sqs.inbound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+
+class SqsMessageGroupDispatcherTest {
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    private final List<String> processed = new ArrayList<>();
+
+    private final Map<Message<Object>, List<Message<Object>>> released = new ConcurrentHashMap<>();
+
+    @Test
+    void shouldProcessGroupsInTurnsAndKeepOrderWithinGroup() {
+        SqsMessageGroupDispatcher dispatcher = new SqsMessageGroupDispatcher(tasks::add, 2, message -> processed.add((String) message.getPayload()), released::put);
+
+        CompletableFuture<Void> completion = dispatcher.dispatch(List.of(
+                message("hot", "hot-1"), message("hot", "hot-2"), message("hot", "hot-3"), message("a", "a-1"), message("b", "b-1")));
+
+        // only two groups run at the same time
+        assertThat(tasks).hasSize(2);
+        runTasks();
+
+        assertThat(completion).isCompleted();
+        assertThat(processed).containsSubsequence("hot-1", "hot-2", "hot-3");
+        // the hot group gave way to the others after its first message
+        assertThat(processed.indexOf("b-1")).isLessThan(processed.indexOf("hot-3"));
+        assertThat(released).isEmpty();
+    }
+
+    @Test
+    void shouldReleaseRemainingMessagesOfGroupOnFailure() {
+        SqsMessageGroupDispatcher dispatcher = new SqsMessageGroupDispatcher(tasks::add, 4, message -> {
+            if ("a-2".equals(message.getPayload())) {
+                throw new IllegalStateException("failed");
+            }
+            processed.add((String) message.getPayload());
+        }, released::put);
+
+        CompletableFuture<Void> completion = dispatcher.dispatch(List.of(
+                message("a", "a-1"), message("a", "a-2"), message("a", "a-3"), message("a", "a-4"), message("b", "b-1")));
+        runTasks();
+
+        assertThat(completion).isCompleted();
+        assertThat(processed).containsExactlyInAnyOrder("a-1", "b-1");
+        assertThat(released).hasSize(1);
+        Map.Entry<Message<Object>, List<Message<Object>>> release = released.entrySet().iterator().next();
+        assertThat(release.getKey().getPayload()).isEqualTo("a-2");
+        assertThat(release.getValue()).extracting(Message::getPayload).containsExactly("a-3", "a-4");
+    }
+
+    @Test
+    void shouldReleaseAllPendingMessagesOfGroupIfExecutorRejectsIt() {
+        List<List<Message<Object>>> rejected = new ArrayList<>();
+        SqsMessageGroupDispatcher dispatcher = new SqsMessageGroupDispatcher(task -> {
+            throw new RejectedExecutionException("shut down");
+        }, 2, message -> processed.add((String) message.getPayload()), (failed, remaining) -> {
+            assertThat(failed).isNull();
+            rejected.add(remaining);
+        });
+
+        CompletableFuture<Void> completion = dispatcher.dispatch(List.of(message("a", "a-1"), message("a", "a-2"), message("b", "b-1")));
+
+        assertThat(completion).isCompleted();
+        assertThat(processed).isEmpty();
+        assertThat(rejected).extracting(messages -> messages.stream().map(Message::getPayload).toList())
+                .containsExactlyInAnyOrder(List.of("a-1", "a-2"), List.of("b-1"));
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private static Message<Object> message(String groupId, String payload) {
+        return MessageBuilder.<Object> withPayload(payload)
+                .setHeader(SqsHeaders.MessageSystemAttributes.SQS_MESSAGE_GROUP_ID_HEADER, groupId)
+                .build();
+    }
+}
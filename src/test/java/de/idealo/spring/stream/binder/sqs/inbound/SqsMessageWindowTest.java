@@ -0,0 +1,186 @@
+package de.idealo.spring.stream.binder.sqs.inbound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import de.idealo.spring.stream.binder.sqs.SqsBatchProcessingException;
+
+@ExtendWith(MockitoExtension.class)
+class SqsMessageWindowTest {
+
+    @Mock
+    private SqsBatchOperations batchOperations;
+
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    private final List<List<Message<Object>>> dispatched = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskScheduler.shutdown();
+    }
+
+    @Test
+    void shouldDispatchWindowOnceFull() {
+        SqsMessageWindow window = new SqsMessageWindow(batchOperations, taskScheduler, dispatched::add);
+        window.setMaxSize(3);
+        window.setTimeout(Duration.ofMinutes(1));
+
+        window.add(messages(0, 2));
+        assertThat(dispatched).isEmpty();
+
+        window.add(messages(2, 4));
+
+        assertThat(dispatched).hasSize(1);
+        assertThat(dispatched.get(0)).extracting(Message::getPayload).containsExactly("0", "1", "2");
+        verify(batchOperations).deleteMessages(dispatched.get(0));
+    }
+
+    @Test
+    void shouldDispatchWindowOnceMaxBytesAreReached() {
+        SqsMessageWindow window = new SqsMessageWindow(batchOperations, taskScheduler, dispatched::add);
+        window.setMaxBytes(2);
+        window.setTimeout(Duration.ofMinutes(1));
+
+        window.add(messages(0, 3));
+
+        assertThat(dispatched).hasSize(1);
+        assertThat(dispatched.get(0)).hasSize(2);
+    }
+
+    @Test
+    void shouldDispatchWindowAfterTimeout() {
+        SqsMessageWindow window = new SqsMessageWindow(batchOperations, taskScheduler, dispatched::add);
+        window.setTimeout(Duration.ofMillis(50));
+
+        window.add(messages(0, 2));
+
+        await().atMost(1, TimeUnit.SECONDS).until(() -> dispatched.size() == 1);
+        assertThat(dispatched.get(0)).hasSize(2);
+    }
+
+    @Test
+    void shouldDispatchTimedOutWindowOnDispatchExecutor() {
+        List<String> threads = new CopyOnWriteArrayList<>();
+        SqsMessageWindow window = new SqsMessageWindow(batchOperations, taskScheduler, messages -> threads.add(Thread.currentThread().getName()));
+        window.setDispatchExecutor(task -> new Thread(task, "dispatcher").start());
+        window.setTimeout(Duration.ofMillis(50));
+
+        window.add(messages(0, 2));
+
+        await().atMost(1, TimeUnit.SECONDS).until(() -> threads.size() == 1);
+        assertThat(threads).containsExactly("dispatcher");
+    }
+
+    @Test
+    void shouldBlockAddingWhileWindowIsDispatched() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SqsMessageWindow window = new SqsMessageWindow(batchOperations, taskScheduler, messages -> {
+            dispatched.add(messages);
+            awaitUninterruptibly(release);
+        });
+        window.setTimeout(Duration.ofMillis(50));
+
+        window.add(messages(0, 1));
+        await().atMost(1, TimeUnit.SECONDS).until(() -> dispatched.size() == 1);
+        CompletableFuture<Void> adding = CompletableFuture.runAsync(() -> window.add(messages(1, 2)));
+
+        assertThatThrownBy(() -> adding.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        release.countDown();
+        adding.get(1, TimeUnit.SECONDS);
+        await().atMost(1, TimeUnit.SECONDS).until(() -> dispatched.size() == 2);
+    }
+
+    @Test
+    void shouldEstimateSizeOfTextInUtf8Bytes() {
+        SqsMessageWindow window = new SqsMessageWindow(batchOperations, taskScheduler, dispatched::add);
+        window.setMaxBytes(4);
+        window.setTimeout(Duration.ofMinutes(1));
+
+        window.add(List.of(MessageBuilder.<Object>withPayload("\u00e4\u00f6").build()));
+
+        assertThat(dispatched).hasSize(1);
+    }
+
+    @Test
+    void shouldDeleteOnlySucceededMessagesOnPartialFailure() {
+        SqsMessageWindow window = new SqsMessageWindow(batchOperations, taskScheduler, messages -> {
+            throw new SqsBatchProcessingException("failed", List.of(1));
+        });
+        window.setMaxSize(3);
+
+        List<Message<Object>> messages = messages(0, 3);
+        window.add(messages);
+
+        verify(batchOperations).deleteMessages(List.of(messages.get(0), messages.get(2)));
+        verify(batchOperations).changeMessageVisibility(List.of(messages.get(1)), Duration.ZERO);
+    }
+
+    @Test
+    void shouldNotDeleteAnyMessageOnFailure() {
+        SqsMessageWindow window = new SqsMessageWindow(batchOperations, taskScheduler, messages -> {
+            throw new IllegalStateException("failed");
+        });
+        window.setMaxSize(2);
+
+        window.add(messages(0, 2));
+
+        verify(batchOperations, never()).deleteMessages(anyList());
+    }
+
+    @Test
+    void shouldDispatchOpenWindowOnFlush() {
+        SqsMessageWindow window = new SqsMessageWindow(batchOperations, taskScheduler, dispatched::add);
+        window.setTimeout(Duration.ofMinutes(1));
+
+        window.add(messages(0, 1));
+        window.flush();
+
+        assertThat(dispatched).hasSize(1);
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static List<Message<Object>> messages(int from, int to) {
+        List<Message<Object>> messages = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            messages.add(MessageBuilder.<Object>withPayload(Integer.toString(i)).build());
+        }
+        return messages;
+    }
+}
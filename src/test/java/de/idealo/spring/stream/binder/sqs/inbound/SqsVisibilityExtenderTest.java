@@ -0,0 +1,73 @@
+package de.idealo.spring.stream.binder.sqs.inbound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.TaskScheduler;
+
+@ExtendWith(MockitoExtension.class)
+class SqsVisibilityExtenderTest {
+
+    @Mock
+    private SqsBatchOperations batchOperations;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @Captor
+    private ArgumentCaptor<List<Message<?>>> extendedCaptor;
+
+    @Test
+    void shouldExtendVisibilityOfTrackedMessages() {
+        SqsVisibilityExtender extender = new SqsVisibilityExtender(batchOperations, taskScheduler);
+        extender.setVisibilityTimeout(Duration.ofSeconds(10));
+        Message<String> first = MessageBuilder.withPayload("first").build();
+        Message<String> second = MessageBuilder.withPayload("second").build();
+
+        extender.track(List.of(first, second));
+        extender.extendVisibility();
+
+        verify(batchOperations).changeMessageVisibility(extendedCaptor.capture(), eq(Duration.ofSeconds(10)));
+        assertThat(extendedCaptor.getValue()).containsExactlyInAnyOrder(first, second);
+    }
+
+    @Test
+    void shouldNotExtendVisibilityOfUntrackedMessages() {
+        SqsVisibilityExtender extender = new SqsVisibilityExtender(batchOperations, taskScheduler);
+        Message<String> message = MessageBuilder.withPayload("first").build();
+
+        extender.track(List.of(message));
+        extender.untrack(List.of(message));
+        extender.extendVisibility();
+
+        assertThat(extender.getInFlight()).isZero();
+        verify(batchOperations, never()).changeMessageVisibility(anyList(), any(Duration.class));
+    }
+
+    @Test
+    void shouldStopExtendingAfterMaxExtension() {
+        SqsVisibilityExtender extender = new SqsVisibilityExtender(batchOperations, taskScheduler);
+        extender.setMaxExtension(Duration.ZERO);
+
+        extender.track(List.of(MessageBuilder.withPayload("first").build()));
+        extender.extendVisibility();
+
+        assertThat(extender.getInFlight()).isZero();
+        verify(batchOperations, never()).changeMessageVisibility(anyList(), any(Duration.class));
+    }
+}
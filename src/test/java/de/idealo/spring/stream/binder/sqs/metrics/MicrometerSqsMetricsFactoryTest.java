@@ -0,0 +1,103 @@
+package de.idealo.spring.stream.binder.sqs.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.support.MessageBuilder;
+
+import io.awspring.cloud.sqs.listener.SqsHeaders;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+
+@ExtendWith(MockitoExtension.class)
+class MicrometerSqsMetricsFactoryTest {
+
+    @Mock
+    private SqsAsyncClient amazonSQS;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final MicrometerSqsMetricsFactory metricsFactory = new MicrometerSqsMetricsFactory(meterRegistry);
+
+    @Test
+    void shouldRecordReceives() {
+        when(amazonSQS.receiveMessage(any(ReceiveMessageRequest.class))).thenReturn(
+                CompletableFuture.completedFuture(ReceiveMessageResponse.builder().messages(Message.builder().body("a").build(), Message.builder().body("b").build()).build()),
+                CompletableFuture.completedFuture(ReceiveMessageResponse.builder().build()));
+        SqsAsyncClient client = metricsFactory.consumerMetrics("input", "queue1").instrument(amazonSQS);
+
+        client.receiveMessage(ReceiveMessageRequest.builder().queueUrl("queue1").build());
+        client.receiveMessage(ReceiveMessageRequest.builder().queueUrl("queue1").build());
+
+        assertThat(meterRegistry.get("sqs.binder.consumer.poll").tag("binding", "input").tag("queue", "queue1").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("sqs.binder.consumer.receive.messages").summary().totalAmount()).isEqualTo(2);
+        assertThat(meterRegistry.get("sqs.binder.consumer.receive.empty").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRecordProcessing() {
+        SqsConsumerMetrics metrics = metricsFactory.consumerMetrics("input", "queue1");
+        List<org.springframework.messaging.Message<String>> messages = List.of(
+                MessageBuilder.withPayload("a").build(), MessageBuilder.withPayload("b").build(), MessageBuilder.withPayload("c").build());
+
+        metrics.processingStarted(messages);
+        metrics.recordConversion(1_000);
+        metrics.recordHandler(2_000);
+
+        assertThat(meterRegistry.get("sqs.binder.consumer.inflight").gauge().value()).isEqualTo(3);
+        assertThat(meterRegistry.get("sqs.binder.consumer.conversion").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("sqs.binder.consumer.handler").timer().count()).isEqualTo(1);
+
+        metrics.processingCompleted(messages);
+
+        assertThat(meterRegistry.get("sqs.binder.consumer.inflight").gauge().value()).isZero();
+    }
+
+    @Test
+    void shouldRecordLagFromSystemTimestamps() {
+        SqsConsumerMetrics metrics = metricsFactory.consumerMetrics("input", "queue1");
+        long sent = System.currentTimeMillis() - 60_000;
+        List<org.springframework.messaging.Message<String>> messages = List.of(MessageBuilder.withPayload("a")
+                .setHeader(SqsHeaders.MessageSystemAttributes.SQS_SENT_TIMESTAMP, Long.toString(sent))
+                .setHeader(SqsHeaders.MessageSystemAttributes.SQS_APPROXIMATE_FIRST_RECEIVE_TIMESTAMP, Long.toString(sent + 5_000))
+                .build());
+
+        metrics.processingStarted(messages);
+
+        assertThat(meterRegistry.get("sqs.binder.consumer.dwell").summary().totalAmount()).isEqualTo(5_000);
+        assertThat(meterRegistry.get("sqs.binder.consumer.inflight.oldest.age").gauge().value()).isGreaterThanOrEqualTo(60_000);
+
+        metrics.processingCompleted(messages);
+
+        assertThat(meterRegistry.get("sqs.binder.consumer.lag").summary().max()).isGreaterThanOrEqualTo(60_000);
+        assertThat(meterRegistry.get("sqs.binder.consumer.inflight.oldest.age").gauge().value()).isZero();
+    }
+
+    @Test
+    void shouldRecordBatchSends() {
+        when(amazonSQS.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(CompletableFuture.completedFuture(SendMessageBatchResponse.builder().build()));
+        SqsAsyncClient client = metricsFactory.producerMetrics("output", "queue1").instrument(amazonSQS);
+
+        client.sendMessageBatch(SendMessageBatchRequest.builder()
+                .entries(SendMessageBatchRequestEntry.builder().id("1").build(), SendMessageBatchRequestEntry.builder().id("2").build())
+                .build());
+
+        assertThat(meterRegistry.get("sqs.binder.producer.send").tag("binding", "output").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("sqs.binder.producer.batch.size").summary().totalAmount()).isEqualTo(2);
+    }
+}
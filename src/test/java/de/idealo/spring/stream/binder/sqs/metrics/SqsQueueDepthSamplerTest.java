@@ -0,0 +1,102 @@
+package de.idealo.spring.stream.binder.sqs.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+
+import de.idealo.spring.stream.binder.sqs.SqsMessageHandlerBinder;
+import de.idealo.spring.stream.binder.sqs.inbound.SqsInboundChannelAdapter;
+
+@ExtendWith(MockitoExtension.class)
+class SqsQueueDepthSamplerTest {
+
+    @Mock
+    private SqsMessageHandlerBinder binder;
+
+    @Mock
+    private SqsInboundChannelAdapter adapter;
+
+    @Mock
+    private SqsAsyncClient amazonSQS;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @Captor
+    private ArgumentCaptor<GetQueueAttributesRequest> requestCaptor;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldPublishQueueDepthFromOneRequestPerQueue() {
+        when(binder.getSqsAsyncClient()).thenReturn(amazonSQS);
+        when(binder.getAdapters()).thenReturn(List.of(adapter));
+        when(adapter.getQueues()).thenReturn(new String[] { "queue1" });
+        when(amazonSQS.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(CompletableFuture.completedFuture(GetQueueUrlResponse.builder().queueUrl("queue1-url").build()));
+        when(amazonSQS.getQueueAttributes(any(GetQueueAttributesRequest.class))).thenReturn(CompletableFuture.completedFuture(GetQueueAttributesResponse.builder()
+                .attributes(Map.of(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES, "12",
+                        QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE, "3",
+                        QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_DELAYED, "1"))
+                .build()));
+        SqsQueueDepthSampler sampler = new SqsQueueDepthSampler(binder, meterRegistry, taskScheduler);
+
+        sampler.sample();
+        sampler.sample();
+
+        verify(amazonSQS).getQueueUrl(any(GetQueueUrlRequest.class));
+        verify(amazonSQS, times(2)).getQueueAttributes(requestCaptor.capture());
+        assertThat(requestCaptor.getValue().queueUrl()).isEqualTo("queue1-url");
+        assertThat(requestCaptor.getValue().attributeNames()).hasSize(3);
+        assertThat(meterRegistry.get("sqs.binder.queue.messages.visible").tag("queue", "queue1").gauge().value()).isEqualTo(12);
+        assertThat(meterRegistry.get("sqs.binder.queue.messages.notvisible").tag("queue", "queue1").gauge().value()).isEqualTo(3);
+        assertThat(meterRegistry.get("sqs.binder.queue.messages.delayed").tag("queue", "queue1").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReportNaNUntilQueueHasBeenSampled() {
+        when(binder.getSqsAsyncClient()).thenReturn(amazonSQS);
+        when(binder.getAdapters()).thenReturn(List.of(adapter));
+        when(adapter.getQueues()).thenReturn(new String[] { "https://sqs.eu-central-1.amazonaws.com/12345678901/queue1" });
+        when(amazonSQS.getQueueAttributes(any(GetQueueAttributesRequest.class))).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("unavailable")));
+        SqsQueueDepthSampler sampler = new SqsQueueDepthSampler(binder, meterRegistry, taskScheduler);
+
+        assertThat(sampler.sample()).isCompleted();
+
+        assertThat(meterRegistry.get("sqs.binder.queue.messages.visible").gauge().value()).isNaN();
+    }
+
+    @Test
+    void shouldJitterSamplingInterval() {
+        SqsQueueDepthSampler sampler = new SqsQueueDepthSampler(binder, meterRegistry, taskScheduler);
+        sampler.setInterval(Duration.ofSeconds(10));
+        sampler.setJitter(0.5);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(sampler.nextDelay()).isBetween(Duration.ofSeconds(5), Duration.ofSeconds(15));
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package de.idealo.spring.stream.binder.sqs.outbound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.integration.aws.support.AwsHeaders;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.support.MessageBuilder;
+
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.QueueDoesNotExistException;
+import software.amazon.awssdk.services.sqs.model.SendMessageRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+import software.amazon.awssdk.services.sqs.model.SqsException;
+
+import de.idealo.spring.stream.binder.sqs.SqsHeaders;
+import de.idealo.spring.stream.binder.sqs.payload.FileSystemPayloadStore;
+import de.idealo.spring.stream.binder.sqs.payload.PayloadCompression;
+import de.idealo.spring.stream.binder.sqs.provisioning.SqsQueueMetadataCache;
+
+@ExtendWith(MockitoExtension.class)
+class SqsAsyncMessageHandlerTest {
+
+    private static final String QUEUE_URL = "https://sqs.eu-central-1.amazonaws.com/1234567890/queue1";
+
+    @Mock
+    private SqsAsyncClient amazonSQS;
+
+    @Captor
+    private ArgumentCaptor<SendMessageRequest> requestCaptor;
+
+    @TempDir
+    private Path payloadDirectory;
+
+    private QueueChannel errorChannel;
+
+    private QueueChannel resultChannel;
+
+    private SqsAsyncMessageHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        errorChannel = new QueueChannel();
+        resultChannel = new QueueChannel();
+
+        handler = new SqsAsyncMessageHandler(amazonSQS, QUEUE_URL);
+        handler.setSendFailureChannel(errorChannel);
+        handler.setResultChannel(resultChannel);
+    }
+
+    @Test
+    void shouldDeliverMessageIdToResultChannel() {
+        when(amazonSQS.sendMessage(any(SendMessageRequest.class))).thenReturn(CompletableFuture.completedFuture(SendMessageResponse.builder().messageId("id-1").build()));
+        handler.afterPropertiesSet();
+
+        handler.handleMessage(MessageBuilder.withPayload("message").build());
+
+        Message<?> result = resultChannel.receive(1000);
+        assertThat(result).isNotNull();
+        assertThat(result.getPayload()).isEqualTo("message");
+        assertThat(result.getHeaders()).containsEntry(AwsHeaders.MESSAGE_ID, "id-1");
+        assertThat(handler.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void shouldResolveQueueUrlAgainOnceQueueDoesNotExist() {
+        when(amazonSQS.sendMessage(any(SendMessageRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(QueueDoesNotExistException.builder().message("gone").build()))
+                .thenReturn(CompletableFuture.completedFuture(SendMessageResponse.builder().messageId("id-1").build()));
+        SqsQueueMetadataCache queueMetadataCache = new SqsQueueMetadataCache(amazonSQS);
+        when(amazonSQS.getQueueAttributes(any(GetQueueAttributesRequest.class))).thenReturn(CompletableFuture.completedFuture(GetQueueAttributesResponse.builder().build()));
+        handler.setQueueUrl(QUEUE_URL);
+        handler.setQueueMetadataCache(queueMetadataCache);
+        handler.afterPropertiesSet();
+
+        handler.handleMessage(MessageBuilder.withPayload("first").build());
+        handler.handleMessage(MessageBuilder.withPayload("second").build());
+
+        assertThat(errorChannel.receive(1000)).isNotNull();
+        assertThat(resultChannel.receive(1000)).isNotNull();
+        verify(amazonSQS).getQueueAttributes(any(GetQueueAttributesRequest.class));
+    }
+
+    @Test
+    void shouldOffloadOnlyMessagesAboveThreshold() throws IOException {
+        when(amazonSQS.sendMessage(any(SendMessageRequest.class))).thenReturn(CompletableFuture.completedFuture(SendMessageResponse.builder().messageId("id-1").build()));
+        FileSystemPayloadStore payloadStore = new FileSystemPayloadStore(payloadDirectory);
+        handler.setPayloadStore(payloadStore, 5);
+        handler.afterPropertiesSet();
+
+        handler.handleMessage(MessageBuilder.withPayload("small").build());
+        handler.handleMessage(MessageBuilder.withPayload("large message").build());
+
+        verify(amazonSQS, times(2)).sendMessage(requestCaptor.capture());
+        SendMessageRequest small = requestCaptor.getAllValues().get(0);
+        assertThat(small.messageBody()).isEqualTo("small");
+        assertThat(small.messageAttributes()).doesNotContainKey(SqsHeaders.CLAIM_CHECK);
+        SendMessageRequest large = requestCaptor.getAllValues().get(1);
+        assertThat(large.messageAttributes().get(SqsHeaders.CLAIM_CHECK).stringValue()).isEqualTo("13");
+        try (InputStream payload = payloadStore.retrieve(large.messageBody())) {
+            assertThat(payload).hasContent("large message");
+        }
+    }
+
+    @Test
+    void shouldCompressBeforeOffloading() throws IOException {
+        when(amazonSQS.sendMessage(any(SendMessageRequest.class))).thenReturn(CompletableFuture.completedFuture(SendMessageResponse.builder().messageId("id-1").build()));
+        FileSystemPayloadStore payloadStore = new FileSystemPayloadStore(payloadDirectory);
+        handler.setCompression(PayloadCompression.GZIP, 100);
+        handler.setPayloadStore(payloadStore, 1000);
+        handler.afterPropertiesSet();
+        String compressible = "a".repeat(10_000);
+
+        handler.handleMessage(MessageBuilder.withPayload(compressible).build());
+
+        verify(amazonSQS).sendMessage(requestCaptor.capture());
+        SendMessageRequest request = requestCaptor.getValue();
+        assertThat(request.messageAttributes().get(SqsHeaders.CONTENT_ENCODING).stringValue()).isEqualTo("gzip");
+        assertThat(request.messageAttributes()).doesNotContainKey(SqsHeaders.CLAIM_CHECK);
+        assertThat(PayloadCompression.GZIP.decompress(request.messageBody())).isEqualTo(compressible);
+    }
+
+    @Test
+    void shouldRouteSendFailuresToErrorChannel() {
+        when(amazonSQS.sendMessage(any(SendMessageRequest.class))).thenReturn(CompletableFuture.failedFuture(SqsException.builder().message("boom").build()));
+        handler.afterPropertiesSet();
+
+        handler.handleMessage(MessageBuilder.withPayload("message").build());
+
+        Message<?> errorMessage = errorChannel.receive(1000);
+        assertThat(errorMessage).isNotNull();
+        assertThat(errorMessage.getPayload()).isInstanceOf(MessageDeliveryException.class);
+        assertThat(((MessageDeliveryException) errorMessage.getPayload()).getCause()).isInstanceOf(SqsException.class);
+        assertThat(handler.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void shouldBlockCallerOnceWindowIsFull() throws Exception {
+        CompletableFuture<SendMessageResponse> pendingResponse = new CompletableFuture<>();
+        when(amazonSQS.sendMessage(any(SendMessageRequest.class))).thenReturn(pendingResponse, CompletableFuture.completedFuture(SendMessageResponse.builder().messageId("id-2").build()));
+        handler.setMaxInFlight(1);
+        handler.afterPropertiesSet();
+
+        handler.handleMessage(MessageBuilder.withPayload("first").build());
+        assertThat(handler.getInFlightCount()).isEqualTo(1);
+
+        Thread caller = new Thread(() -> handler.handleMessage(MessageBuilder.withPayload("second").build()));
+        caller.start();
+
+        await().atMost(1, TimeUnit.SECONDS).until(() -> caller.getState() == Thread.State.WAITING);
+        assertThat(resultChannel.getQueueSize()).isZero();
+
+        pendingResponse.complete(SendMessageResponse.builder().messageId("id-1").build());
+        caller.join(1000);
+
+        assertThat(caller.isAlive()).isFalse();
+        assertThat(resultChannel.getQueueSize()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldWaitForInFlightMessagesOnStop() {
+        CompletableFuture<SendMessageResponse> pendingResponse = new CompletableFuture<>();
+        when(amazonSQS.sendMessage(any(SendMessageRequest.class))).thenReturn(pendingResponse);
+        handler.afterPropertiesSet();
+        handler.start();
+        handler.handleMessage(MessageBuilder.withPayload("message").build());
+
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(handler::stop);
+
+        await().during(200, TimeUnit.MILLISECONDS).atMost(1, TimeUnit.SECONDS).until(() -> !stopped.isDone());
+        pendingResponse.complete(SendMessageResponse.builder().messageId("id-1").build());
+        await().atMost(1, TimeUnit.SECONDS).until(stopped::isDone);
+        assertThat(handler.isRunning()).isFalse();
+        assertThat(handler.getInFlightCount()).isZero();
+    }
+
+    @Test
+    void shouldStopAfterShutdownTimeoutWithMessagesInFlight() {
+        when(amazonSQS.sendMessage(any(SendMessageRequest.class))).thenReturn(new CompletableFuture<>());
+        handler.setShutdownTimeout(Duration.ofMillis(50));
+        handler.afterPropertiesSet();
+        handler.start();
+        handler.handleMessage(MessageBuilder.withPayload("message").build());
+
+        handler.stop();
+
+        assertThat(handler.isRunning()).isFalse();
+        assertThat(handler.getInFlightCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectFifoQueues() {
+        SqsAsyncMessageHandler fifoHandler = new SqsAsyncMessageHandler(amazonSQS, QUEUE_URL + ".fifo");
+
+        assertThatThrownBy(fifoHandler::afterPropertiesSet)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("FIFO queue");
+    }
+}
@@ -0,0 +1,225 @@
+package de.idealo.spring.stream.binder.sqs.outbound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.BatchResultErrorEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequest;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.SendMessageBatchResponse;
+
+@ExtendWith(MockitoExtension.class)
+class SqsBatchingMessageHandlerTest {
+
+    private static final String QUEUE_URL = "https://sqs.eu-central-1.amazonaws.com/1234567890/queue1";
+
+    @Mock
+    private SqsAsyncClient amazonSQS;
+
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    private QueueChannel errorChannel;
+
+    private SqsBatchingMessageHandler handler;
+
+    @BeforeEach
+    void setUp() {
+        taskScheduler = new ThreadPoolTaskScheduler();
+        taskScheduler.initialize();
+        errorChannel = new QueueChannel();
+
+        handler = new SqsBatchingMessageHandler(amazonSQS, QUEUE_URL);
+        handler.setTaskScheduler(taskScheduler);
+        handler.setSendFailureChannel(errorChannel);
+        handler.setLingerTime(Duration.ofSeconds(10));
+        handler.afterPropertiesSet();
+        handler.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskScheduler.shutdown();
+    }
+
+    @Test
+    void shouldSendBatchOnceBatchSizeIsReached() {
+        when(amazonSQS.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(CompletableFuture.completedFuture(SendMessageBatchResponse.builder().build()));
+
+        for (int i = 0; i < 10; i++) {
+            handler.handleMessage(MessageBuilder.withPayload("message " + i).build());
+        }
+
+        ArgumentCaptor<SendMessageBatchRequest> request = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(amazonSQS, times(1)).sendMessageBatch(request.capture());
+        assertThat(request.getValue().queueUrl()).isEqualTo(QUEUE_URL);
+        assertThat(request.getValue().entries()).hasSize(10)
+                .extracting(SendMessageBatchRequestEntry::messageBody)
+                .startsWith("message 0")
+                .endsWith("message 9");
+    }
+
+    @Test
+    void shouldSendPartialBatchAfterLingerTime() {
+        when(amazonSQS.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(CompletableFuture.completedFuture(SendMessageBatchResponse.builder().build()));
+        handler.setLingerTime(Duration.ofMillis(50));
+
+        handler.handleMessage(MessageBuilder.withPayload("message").build());
+
+        verify(amazonSQS, never()).sendMessageBatch(any(SendMessageBatchRequest.class));
+        await().atMost(1, TimeUnit.SECONDS).untilAsserted(() ->
+                verify(amazonSQS, times(1)).sendMessageBatch(any(SendMessageBatchRequest.class)));
+    }
+
+    @Test
+    void shouldSplitBatchesByMaximumSize() {
+        when(amazonSQS.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(CompletableFuture.completedFuture(SendMessageBatchResponse.builder().build()));
+        handler.setBatchMaxBytes(100);
+
+        handler.handleMessage(MessageBuilder.withPayload("a".repeat(60)).build());
+        handler.handleMessage(MessageBuilder.withPayload("b".repeat(60)).build());
+
+        ArgumentCaptor<SendMessageBatchRequest> request = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(amazonSQS, times(1)).sendMessageBatch(request.capture());
+        assertThat(request.getValue().entries()).hasSize(1)
+                .extracting(SendMessageBatchRequestEntry::messageBody)
+                .containsExactly("a".repeat(60));
+    }
+
+    @Test
+    void shouldRetryOnlyFailedEntries() {
+        when(amazonSQS.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenAnswer(invocation -> {
+                    SendMessageBatchRequest request = invocation.getArgument(0);
+                    String failedId = request.entries().get(request.entries().size() - 1).id();
+                    return CompletableFuture.completedFuture(SendMessageBatchResponse.builder()
+                            .failed(BatchResultErrorEntry.builder().id(failedId).code("InternalError").senderFault(false).build())
+                            .build());
+                })
+                .thenReturn(CompletableFuture.completedFuture(SendMessageBatchResponse.builder().build()));
+
+        handler.handleMessage(MessageBuilder.withPayload("message 1").build());
+        handler.handleMessage(MessageBuilder.withPayload("message 2").build());
+        handler.flush();
+
+        ArgumentCaptor<SendMessageBatchRequest> request = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        await().atMost(1, TimeUnit.SECONDS).untilAsserted(() ->
+                verify(amazonSQS, times(2)).sendMessageBatch(request.capture()));
+        List<SendMessageBatchRequest> requests = request.getAllValues();
+        assertThat(requests.get(0).entries()).hasSize(2);
+        assertThat(requests.get(1).entries()).hasSize(1)
+                .extracting(SendMessageBatchRequestEntry::messageBody)
+                .containsExactly("message 2");
+        assertThat(errorChannel.getQueueSize()).isZero();
+    }
+
+    @Test
+    void shouldRetryFailedEntriesOfFifoQueueBeforeSendingNextBatch() {
+        CompletableFuture<SendMessageBatchResponse> firstResponse = new CompletableFuture<>();
+        when(amazonSQS.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(firstResponse)
+                .thenReturn(CompletableFuture.completedFuture(SendMessageBatchResponse.builder().build()));
+        SqsBatchingMessageHandler fifoHandler = new SqsBatchingMessageHandler(amazonSQS, QUEUE_URL + ".fifo");
+        fifoHandler.setTaskScheduler(taskScheduler);
+        fifoHandler.setLingerTime(Duration.ofSeconds(10));
+        fifoHandler.afterPropertiesSet();
+        fifoHandler.start();
+
+        fifoHandler.handleMessage(MessageBuilder.withPayload("message 1").build());
+        fifoHandler.handleMessage(MessageBuilder.withPayload("message 2").build());
+        fifoHandler.flush();
+        fifoHandler.handleMessage(MessageBuilder.withPayload("message 3").build());
+        fifoHandler.flush();
+
+        ArgumentCaptor<SendMessageBatchRequest> request = ArgumentCaptor.forClass(SendMessageBatchRequest.class);
+        verify(amazonSQS, times(1)).sendMessageBatch(request.capture());
+        String failedId = request.getValue().entries().get(1).id();
+        firstResponse.complete(SendMessageBatchResponse.builder()
+                .failed(BatchResultErrorEntry.builder().id(failedId).code("InternalError").senderFault(false).build())
+                .build());
+
+        await().atMost(1, TimeUnit.SECONDS).untilAsserted(() ->
+                verify(amazonSQS, times(3)).sendMessageBatch(request.capture()));
+        assertThat(request.getAllValues().subList(1, 4))
+                .extracting(batch -> batch.entries().stream().map(SendMessageBatchRequestEntry::messageBody).toList())
+                .containsExactly(List.of("message 1", "message 2"), List.of("message 2"), List.of("message 3"));
+    }
+
+    @Test
+    void shouldBlockProducersOfFifoQueueOnceMaxInFlightIsReached() throws Exception {
+        CompletableFuture<SendMessageBatchResponse> firstResponse = new CompletableFuture<>();
+        when(amazonSQS.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenReturn(firstResponse)
+                .thenReturn(CompletableFuture.completedFuture(SendMessageBatchResponse.builder().build()));
+        SqsBatchingMessageHandler fifoHandler = new SqsBatchingMessageHandler(amazonSQS, QUEUE_URL + ".fifo");
+        fifoHandler.setTaskScheduler(taskScheduler);
+        fifoHandler.setBatchSize(2);
+        fifoHandler.setMaxInFlight(4);
+        fifoHandler.afterPropertiesSet();
+        fifoHandler.start();
+
+        for (int i = 0; i < 4; i++) {
+            fifoHandler.handleMessage(MessageBuilder.withPayload("message " + i).build());
+        }
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> fifoHandler.handleMessage(MessageBuilder.withPayload("message 4").build()));
+
+        assertThatThrownBy(() -> blocked.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        firstResponse.complete(SendMessageBatchResponse.builder().build());
+        blocked.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldReportSenderFaultsToErrorChannel() {
+        when(amazonSQS.sendMessageBatch(any(SendMessageBatchRequest.class)))
+                .thenAnswer(invocation -> {
+                    SendMessageBatchRequest request = invocation.getArgument(0);
+                    return CompletableFuture.completedFuture(SendMessageBatchResponse.builder()
+                            .failed(BatchResultErrorEntry.builder().id(request.entries().get(0).id()).code("InvalidMessageContents").senderFault(true).build())
+                            .build());
+                });
+
+        handler.handleMessage(MessageBuilder.withPayload("invalid").build());
+        handler.flush();
+
+        verify(amazonSQS, times(1)).sendMessageBatch(any(SendMessageBatchRequest.class));
+        Message<?> errorMessage = errorChannel.receive(1000);
+        assertThat(errorMessage).isNotNull();
+        assertThat(errorMessage.getPayload()).isInstanceOf(MessageDeliveryException.class);
+        assertThat(((MessageDeliveryException) errorMessage.getPayload()).getFailedMessage().getPayload()).isEqualTo("invalid");
+    }
+
+    @Test
+    void shouldFlushPendingMessagesOnStop() {
+        when(amazonSQS.sendMessageBatch(any(SendMessageBatchRequest.class))).thenReturn(CompletableFuture.completedFuture(SendMessageBatchResponse.builder().build()));
+
+        handler.handleMessage(MessageBuilder.withPayload("message").build());
+        handler.stop();
+
+        verify(amazonSQS, times(1)).sendMessageBatch(any(SendMessageBatchRequest.class));
+    }
+}
@@ -0,0 +1,73 @@
+package de.idealo.spring.stream.binder.sqs.outbound;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import de.idealo.spring.stream.binder.sqs.SqsHeaders;
+
+class SqsHeaderExpressionsTest {
+
+    private final EvaluationContext evaluationContext = new StandardEvaluationContext();
+
+    @Test
+    void shouldReturnHeaderValue() {
+        Message<String> message = MessageBuilder.withPayload("message").setHeader(SqsHeaders.DELAY, 5).build();
+
+        Expression expression = SqsHeaderExpressions.header(SqsHeaders.DELAY);
+
+        assertThat(expression.getValue(evaluationContext, message, Integer.class)).isEqualTo(5);
+    }
+
+    @Test
+    void shouldReturnNullForMissingHeader() {
+        Message<String> message = MessageBuilder.withPayload("message").build();
+
+        Expression expression = SqsHeaderExpressions.header(SqsHeaders.GROUP_ID);
+
+        assertThat(expression.getValue(evaluationContext, message, String.class)).isNull();
+    }
+
+    @Test
+    void shouldPreferHeaderOverFallback() {
+        Message<String> message = MessageBuilder.withPayload("message").setHeader(SqsHeaders.GROUP_ID, "header-group").build();
+
+        Expression expression = SqsHeaderExpressions.headerOrElse(SqsHeaders.GROUP_ID, new SpelExpressionParser().parseExpression("payload"), evaluationContext);
+
+        assertThat(expression.getValue(evaluationContext, message, String.class)).isEqualTo("header-group");
+    }
+
+    @Test
+    void shouldEvaluateFallbackAgainstMessageIfHeaderIsMissing() {
+        Message<String> message = MessageBuilder.withPayload("payload-group").build();
+
+        Expression expression = SqsHeaderExpressions.headerOrElse(SqsHeaders.GROUP_ID, new SpelExpressionParser().parseExpression("payload"), evaluationContext);
+
+        assertThat(expression.getValue(evaluationContext, message, String.class)).isEqualTo("payload-group");
+    }
+
+    @Test
+    void shouldHashPayloadAndSelectedHeaders() {
+        Expression contentHash = SqsHeaderExpressions.contentHash("tenant");
+        Message<byte[]> message = MessageBuilder.withPayload("message".getBytes(StandardCharsets.UTF_8)).setHeader("tenant", "a").setHeader("trace", "1").build();
+
+        assertThat(contentHash.getValue(message)).isEqualTo(contentHash.getValue(MessageBuilder.fromMessage(message).setHeader("trace", "2").build()));
+        assertThat(contentHash.getValue(message)).isNotEqualTo(contentHash.getValue(MessageBuilder.fromMessage(message).setHeader("tenant", "b").build()));
+        assertThat(contentHash.getValue(message)).isNotEqualTo(contentHash.getValue(MessageBuilder.withPayload("other".getBytes(StandardCharsets.UTF_8)).setHeader("tenant", "a").build()));
+    }
+
+    @Test
+    void shouldComputeFnv1a64() {
+        // reference values of the FNV-1a specification
+        assertThat(SqsHeaderExpressions.fnv1a64(0xcbf29ce484222325L, new byte[0])).isEqualTo(0xcbf29ce484222325L);
+        assertThat(SqsHeaderExpressions.fnv1a64(0xcbf29ce484222325L, "a".getBytes(StandardCharsets.UTF_8))).isEqualTo(0xaf63dc4c8601ec8cL);
+    }
+}
@@ -0,0 +1,49 @@
+package de.idealo.spring.stream.binder.sqs.outbound;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.stream.binder.BinderHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+
+@ExtendWith(MockitoExtension.class)
+class SqsPartitionedMessageHandlerTest {
+
+    @Mock
+    private MessageHandler partition0;
+
+    @Mock
+    private MessageHandler partition1;
+
+    @Test
+    void shouldRouteMessageToHandlerOfItsPartition() {
+        SqsPartitionedMessageHandler handler = new SqsPartitionedMessageHandler(List.of(partition0, partition1));
+        Message<String> message = MessageBuilder.withPayload("payload").setHeader(BinderHeaders.PARTITION_HEADER, 1).build();
+
+        handler.handleMessage(message);
+
+        verify(partition1).handleMessage(message);
+        verify(partition0, never()).handleMessage(any());
+    }
+
+    @Test
+    void shouldRejectMessagesWithoutValidPartition() {
+        SqsPartitionedMessageHandler handler = new SqsPartitionedMessageHandler(List.of(partition0, partition1));
+
+        assertThatThrownBy(() -> handler.handleMessage(MessageBuilder.withPayload("payload").build()))
+                .isInstanceOf(MessageDeliveryException.class);
+        assertThatThrownBy(() -> handler.handleMessage(MessageBuilder.withPayload("payload").setHeader(BinderHeaders.PARTITION_HEADER, 2).build()))
+                .isInstanceOf(MessageDeliveryException.class);
+    }
+}
@@ -0,0 +1,38 @@
+package de.idealo.spring.stream.binder.sqs.payload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileSystemPayloadStoreTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldRetrieveStoredPayload() throws IOException {
+        FileSystemPayloadStore store = new FileSystemPayloadStore(directory.resolve("payloads"));
+
+        String reference = store.store("payload".getBytes(StandardCharsets.UTF_8));
+
+        try (InputStream payload = store.retrieve(reference)) {
+            assertThat(payload).hasContent("payload");
+        }
+    }
+
+    @Test
+    void shouldRejectReferenceOutsideOfDirectory() throws IOException {
+        Files.writeString(directory.resolve("secret"), "secret");
+        FileSystemPayloadStore store = new FileSystemPayloadStore(directory.resolve("payloads"));
+
+        assertThatThrownBy(() -> store.retrieve("../secret")).isInstanceOf(IOException.class);
+    }
+}
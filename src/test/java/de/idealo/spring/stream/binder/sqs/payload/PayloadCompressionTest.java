@@ -0,0 +1,48 @@
+package de.idealo.spring.stream.binder.sqs.payload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class PayloadCompressionTest {
+
+    @ParameterizedTest
+    @EnumSource(PayloadCompression.class)
+    void shouldRestoreCompressedPayload(PayloadCompression compression) throws IOException {
+        // larger than the pooled buffer may retain, followed by a small payload reusing the buffer
+        String large = "{\"name\":\"\u00fcn\u00efc\u00f6d\u00e9\",\"value\":42}".repeat(100_000);
+
+        String compressed = compression.compress(large.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(compressed.length()).isLessThan(large.length() / 5);
+        assertThat(Base64.getDecoder().decode(compressed)).isNotEmpty();
+        assertThat(compression.decompress(compressed)).isEqualTo(large);
+        assertThat(compression.decompress(compression.compress("small".getBytes(StandardCharsets.UTF_8)))).isEqualTo("small");
+    }
+
+    @ParameterizedTest
+    @EnumSource(PayloadCompression.class)
+    void shouldDecompressStreamUpToMaxSize(PayloadCompression compression) throws IOException {
+        byte[] compressed = compression.compress("x".repeat(100_000).getBytes(StandardCharsets.UTF_8)).getBytes(StandardCharsets.ISO_8859_1);
+
+        assertThat(compression.decompress(new ByteArrayInputStream(compressed), 100_000)).hasSize(100_000);
+        assertThatThrownBy(() -> compression.decompress(new ByteArrayInputStream(compressed), 50_000))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("maximum size");
+    }
+
+    @Test
+    void shouldResolveContentEncoding() {
+        assertThat(PayloadCompression.forContentEncoding("gzip")).isEqualTo(PayloadCompression.GZIP);
+        assertThat(PayloadCompression.forContentEncoding("LZ4")).isEqualTo(PayloadCompression.LZ4);
+        assertThatThrownBy(() -> PayloadCompression.forContentEncoding("br")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
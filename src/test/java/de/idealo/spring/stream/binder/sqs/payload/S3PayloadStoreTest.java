@@ -0,0 +1,55 @@
+package de.idealo.spring.stream.binder.sqs.payload;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+@ExtendWith(MockitoExtension.class)
+class S3PayloadStoreTest {
+
+    @Mock
+    private S3Client s3Client;
+
+    @Test
+    void shouldRetrieveObjectOfReference() throws IOException {
+        S3PayloadStore store = new S3PayloadStore(s3Client, "payloads");
+        store.setKeyPrefix("queue1/");
+
+        store.retrieve("s3://payloads/queue1/abc");
+
+        ArgumentCaptor<GetObjectRequest> request = ArgumentCaptor.forClass(GetObjectRequest.class);
+        verify(s3Client).getObject(request.capture());
+        assertThat(request.getValue().bucket()).isEqualTo("payloads");
+        assertThat(request.getValue().key()).isEqualTo("queue1/abc");
+    }
+
+    @Test
+    void shouldRejectReferenceToOtherBucket() {
+        S3PayloadStore store = new S3PayloadStore(s3Client, "payloads");
+
+        assertThatThrownBy(() -> store.retrieve("s3://secrets/abc")).isInstanceOf(IOException.class);
+        verify(s3Client, never()).getObject(any(GetObjectRequest.class));
+    }
+
+    @Test
+    void shouldRejectReferenceOutsideOfKeyPrefix() {
+        S3PayloadStore store = new S3PayloadStore(s3Client, "payloads");
+        store.setKeyPrefix("queue1/");
+
+        assertThatThrownBy(() -> store.retrieve("s3://payloads/queue2/abc")).isInstanceOf(IOException.class);
+        verify(s3Client, never()).getObject(any(GetObjectRequest.class));
+    }
+}
@@ -0,0 +1,85 @@
+package de.idealo.spring.stream.binder.sqs.provisioning;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+import software.amazon.awssdk.services.sqs.model.QueueDoesNotExistException;
+
+@ExtendWith(MockitoExtension.class)
+class SqsQueueMetadataCacheTest {
+
+    @Mock
+    private SqsAsyncClient amazonSQS;
+
+    @Test
+    void shouldResolveMetadataOnce() {
+        when(amazonSQS.getQueueUrl(any(GetQueueUrlRequest.class))).thenReturn(CompletableFuture.completedFuture(GetQueueUrlResponse.builder().queueUrl("http://queue.url/queue1.fifo").build()));
+        when(amazonSQS.getQueueAttributes(any(GetQueueAttributesRequest.class))).thenReturn(CompletableFuture.completedFuture(GetQueueAttributesResponse.builder()
+                .attributes(Map.of(QueueAttributeName.FIFO_QUEUE, "true",
+                        QueueAttributeName.VISIBILITY_TIMEOUT, "45",
+                        QueueAttributeName.REDRIVE_POLICY, "{\"maxReceiveCount\":3}"))
+                .build()));
+        SqsQueueMetadataCache cache = new SqsQueueMetadataCache(amazonSQS);
+
+        SqsQueueMetadata metadata = cache.resolve("queue1.fifo").join();
+        cache.resolve("queue1.fifo").join();
+
+        assertThat(metadata).isEqualTo(new SqsQueueMetadata("http://queue.url/queue1.fifo", true, Duration.ofSeconds(45), "{\"maxReceiveCount\":3}"));
+        assertThat(cache.getIfResolved("queue1.fifo")).isEqualTo(metadata);
+        assertThat(cache.getIfResolved("queue2")).isNull();
+        verify(amazonSQS, times(1)).getQueueUrl(any(GetQueueUrlRequest.class));
+        verify(amazonSQS, times(1)).getQueueAttributes(any(GetQueueAttributesRequest.class));
+    }
+
+    @Test
+    void shouldNotCacheFailedResolutions() {
+        when(amazonSQS.getQueueAttributes(any(GetQueueAttributesRequest.class)))
+                .thenReturn(CompletableFuture.failedFuture(QueueDoesNotExistException.builder().message("gone").build()))
+                .thenReturn(CompletableFuture.completedFuture(GetQueueAttributesResponse.builder().build()));
+        SqsQueueMetadataCache cache = new SqsQueueMetadataCache(amazonSQS);
+
+        assertThat(cache.resolve("https://sqs.eu-central-1.amazonaws.com/12345678901/queue1")).isCompletedExceptionally();
+        SqsQueueMetadata metadata = cache.resolve("https://sqs.eu-central-1.amazonaws.com/12345678901/queue1").join();
+
+        assertThat(metadata.fifo()).isFalse();
+        verify(amazonSQS, never()).getQueueUrl(any(GetQueueUrlRequest.class));
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedAndMissingQueues() {
+        when(amazonSQS.getQueueAttributes(any(GetQueueAttributesRequest.class))).thenReturn(CompletableFuture.completedFuture(GetQueueAttributesResponse.builder().build()));
+        SqsQueueMetadataCache cache = new SqsQueueMetadataCache(amazonSQS, 2);
+
+        cache.resolve("http://queue.url/queue1");
+        cache.resolve("http://queue.url/queue2");
+        cache.resolve("http://queue.url/queue1");
+        cache.resolve("http://queue.url/queue3");
+        cache.resolve("http://queue.url/queue1");
+        assertThat(cache.invalidateIfNotExists("http://queue.url/queue1", new IllegalStateException())).isFalse();
+        cache.resolve("http://queue.url/queue1");
+        assertThat(cache.invalidateIfNotExists("http://queue.url/queue1", QueueDoesNotExistException.builder().build())).isTrue();
+        cache.resolve("http://queue.url/queue1");
+
+        // queue2 has been evicted as least recently used, queue1 after it did not exist anymore
+        verify(amazonSQS, times(4)).getQueueAttributes(any(GetQueueAttributesRequest.class));
+    }
+}